@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Поднимает хранилища так же, как приложение, — контекстом Spring с выбранной реализацией,
+ * поэтому бенчмарки не привязаны к конкретным классам {@link FilmStorage}/{@link UserStorage}.
+ * Значения параметра {@code storage}: {@code memory}, {@code memory-wal} (журнал с fsync
+ * по интервалу во временном каталоге) и {@code db} (H2 в памяти).
+ */
+final class BenchmarkStorages implements AutoCloseable {
+    private final ConfigurableApplicationContext context;
+
+    private final Path walDir;
+
+    private BenchmarkStorages(ConfigurableApplicationContext context, Path walDir) {
+        this.context = context;
+        this.walDir = walDir;
+    }
+
+    static BenchmarkStorages start(String storage) throws IOException {
+        List<String> args = new ArrayList<>(List.of(
+                "--logging.level.root=WARN",
+                "--logging.level.ru.yandex.practicum.filmorate=WARN",
+                "--logging.level.org.zalando.logbook=OFF"));
+        Path walDir = null;
+        switch (storage) {
+            case "memory" -> args.add("--filmorate.storage=memory");
+            case "memory-wal" -> {
+                walDir = Files.createTempDirectory("filmorate-jmh");
+                args.addAll(List.of("--filmorate.storage=memory",
+                        "--filmorate.wal.enabled=true",
+                        "--filmorate.wal.dir=" + walDir,
+                        "--filmorate.wal.fsync=interval"));
+            }
+            case "db" -> args.addAll(List.of("--filmorate.storage=db",
+                    "--spring.datasource.url=jdbc:h2:mem:filmorate-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1"));
+            default -> throw new IllegalArgumentException("Неизвестное хранилище: " + storage);
+        }
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run(args.toArray(String[]::new));
+        return new BenchmarkStorages(context, walDir);
+    }
+
+    FilmStorage films() {
+        return context.getBean(FilmStorage.class);
+    }
+
+    UserStorage users() {
+        return context.getBean(UserStorage.class);
+    }
+
+    UserService userService() {
+        return context.getBean(UserService.class);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        if (walDir == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(walDir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendOperation;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Наборы данных для бенчмарков. Лайки и дружбы пишутся пакетными методами хранилищ,
+ * иначе заполнение миллиона сущностей заняло бы больше, чем сами замеры.
+ */
+final class Datasets {
+    static final int LIKES_PER_FILM = 5;
+
+    static final int FRIENDS_PER_USER = 10;
+
+    private static final int BATCH = 1000;
+
+    private Datasets() {
+    }
+
+    static long[] createUsers(UserStorage users, int count, String prefix) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = users.create(user(prefix + i)).getId();
+        }
+        return ids;
+    }
+
+    static long[] createFilms(FilmStorage films, int count) {
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = films.create(film("Фильм " + i)).getId();
+        }
+        return ids;
+    }
+
+    /**
+     * В среднем {@link #LIKES_PER_FILM} лайков на фильм от случайных пользователей из {@code userIds};
+     * случайные повторы хранилище отклоняет, на распределение это почти не влияет.
+     */
+    static void addLikes(FilmStorage films, long[] filmIds, long[] userIds, Random random) {
+        List<LikeOperation> batch = new ArrayList<>(BATCH);
+        for (long filmId : filmIds) {
+            int count = random.nextInt(2 * LIKES_PER_FILM + 1);
+            for (int i = 0; i < count; i++) {
+                LikeOperation operation = new LikeOperation();
+                operation.setFilmId(filmId);
+                operation.setUserId(userIds[random.nextInt(userIds.length)]);
+                batch.add(operation);
+            }
+            if (batch.size() >= BATCH) {
+                films.applyLikes(batch);
+                batch = new ArrayList<>(BATCH);
+            }
+        }
+        films.applyLikes(batch);
+    }
+
+    /**
+     * Каждый пользователь из {@code userIds} дружит в среднем с {@link #FRIENDS_PER_USER}
+     * случайными пользователями из {@code candidates}: дружба взаимна, поэтому заявок вдвое меньше.
+     */
+    static void addFriendships(UserStorage users, long[] userIds, long[] candidates, Random random) {
+        List<FriendOperation> batch = new ArrayList<>(BATCH);
+        for (long userId : userIds) {
+            for (int i = 0; i < FRIENDS_PER_USER / 2; i++) {
+                long friendId = candidates[random.nextInt(candidates.length)];
+                if (friendId == userId) {
+                    continue;
+                }
+                FriendOperation operation = new FriendOperation();
+                operation.setUserId(userId);
+                operation.setFriendId(friendId);
+                batch.add(operation);
+            }
+            if (batch.size() >= BATCH) {
+                users.applyFriendships(batch);
+                batch = new ArrayList<>(BATCH);
+            }
+        }
+        users.applyFriendships(batch);
+    }
+
+    static User user(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
+    static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+}
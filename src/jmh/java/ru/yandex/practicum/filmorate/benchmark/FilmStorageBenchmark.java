@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Горячие пути хранилища фильмов: {@code size} фильмов и столько же пользователей,
+ * в среднем по {@value Datasets#LIKES_PER_FILM} лайков на фильм.
+ * Варианты {@code *Concurrent} — те же операции из {@value #THREADS} потоков.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FilmStorageBenchmark {
+    static final int THREADS = 4;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"memory"})
+    public String storage;
+
+    private BenchmarkStorages storages;
+
+    private FilmStorage films;
+
+    private long[] filmIds;
+
+    private long[] likerIds;
+
+    private final AtomicLong likes = new AtomicLong();
+
+    private final AtomicLong created = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        storages = BenchmarkStorages.start(storage);
+        films = storages.films();
+        long[] userIds = Datasets.createUsers(storages.users(), size, "user");
+        filmIds = Datasets.createFilms(films, size);
+        int half = userIds.length / 2;
+        Datasets.addLikes(films, filmIds, Arrays.copyOfRange(userIds, 0, half), new Random(42));
+        likerIds = Arrays.copyOfRange(userIds, half, userIds.length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        storages.close();
+    }
+
+    @Benchmark
+    public Collection<Film> getPopularFilms() {
+        return films.getPopularFilms(10);
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public Collection<Film> getPopularFilmsConcurrent() {
+        return getPopularFilms();
+    }
+
+    /**
+     * Набор заполнен лайками первой половины пользователей, здесь лайкает вторая — без повторов.
+     * Когда пары фильм–пользователь заканчиваются (на маленьких наборах), следующий проход
+     * по ним снимает лайки, так что там результат — смесь добавления и удаления.
+     */
+    @Benchmark
+    public void addLike() {
+        long n = likes.getAndIncrement();
+        long pairs = (long) filmIds.length * likerIds.length;
+        long pair = n % pairs;
+        long filmId = filmIds[(int) (pair % filmIds.length)];
+        long userId = likerIds[(int) (pair / filmIds.length)];
+        if ((n / pairs) % 2 == 0) {
+            films.addLike(filmId, userId);
+        } else {
+            films.removeLike(filmId, userId);
+        }
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public void addLikeConcurrent() {
+        addLike();
+    }
+
+    /**
+     * Создание с проверкой уникальности названия; набор растёт на число созданных фильмов.
+     */
+    @Benchmark
+    public Film create() {
+        return films.create(Datasets.film("Новый фильм " + created.getAndIncrement()));
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public Film createConcurrent() {
+        return create();
+    }
+}
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Удаление пользователя вместе с его дружбами. Удаление необратимо, поэтому перед каждой
+ * итерацией создаются новые пользователи с друзьями из основного набора, а итерация удаляет
+ * {@value #BATCH} из них (в многопоточном варианте — столько на каждый поток): результат — время на пачку.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = UserDeleteBenchmark.BATCH)
+@Measurement(iterations = 20, batchSize = UserDeleteBenchmark.BATCH)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserDeleteBenchmark {
+    static final int BATCH = 1000;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"memory"})
+    public String storage;
+
+    private BenchmarkStorages storages;
+
+    private UserStorage users;
+
+    private long[] userIds;
+
+    private long[] victims;
+
+    private final AtomicInteger nextVictim = new AtomicInteger();
+
+    private final Random random = new Random(42);
+
+    private int iteration;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        storages = BenchmarkStorages.start(storage);
+        users = storages.users();
+        userIds = Datasets.createUsers(users, size, "user");
+        Datasets.addFriendships(users, userIds, userIds, random);
+    }
+
+    @Setup(Level.Iteration)
+    public void createVictims() {
+        victims = Datasets.createUsers(users, BATCH * FilmStorageBenchmark.THREADS, "victim" + iteration++ + "-");
+        Datasets.addFriendships(users, victims, userIds, random);
+        nextVictim.set(0);
+    }
+
+    /**
+     * Неиспользованные в однопоточном варианте пользователи убираются вне замера.
+     */
+    @TearDown(Level.Iteration)
+    public void deleteLeftovers() {
+        List<Long> leftovers = new ArrayList<>();
+        for (int i = nextVictim.get(); i < victims.length; i++) {
+            leftovers.add(victims[i]);
+        }
+        users.deleteAll(leftovers);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        storages.close();
+    }
+
+    @Benchmark
+    public void delete() {
+        users.delete(victims[nextVictim.getAndIncrement()]);
+    }
+
+    @Benchmark
+    @Threads(FilmStorageBenchmark.THREADS)
+    public void deleteConcurrent() {
+        delete();
+    }
+}
@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Горячие пути пользователей: {@code size} пользователей, в среднем по
+ * {@value Datasets#FRIENDS_PER_USER} друзей у каждого. {@code getFriends} идёт через
+ * {@link UserService}, как в контроллере. Варианты {@code *Concurrent} — из
+ * {@value FilmStorageBenchmark#THREADS} потоков.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class UserStorageBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"memory"})
+    public String storage;
+
+    private BenchmarkStorages storages;
+
+    private UserStorage users;
+
+    private UserService userService;
+
+    private long[] userIds;
+
+    private final AtomicLong created = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        storages = BenchmarkStorages.start(storage);
+        users = storages.users();
+        userService = storages.userService();
+        userIds = Datasets.createUsers(users, size, "user");
+        Datasets.addFriendships(users, userIds, userIds, new Random(42));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        storages.close();
+    }
+
+    @Benchmark
+    public Collection<User> getCommonFriends() {
+        return users.getCommonFriends(randomUser(), randomUser());
+    }
+
+    @Benchmark
+    @Threads(FilmStorageBenchmark.THREADS)
+    public Collection<User> getCommonFriendsConcurrent() {
+        return getCommonFriends();
+    }
+
+    @Benchmark
+    public Collection<User> getFriends() {
+        return userService.getFriends(randomUser());
+    }
+
+    @Benchmark
+    @Threads(FilmStorageBenchmark.THREADS)
+    public Collection<User> getFriendsConcurrent() {
+        return getFriends();
+    }
+
+    /**
+     * Создание с проверкой уникальности email; набор растёт на число созданных пользователей.
+     */
+    @Benchmark
+    public User create() {
+        return users.create(Datasets.user("new" + created.getAndIncrement()));
+    }
+
+    @Benchmark
+    @Threads(FilmStorageBenchmark.THREADS)
+    public User createConcurrent() {
+        return create();
+    }
+
+    private long randomUser() {
+        return userIds[ThreadLocalRandom.current().nextInt(userIds.length)];
+    }
+}
@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Время готовности хранилищ после рестарта: проигрывание журнала против загрузки снимка.
+ * Не JMH-бенчмарк, а отдельный main-класс; лежит в пакете хранилищ ради доступа к журналу и снимкам:
+ * {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.jvmArgs=-Xmx3g
+ * -Djmh.main=ru.yandex.practicum.filmorate.storage.StartupBenchmark -Djmh.args="[users] [films] [friends] [likes]"}.
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int filmCount = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int friendsPerUser = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int likesPerFilm = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+        ((Logger) LoggerFactory.getLogger("ru.yandex.practicum.filmorate")).setLevel(Level.WARN);
+
+        Path dir = Files.createTempDirectory("filmorate-startup");
+        try {
+            Path walDir = dir.resolve("wal");
+            Path snapshotDir = dir.resolve("snapshot");
+            System.out.printf("Пользователей: %d (по %d друзей), фильмов: %d (по %d лайков)%n",
+                    userCount, friendsPerUser, filmCount, likesPerFilm);
+
+            long started = System.nanoTime();
+            populate(walDir, userCount, filmCount, friendsPerUser, likesPerFilm);
+            System.out.printf("Заполнение с журналом: %d мс, журнал: %d МБ%n", millisSince(started), megabytes(walDir));
+
+            // Файла снимка ещё нет, поэтому хранилища поднимаются только из журнала.
+            SnapshotStore snapshots = new SnapshotStore(true, snapshotDir, 0);
+            Stores fromLog = measure("Старт из журнала", () -> new Stores(
+                    new InMemoryUserStorage(openLog(walDir, "users"), snapshots),
+                    new InMemoryFilmStorage(openLog(walDir, "films"), snapshots)));
+
+            started = System.nanoTime();
+            fromLog.users().snapshot();
+            fromLog.films().snapshot();
+            System.out.printf("Запись снимков: %d мс, снимки: %d МБ%n", millisSince(started), megabytes(snapshotDir));
+            fromLog = null;
+
+            Stores fromSnapshot = measure("Старт из снимка", () -> new Stores(
+                    new InMemoryUserStorage(WriteAheadLog.disabled(), snapshots),
+                    new InMemoryFilmStorage(WriteAheadLog.disabled(), snapshots)));
+            if (fromSnapshot.users().findAll().size() != userCount
+                    || fromSnapshot.films().findAll().size() != filmCount) {
+                throw new IllegalStateException("Снимок восстановил не все данные");
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void populate(Path walDir, int userCount, int filmCount, int friendsPerUser, int likesPerFilm) {
+        Random random = new Random(42);
+        SnapshotStore noSnapshots = SnapshotStore.disabled();
+
+        WriteAheadLog userLog = openLog(walDir, "users");
+        InMemoryUserStorage users = new InMemoryUserStorage(userLog, noSnapshots);
+        for (int i = 0; i < userCount; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.ru");
+            user.setLogin("user" + i);
+            user.setName("Пользователь " + i);
+            user.setBirthday(LocalDate.of(1970, 1, 1).plusDays(i % 15_000));
+            users.create(user);
+        }
+        for (long userId = 1; userId <= userCount; userId++) {
+            for (int f = 0; f < friendsPerUser / 2; f++) {
+                long friendId = 1 + random.nextInt(userCount);
+                if (friendId != userId) {
+                    users.addFriend(userId, friendId);
+                }
+            }
+        }
+        userLog.close();
+
+        WriteAheadLog filmLog = openLog(walDir, "films");
+        InMemoryFilmStorage films = new InMemoryFilmStorage(filmLog, noSnapshots);
+        for (int i = 0; i < filmCount; i++) {
+            Film film = new Film();
+            film.setName("Фильм " + i);
+            film.setDescription("Описание фильма " + i);
+            film.setReleaseDate(LocalDate.of(1950, 1, 1).plusDays(i % 25_000));
+            film.setDuration(90 + i % 60);
+            long filmId = films.create(film).getId();
+            for (int l = 0; l < likesPerFilm; l++) {
+                long userId = 1 + random.nextInt(userCount);
+                if (!film.getLikes().contains(userId)) {
+                    films.addLike(filmId, userId);
+                }
+            }
+        }
+        filmLog.close();
+    }
+
+    private static Stores measure(String label, Supplier<Stores> start) {
+        System.gc();
+        long started = System.nanoTime();
+        Stores stores = start.get();
+        long elapsed = millisSince(started);
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        System.out.printf("%s: %d мс, куча после старта: %d МБ%n", label, elapsed,
+                (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+        return stores;
+    }
+
+    private static WriteAheadLog openLog(Path dir, String name) {
+        return WriteAheadLog.open(dir, name, WriteAheadLog.FsyncPolicy.NEVER, 0);
+    }
+
+    private static long millisSince(long started) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    }
+
+    private static long megabytes(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.mapToLong(path -> path.toFile().length()).sum() >> 20;
+        }
+    }
+
+    private record Stores(InMemoryUserStorage users, InMemoryFilmStorage films) {
+    }
+}
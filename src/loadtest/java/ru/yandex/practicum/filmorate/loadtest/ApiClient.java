@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Запросы к REST API приложения. Данные для запросов берутся из общих наборов id,
+ * созданные пользователи пополняют набор.
+ */
+final class ApiClient {
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final String baseUrl;
+
+    private final IdPool users = new IdPool();
+
+    private final IdPool films = new IdPool();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    ApiClient(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    IdPool users() {
+        return users;
+    }
+
+    IdPool films() {
+        return films;
+    }
+
+    /**
+     * Выполняет операцию и возвращает код ответа.
+     */
+    int execute(Operation operation, Random random) throws IOException, InterruptedException {
+        return switch (operation) {
+            case CREATE_USER -> createUser();
+            case ADD_FRIEND -> {
+                long[] pair = distinctUsers(random);
+                yield send(request("/users/" + pair[0] + "/friends/" + pair[1]).PUT(noBody())).statusCode();
+            }
+            case ADD_LIKE -> send(request("/films/" + films.random(random) + "/like/" + users.random(random))
+                    .PUT(noBody())).statusCode();
+            case POPULAR -> send(request("/films/popular?count=10").GET()).statusCode();
+            case COMMON_FRIENDS -> {
+                long[] pair = distinctUsers(random);
+                yield send(request("/users/" + pair[0] + "/friends/common/" + pair[1]).GET()).statusCode();
+            }
+        };
+    }
+
+    int createUser() throws IOException, InterruptedException {
+        long n = sequence.incrementAndGet();
+        HttpResponse<String> response = post("/users", Map.of(
+                "email", "load" + n + "-" + System.nanoTime() + "@example.com",
+                "login", "load" + n,
+                "birthday", "1990-01-01"));
+        if (response.statusCode() / 100 == 2) {
+            users.add(idOf(response));
+        }
+        return response.statusCode();
+    }
+
+    void createFilm(int n) throws IOException, InterruptedException {
+        HttpResponse<String> response = post("/films", Map.of(
+                "name", "Нагрузочный фильм " + n + " " + System.nanoTime(),
+                "description", "Фильм для нагрузочного теста",
+                "releaseDate", "2000-01-01",
+                "duration", 100));
+        check(response);
+        films.add(idOf(response));
+    }
+
+    /**
+     * Начальные дружбы и лайки пишутся пакетными методами API: по одному запросу на тысячу операций.
+     */
+    void applyBatch(String path, List<Map<String, Object>> operations) throws IOException, InterruptedException {
+        check(post(path, operations));
+    }
+
+    private long[] distinctUsers(Random random) {
+        long first = users.random(random);
+        long second = users.random(random);
+        while (second == first) {
+            second = users.random(random);
+        }
+        return new long[]{first, second};
+    }
+
+    private HttpResponse<String> post(String path, Object body) throws IOException, InterruptedException {
+        return send(request(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(body))));
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(TIMEOUT);
+    }
+
+    private long idOf(HttpResponse<String> response) throws IOException {
+        JsonNode id = mapper.readTree(response.body()).get("id");
+        if (id == null) {
+            throw new IOException("В ответе нет id: " + response.body());
+        }
+        return id.asLong();
+    }
+
+    private static void check(HttpResponse<String> response) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Подготовка данных: " + response.request().uri() + " ответил "
+                    + response.statusCode() + ": " + response.body());
+        }
+    }
+
+    private static HttpRequest.BodyPublisher noBody() {
+        return HttpRequest.BodyPublishers.noBody();
+    }
+}
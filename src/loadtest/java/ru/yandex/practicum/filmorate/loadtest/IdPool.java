@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Растущий набор id для случайного выбора. Писатели синхронизированы, читатели не блокируются:
+ * размер читается до массива, а новый массив содержит все элементы старого.
+ */
+final class IdPool {
+    private volatile long[] ids = new long[1024];
+
+    private volatile int size;
+
+    synchronized void add(long id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        ids[size] = id;
+        size = size + 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long get(int index) {
+        return ids[index];
+    }
+
+    long random(Random random) {
+        int count = size;
+        return ids[random.nextInt(count)];
+    }
+}
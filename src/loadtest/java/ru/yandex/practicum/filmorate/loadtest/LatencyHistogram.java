@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+/**
+ * Лог-линейная гистограмма задержек в наносекундах: 64 ячейки на каждую степень двойки,
+ * то есть относительная погрешность перцентиля меньше 1,6% при постоянной памяти.
+ * Не потокобезопасна — у каждого клиента свои гистограммы, в конце они складываются.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Значения до 2^40 нс (около 18 минут); большие попадают в последнюю ячейку.
+     */
+    private static final int MAX_SHIFT = 40 - SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[2 * SUB_BUCKETS + MAX_SHIFT * SUB_BUCKETS];
+
+    private long total;
+
+    private long sum;
+
+    private long max;
+
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[Math.min(indexOf(value), counts.length - 1)]++;
+        total++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    long count() {
+        return total;
+    }
+
+    double meanNanos() {
+        return total == 0 ? 0 : (double) sum / total;
+    }
+
+    long maxNanos() {
+        return max;
+    }
+
+    /**
+     * Середина ячейки, в которую попадает перцентиль {@code percentile} (0–100).
+     */
+    long percentileNanos(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, (lowerBound(i) + lowerBound(i + 1) - 1) / 2);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Первые {@code 2 * SUB_BUCKETS} значений лежат в ячейках по одному, дальше на каждую
+     * степень двойки приходится {@code SUB_BUCKETS} ячеек.
+     */
+    private static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long lowerBound(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        long mantissa = SUB_BUCKETS + (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return mantissa << shift;
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Параметры прогона из аргументов вида {@code --key=value}. Неизвестные ключи не теряются:
+ * они уходят запускаемому приложению, например {@code --filmorate.likes.queue.enabled=true}.
+ *
+ * @param url        адрес уже запущенного приложения; пусто — поднять приложение в этом же процессе
+ * @param users      пользователей в начальном наборе
+ * @param films      фильмов в начальном наборе
+ * @param friends    дружб на пользователя в начальном наборе
+ * @param likes      лайков на пользователя в начальном наборе
+ * @param threads    одновременных клиентов; каждый шлёт следующий запрос сразу после ответа
+ * @param warmup     прогрев, замеры не пишутся
+ * @param duration   замер
+ * @param seed       зерно генератора случайных чисел для набора данных
+ * @param mix        веса операций
+ * @param out        файл с результатом в JSON
+ * @param appArgs    аргументы для приложения
+ */
+record LoadConfig(String url, int users, int films, int friends, int likes, int threads, Duration warmup,
+                  Duration duration, long seed, Map<Operation, Integer> mix, String out, List<String> appArgs) {
+
+    static final String DEFAULT_MIX = "createUser:5,addFriend:15,addLike:30,popular:35,commonFriends:15";
+
+    static LoadConfig parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> appArgs = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String key = arg.startsWith("--") && eq > 2 ? arg.substring(2, eq) : null;
+            if (key != null && !key.contains(".")) {
+                options.put(key, arg.substring(eq + 1));
+            } else {
+                appArgs.add(arg);
+            }
+        }
+        LoadConfig config = new LoadConfig(
+                options.remove("url"),
+                Integer.parseInt(options.getOrDefault("users", "1000")),
+                Integer.parseInt(options.getOrDefault("films", "200")),
+                Integer.parseInt(options.getOrDefault("friends", "10")),
+                Integer.parseInt(options.getOrDefault("likes", "5")),
+                Integer.parseInt(options.getOrDefault("threads", "16")),
+                duration(options.getOrDefault("warmup", "10s")),
+                duration(options.getOrDefault("duration", "30s")),
+                Long.parseLong(options.getOrDefault("seed", "42")),
+                mix(options.getOrDefault("mix", DEFAULT_MIX)),
+                options.getOrDefault("out", "target/loadtest/result.json"),
+                appArgs);
+        for (String key : List.of("users", "films", "friends", "likes", "threads", "warmup", "duration", "seed",
+                "mix", "out")) {
+            options.remove(key);
+        }
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Неизвестные параметры: " + options.keySet());
+        }
+        if (config.users() < 2 || config.films() < 1 || config.threads() < 1) {
+            throw new IllegalArgumentException("Нужно хотя бы 2 пользователя, 1 фильм и 1 поток");
+        }
+        return config;
+    }
+
+    /**
+     * Длительность вида {@code 500ms}, {@code 30s} или {@code 5m}.
+     */
+    static Duration duration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            default -> throw new IllegalArgumentException("Длительность задаётся в ms, s или m: " + value);
+        };
+    }
+
+    /**
+     * Веса вида {@code addLike:30,popular:70}; операции без веса не выполняются.
+     */
+    static Map<Operation, Integer> mix(String value) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Вес операции задаётся как имя:вес, получено: " + part);
+            }
+            int weight = Integer.parseInt(pair[1]);
+            if (weight > 0) {
+                weights.put(Operation.byName(pair[0]), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("В смеси нет ни одной операции");
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import java.util.Map;
+
+/**
+ * Результат прогона в JSON: его можно сравнивать между сборками. Время — в миллисекундах,
+ * пропускная способность — в запросах в секунду за фазу замера.
+ */
+record LoadReport(String startedAt, String javaVersion, int availableProcessors, Config config, Summary total,
+                  Map<String, Summary> operations) {
+
+    record Config(String target, int users, int films, int friendsPerUser, int likesPerUser, int threads,
+                  double warmupSeconds, double durationSeconds, long seed, Map<String, Integer> mix) {
+    }
+
+    /**
+     * {@code rejected} — ответы 4xx: повторный лайк или дружба отклоняются API, это ожидаемо.
+     * {@code errors} — ответы 5xx и сбои соединения.
+     */
+    record Summary(String endpoint, long requests, double throughput, long rejected, long errors, Latency latencyMs) {
+    }
+
+    record Latency(double mean, double p50, double p90, double p99, double p999, double max) {
+    }
+}
@@ -0,0 +1,277 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочный прогон по HTTP: поднимает приложение целиком (или берёт уже запущенное по {@code --url}),
+ * заполняет его начальным набором через API и гоняет смесь операций замкнутым циклом
+ * из {@code --threads} клиентов. Пишет пропускную способность и перцентили задержек по каждой
+ * операции в JSON. Не тест — запускается вручную:
+ * {@code mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--duration=60s --mix=addLike:50,popular:50"}.
+ * <p>
+ * Клиенты и приложение в одном процессе делят процессор, поэтому абсолютные числа ниже, чем
+ * у отдельного сервера; для сравнения сборок между собой это не мешает.
+ */
+public final class LoadRunner {
+    private static final int BATCH = 1000;
+
+    private LoadRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadConfig config = LoadConfig.parse(args);
+        ConfigurableApplicationContext app = config.url() == null ? startApp(config.appArgs()) : null;
+        try {
+            String target = app == null
+                    ? config.url()
+                    : "http://localhost:" + ((WebServerApplicationContext) app).getWebServer().getPort();
+            ApiClient client = new ApiClient(target);
+            ExecutorService executor = Executors.newFixedThreadPool(config.threads());
+            try {
+                long started = System.nanoTime();
+                seed(client, config, executor);
+                System.out.printf("Набор данных: %d пользователей, %d фильмов за %d мс%n", client.users().size(),
+                        client.films().size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                LoadReport report = run(client, config, target, executor);
+                write(report, Path.of(config.out()));
+                print(report);
+                System.out.println("Результат: " + Path.of(config.out()).toAbsolutePath());
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            if (app != null) {
+                app.close();
+            }
+        }
+    }
+
+    /**
+     * Логи на каждый запрос исказили бы замер, поэтому они приглушены. Настройки передаются как
+     * аргументы командной строки, чтобы перекрыть application.properties; заданные явно не трогаются.
+     */
+    private static ConfigurableApplicationContext startApp(List<String> appArgs) {
+        List<String> args = new ArrayList<>(appArgs);
+        Map.of("server.port", "0",
+                "logging.level.org.zalando.logbook", "OFF",
+                "logging.level.ru.yandex.practicum.filmorate", "WARN").forEach((key, value) -> {
+                    if (appArgs.stream().noneMatch(arg -> arg.startsWith("--" + key + "="))) {
+                        args.add("--" + key + "=" + value);
+                    }
+                });
+        return SpringApplication.run(FilmorateApplication.class, args.toArray(String[]::new));
+    }
+
+    /**
+     * Пользователи и фильмы создаются по одному, дружбы и лайки — пакетами. Лайки смещены
+     * к первым фильмам (индекс — квадрат равномерной величины), как популярность в жизни.
+     */
+    private static void seed(ApiClient client, LoadConfig config, ExecutorService executor) throws Exception {
+        List<Future<?>> pending = new ArrayList<>();
+        for (int i = 0; i < config.users(); i++) {
+            pending.add(executor.submit(() -> client.createUser()));
+        }
+        for (int i = 0; i < config.films(); i++) {
+            int n = i;
+            pending.add(executor.submit(() -> {
+                client.createFilm(n);
+                return null;
+            }));
+        }
+        awaitAll(pending);
+
+        Random random = new Random(config.seed());
+        List<Map<String, Object>> friendships = new ArrayList<>();
+        List<Map<String, Object>> likes = new ArrayList<>();
+        for (int i = 0; i < config.users(); i++) {
+            long userId = client.users().random(random);
+            for (int j = 0; j < config.friends(); j++) {
+                long friendId = client.users().random(random);
+                if (friendId != userId) {
+                    friendships.add(Map.of("userId", userId, "friendId", friendId, "action", "ADD"));
+                }
+            }
+            for (int j = 0; j < config.likes(); j++) {
+                double skewed = random.nextDouble();
+                long filmId = client.films().get((int) (skewed * skewed * client.films().size()));
+                likes.add(Map.of("filmId", filmId, "userId", userId, "action", "ADD"));
+            }
+        }
+        for (int from = 0; from < friendships.size(); from += BATCH) {
+            List<Map<String, Object>> batch = friendships.subList(from, Math.min(friendships.size(), from + BATCH));
+            pending.add(executor.submit(() -> {
+                client.applyBatch("/users/friends/batch", batch);
+                return null;
+            }));
+        }
+        for (int from = 0; from < likes.size(); from += BATCH) {
+            List<Map<String, Object>> batch = likes.subList(from, Math.min(likes.size(), from + BATCH));
+            pending.add(executor.submit(() -> {
+                client.applyBatch("/films/likes/batch", batch);
+                return null;
+            }));
+        }
+        awaitAll(pending);
+    }
+
+    private static LoadReport run(ApiClient client, LoadConfig config, String target, ExecutorService executor)
+            throws Exception {
+        Operation[] operations = config.mix().keySet().toArray(Operation[]::new);
+        int[] cumulative = new int[operations.length];
+        int totalWeight = 0;
+        for (int i = 0; i < operations.length; i++) {
+            totalWeight += config.mix().get(operations[i]);
+            cumulative[i] = totalWeight;
+        }
+
+        String startedAt = Instant.now().toString();
+        long measureFrom = System.nanoTime() + config.warmup().toNanos();
+        long measureTo = measureFrom + config.duration().toNanos();
+        List<Future<Worker>> workers = new ArrayList<>();
+        for (int i = 0; i < config.threads(); i++) {
+            Worker worker = new Worker(new Random(config.seed() + i));
+            int weight = totalWeight;
+            workers.add(executor.submit(() -> {
+                while (true) {
+                    long begin = System.nanoTime();
+                    if (begin >= measureTo) {
+                        return worker;
+                    }
+                    int pick = worker.random.nextInt(weight);
+                    int index = 0;
+                    while (cumulative[index] <= pick) {
+                        index++;
+                    }
+                    int status;
+                    try {
+                        status = client.execute(operations[index], worker.random);
+                    } catch (IOException e) {
+                        status = -1;
+                    }
+                    if (begin >= measureFrom) {
+                        worker.record(operations[index], status, System.nanoTime() - begin);
+                    }
+                }
+            }));
+        }
+
+        Worker total = new Worker(null);
+        for (Future<Worker> worker : workers) {
+            total.add(worker.get());
+        }
+        double seconds = config.duration().toNanos() / 1e9;
+        Map<String, LoadReport.Summary> summaries = new LinkedHashMap<>();
+        LatencyHistogram overall = new LatencyHistogram();
+        long rejected = 0;
+        long errors = 0;
+        for (Operation operation : operations) {
+            summaries.put(operation.key(), total.summary(operation, seconds));
+            overall.add(total.latencies.get(operation));
+            rejected += total.rejected.getOrDefault(operation, 0L);
+            errors += total.errors.getOrDefault(operation, 0L);
+        }
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        config.mix().forEach((operation, weight) -> mix.put(operation.key(), weight));
+        return new LoadReport(startedAt, System.getProperty("java.version"),
+                Runtime.getRuntime().availableProcessors(),
+                new LoadReport.Config(target, config.users(), config.films(), config.friends(), config.likes(),
+                        config.threads(), config.warmup().toMillis() / 1e3, seconds, config.seed(), mix),
+                summary("*", overall, seconds, rejected, errors), summaries);
+    }
+
+    private static void awaitAll(List<Future<?>> pending) throws Exception {
+        for (Future<?> future : pending) {
+            future.get();
+        }
+        pending.clear();
+    }
+
+    private static void write(LoadReport report, Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(path.toFile(), report);
+    }
+
+    private static void print(LoadReport report) {
+        System.out.printf("%-15s %9s %9s %8s %7s %9s %9s %9s %9s%n",
+                "операция", "запросов", "в сек", "4xx", "ошибок", "p50 мс", "p99 мс", "p999 мс", "max мс");
+        Map<String, LoadReport.Summary> rows = new LinkedHashMap<>(report.operations());
+        rows.put("всего", report.total());
+        rows.forEach((name, summary) -> System.out.printf("%-15s %9d %9.1f %8d %7d %9.3f %9.3f %9.3f %9.3f%n",
+                name, summary.requests(), summary.throughput(), summary.rejected(), summary.errors(),
+                summary.latencyMs().p50(), summary.latencyMs().p99(), summary.latencyMs().p999(),
+                summary.latencyMs().max()));
+    }
+
+    private static LoadReport.Summary summary(String endpoint, LatencyHistogram histogram, double seconds,
+                                              long rejected, long errors) {
+        return new LoadReport.Summary(endpoint, histogram.count(), histogram.count() / seconds, rejected, errors,
+                new LoadReport.Latency(millis(histogram.meanNanos()), millis(histogram.percentileNanos(50)),
+                        millis(histogram.percentileNanos(90)), millis(histogram.percentileNanos(99)),
+                        millis(histogram.percentileNanos(99.9)), millis(histogram.maxNanos())));
+    }
+
+    private static double millis(double nanos) {
+        return Math.round(nanos / 1e3) / 1e3;
+    }
+
+    /**
+     * Замеры одного клиента: свои гистограммы, без синхронизации на каждом запросе.
+     */
+    private static final class Worker {
+        private final Random random;
+
+        private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+
+        private final Map<Operation, Long> rejected = new EnumMap<>(Operation.class);
+
+        private final Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+
+        Worker(Random random) {
+            this.random = random;
+            for (Operation operation : Operation.values()) {
+                latencies.put(operation, new LatencyHistogram());
+            }
+        }
+
+        void record(Operation operation, int status, long nanos) {
+            latencies.get(operation).record(nanos);
+            if (status >= 400 && status < 500) {
+                rejected.merge(operation, 1L, Long::sum);
+            } else if (status < 0 || status >= 500) {
+                errors.merge(operation, 1L, Long::sum);
+            }
+        }
+
+        void add(Worker other) {
+            other.latencies.forEach((operation, histogram) -> latencies.get(operation).add(histogram));
+            other.rejected.forEach((operation, count) -> rejected.merge(operation, count, Long::sum));
+            other.errors.forEach((operation, count) -> errors.merge(operation, count, Long::sum));
+        }
+
+        LoadReport.Summary summary(Operation operation, double seconds) {
+            return LoadRunner.summary(operation.endpoint(), latencies.get(operation), seconds,
+                    rejected.getOrDefault(operation, 0L), errors.getOrDefault(operation, 0L));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Операции смеси; имя — ключ в {@code --mix} и в отчёте.
+ */
+enum Operation {
+    CREATE_USER("createUser", "POST /users"),
+    ADD_FRIEND("addFriend", "PUT /users/{id}/friends/{friendId}"),
+    ADD_LIKE("addLike", "PUT /films/{id}/like/{userId}"),
+    POPULAR("popular", "GET /films/popular"),
+    COMMON_FRIENDS("commonFriends", "GET /users/{id}/friends/common/{otherId}");
+
+    private final String key;
+
+    private final String endpoint;
+
+    Operation(String key, String endpoint) {
+        this.key = key;
+        this.endpoint = endpoint;
+    }
+
+    String key() {
+        return key;
+    }
+
+    String endpoint() {
+        return endpoint;
+    }
+
+    static Operation byName(String name) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.key.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Неизвестная операция: " + name
+                        + ", допустимы: " + Arrays.stream(values()).map(Operation::key).toList()));
+    }
+}
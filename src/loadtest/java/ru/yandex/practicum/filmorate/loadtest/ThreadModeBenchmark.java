@@ -0,0 +1,243 @@
+package ru.yandex.practicum.filmorate.loadtest;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Пропускная способность и задержки под нагрузкой: пул платформенных потоков Tomcat против
+ * виртуальных потоков ({@code spring.threads.virtual.enabled}). Журнал пишется с fsync на каждую
+ * запись, поэтому лайки упираются в диск, а популярные фильмы — в процессор.
+ * В отличие от {@link LoadRunner}, сам поднимает приложение в обоих режимах:
+ * {@code mvn -Ploadtest test-compile exec:exec -Dloadtest.jvmArgs=-Djdk.tracePinnedThreads=short
+ * -Dloadtest.main=ru.yandex.practicum.filmorate.loadtest.ThreadModeBenchmark -Dloadtest.args="[клиенты] [секунды]"}.
+ */
+public class ThreadModeBenchmark {
+    private static final int USERS = 10_000;
+
+    private static final int FILMS = 1_000;
+
+    private static final int SEEDED_LIKES = 50;
+
+    private static final int BATCH_SIZE = 10;
+
+    private static final int WARMUP_SECONDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 15;
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        System.out.printf("Клиентов: %d, замер: %d с на сценарий%n", clients, seconds);
+        System.out.printf("%-12s %-36s %10s %10s %10s %8s%n",
+                "потоки", "сценарий", "запр/с", "p50, мс", "p99, мс", "ошибки");
+        for (boolean virtual : new boolean[]{false, true}) {
+            Path dir = Files.createTempDirectory("filmorate-threads");
+            try (ConfigurableApplicationContext context = start(virtual, dir)) {
+                seed(context);
+                String base = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+                for (Scenario scenario : scenarios(base)) {
+                    run(http, scenario, clients, WARMUP_SECONDS);
+                    Result result = run(http, scenario, clients, seconds);
+                    System.out.printf("%-12s %-36s %10.0f %10.2f %10.2f %8d%n",
+                            virtual ? "виртуальные" : "платформ.", scenario.name(),
+                            result.throughput(), result.p50(), result.p99(), result.errors());
+                }
+            } finally {
+                try (Stream<Path> files = Files.walk(dir)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+                }
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(boolean virtual, Path dir) {
+        // Аргументы командной строки, а не свойства по умолчанию: они перекрывают application.properties.
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtual,
+                        "--logging.level.root=WARN",
+                        "--logging.level.ru.yandex.practicum.filmorate=WARN",
+                        "--logging.level.org.zalando.logbook=OFF",
+                        "--filmorate.wal.enabled=true",
+                        "--filmorate.wal.dir=" + dir,
+                        "--filmorate.wal.fsync=always");
+    }
+
+    /**
+     * Заполняет хранилища параллельно: при fsync на каждую запись последовательное заполнение
+     * ждало бы диск на каждом пользователе.
+     */
+    private static void seed(ConfigurableApplicationContext context) throws InterruptedException {
+        UserStorage users = context.getBean(UserStorage.class);
+        FilmStorage films = context.getBean(FilmStorage.class);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < USERS; i++) {
+                int n = i;
+                executor.submit(() -> {
+                    User user = new User();
+                    user.setEmail("user" + n + "@mail.ru");
+                    user.setLogin("user" + n);
+                    user.setName("Пользователь " + n);
+                    user.setBirthday(LocalDate.of(1990, 1, 1));
+                    users.create(user);
+                });
+            }
+            for (int i = 0; i < FILMS; i++) {
+                int n = i;
+                executor.submit(() -> {
+                    Film film = new Film();
+                    film.setName("Фильм " + n);
+                    film.setDescription("Описание фильма " + n);
+                    film.setReleaseDate(LocalDate.of(2000, 1, 1));
+                    film.setDuration(100);
+                    films.create(film);
+                });
+            }
+        }
+        if (users.findAll().size() != USERS || films.findAll().size() != FILMS) {
+            throw new IllegalStateException("Хранилища заполнены не полностью");
+        }
+        // Лайки от последних пользователей: сценарии лайков берут пользователей с начала и середины.
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long filmId = 1; filmId <= FILMS; filmId++) {
+                List<LikeOperation> operations = new ArrayList<>(SEEDED_LIKES);
+                for (int i = 0; i < SEEDED_LIKES; i++) {
+                    LikeOperation operation = new LikeOperation();
+                    operation.setFilmId(filmId);
+                    operation.setUserId((long) USERS - (filmId + i) % (SEEDED_LIKES * 2));
+                    operations.add(operation);
+                }
+                executor.submit(() -> films.applyLikes(operations));
+            }
+        }
+    }
+
+    /**
+     * Номер запроса однозначно задаёт пару фильм–пользователь, поэтому лайки не повторяются
+     * и ответы не превращаются в ошибки валидации.
+     */
+    private static List<Scenario> scenarios(String base) {
+        AtomicLong likes = new AtomicLong();
+        AtomicLong batches = new AtomicLong();
+        // Популярные первыми: размер ответа растёт с числом лайков, а сценарии лайков их добавляют
+        // с разной скоростью в разных режимах.
+        return List.of(
+                new Scenario("GET /films/popular?count=10", () ->
+                        HttpRequest.newBuilder(URI.create(base + "/films/popular?count=10")).GET().build()),
+                new Scenario("PUT /films/{id}/like/{userId}", () -> {
+                    long n = likes.getAndIncrement();
+                    return HttpRequest.newBuilder(URI.create(base + "/films/" + filmId(n) + "/like/" + userId(n)))
+                            .PUT(HttpRequest.BodyPublishers.noBody())
+                            .build();
+                }),
+                new Scenario("POST /films/likes/batch (по " + BATCH_SIZE + ")", () -> {
+                    long first = USERS * (long) FILMS / 2 + batches.getAndIncrement() * BATCH_SIZE;
+                    StringBuilder body = new StringBuilder("[");
+                    for (long n = first; n < first + BATCH_SIZE; n++) {
+                        body.append(n == first ? "" : ",")
+                                .append("{\"filmId\":").append(filmId(n))
+                                .append(",\"userId\":").append(userId(n)).append('}');
+                    }
+                    return HttpRequest.newBuilder(URI.create(base + "/films/likes/batch"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(body.append(']').toString()))
+                            .build();
+                }));
+    }
+
+    private static long filmId(long n) {
+        return 1 + n % FILMS;
+    }
+
+    private static long userId(long n) {
+        return 1 + (n / FILMS) % USERS;
+    }
+
+    private static Result run(HttpClient http, Scenario scenario, int clients, int seconds) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicLong errors = new AtomicLong();
+        List<Future<long[]>> perClient = new ArrayList<>(clients);
+        // Клиенты на платформенных потоках: виртуальные делили бы планировщик с сервером
+        // и искажали сравнение режимов.
+        try (ExecutorService executor = Executors.newFixedThreadPool(clients)) {
+            for (int c = 0; c < clients; c++) {
+                perClient.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = scenario.requests().get();
+                        long started = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 300) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - started;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+        }
+
+        long[] all = new long[0];
+        for (Future<long[]> future : perClient) {
+            long[] latencies = future.get();
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+        }
+        Arrays.sort(all);
+        return new Result((double) all.length / seconds, percentile(all, 0.50), percentile(all, 0.99), errors.get());
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    private record Scenario(String name, Supplier<HttpRequest> requests) {
+    }
+
+    private record Result(double throughput, double p50, double p99, long errors) {
+    }
+}
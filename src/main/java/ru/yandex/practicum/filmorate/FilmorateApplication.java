@@ -2,8 +2,13 @@ package ru.yandex.practicum.filmorate;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 
-@SpringBootApplication
+/**
+ * H2 всегда на classpath, но источник данных нужен только с filmorate.storage=db,
+ * поэтому его создаёт {@code DbStorageConfig}, а не автоконфигурация.
+ */
+@SpringBootApplication(exclude = DataSourceAutoConfiguration.class)
 public class FilmorateApplication {
     public static void main(String[] args) {
         SpringApplication.run(FilmorateApplication.class, args);
@@ -2,33 +2,69 @@ package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.constraints.Min;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchAction;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.util.Collection;
+import java.util.List;
 
 @RestController
 @RequestMapping("/films")
 public class FilmController {
 
     private final FilmService filmService;
+    private final NdjsonResponseWriter ndjsonWriter;
 
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, NdjsonResponseWriter ndjsonWriter) {
         this.filmService = filmService;
+        this.ndjsonWriter = ndjsonWriter;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ndjsonWriter.<Film>stream(filmService::forEach);
     }
 
     @GetMapping
-    public ResponseEntity<Collection<Film>> findAll() {
-        Collection<Film> films = filmService.findAll();
+    public ResponseEntity<Collection<Film>> findAll(@RequestParam(required = false) Long after,
+                                                    @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(filmService.findAll());
+        }
+        Collection<Film> films = filmService.findPage(after, limit);
         return ResponseEntity.ok(films);
     }
 
+    /**
+     * При совпадении {@code If-None-Match} с версией фильма отвечает 304, не читая фильм.
+     */
     @GetMapping("/{filmId}")
-    public ResponseEntity<Film> findById(@PathVariable long filmId) {
+    public ResponseEntity<Film> findById(@PathVariable long filmId, WebRequest request) {
+        String version = filmService.getFilmVersion(filmId);
+        if (request.checkNotModified(version)) {
+            return null;
+        }
         Film findId = filmService.findById(filmId);
-        return ResponseEntity.ok(findId);
+        return ResponseEntity.ok().eTag(version).body(findId);
+    }
+
+    @GetMapping("/by-name")
+    public ResponseEntity<Film> findByName(@RequestParam String name) {
+        Film film = filmService.findByName(name);
+        return ResponseEntity.ok(film);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<Film>> search(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(filmService.search(q, limit));
     }
 
     @PostMapping
@@ -45,21 +81,48 @@ public class FilmController {
     }
 
     @PutMapping("/{id}/like/{userId}")
-    public ResponseEntity<Void> addLike(@PathVariable Long id, @PathVariable Long userId) {
+    public ResponseEntity<Void> addLike(@PathVariable Long id, @PathVariable Long userId,
+                                        @RequestParam(defaultValue = "false") boolean async) {
+        if (async) {
+            return filmService.enqueueLike(id, userId, BatchAction.ADD)
+                    ? ResponseEntity.accepted().build()
+                    : ResponseEntity.ok().build();
+        }
         filmService.addLike(id, userId);
         return ResponseEntity.ok().build();
     }
 
     @DeleteMapping("/{id}/like/{userId}")
-    public ResponseEntity<Void> removeLike(@PathVariable Long id, @PathVariable Long userId) {
+    public ResponseEntity<Void> removeLike(@PathVariable Long id, @PathVariable Long userId,
+                                           @RequestParam(defaultValue = "false") boolean async) {
+        if (async) {
+            return filmService.enqueueLike(id, userId, BatchAction.REMOVE)
+                    ? ResponseEntity.accepted().build()
+                    : ResponseEntity.ok().build();
+        }
         filmService.removeLike(id, userId);
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/likes/batch")
+    public ResponseEntity<List<BatchItemResult>> applyLikes(@RequestBody List<LikeOperation> operations) {
+        return ResponseEntity.ok(filmService.applyLikes(operations));
+    }
+
     @GetMapping("/popular")
     public ResponseEntity<Collection<Film>> getPopularFilms(
-            @RequestParam(defaultValue = "10") @Min(1) int count) {
+            @RequestParam(defaultValue = "10") @Min(1) int count, WebRequest request) {
+        String version = filmService.getPopularFilmsVersion(count);
+        if (request.checkNotModified(version)) {
+            return null;
+        }
         Collection<Film> popularFilms = filmService.getPopularFilms(count);
-        return ResponseEntity.ok(popularFilms);
+        return ResponseEntity.ok().eTag(version).body(popularFilms);
+    }
+
+    @GetMapping("/trending")
+    public ResponseEntity<List<Film>> getTrendingFilms(@RequestParam(defaultValue = "24h") String window,
+                                                       @RequestParam(defaultValue = "10") int count) {
+        return ResponseEntity.ok(filmService.getTrendingFilms(window, count));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Отдаёт коллекции в формате NDJSON: по одному JSON-объекту на строку, прямо из обхода хранилища
+ * в выходной поток ответа. Полный список в памяти не собирается, поэтому расход памяти
+ * не зависит от размера выгрузки.
+ */
+@Component
+public class NdjsonResponseWriter {
+    private final ObjectWriter writer;
+
+    public NdjsonResponseWriter(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writer().withRootValueSeparator("");
+    }
+
+    public <T> ResponseEntity<StreamingResponseBody> stream(Consumer<Consumer<? super T>> source) {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = writer.createGenerator(outputStream)) {
+                source.accept(item -> write(generator, item));
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private void write(JsonGenerator generator, Object item) {
+        try {
+            writer.writeValue(generator, item);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
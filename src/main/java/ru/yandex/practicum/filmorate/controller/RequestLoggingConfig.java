@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.Strategy;
+
+import java.time.Duration;
+
+/**
+ * Выборочное журналирование запросов Logbook (filmorate.logging.sampling.enabled=true,
+ * включено в профиле {@code prod}). Без него Logbook пишет каждый запрос и ответ.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "filmorate.logging.sampling.enabled", havingValue = "true")
+public class RequestLoggingConfig {
+
+    @Bean
+    public Strategy sampledLogStrategy(
+            @Value("${filmorate.logging.sampling.rate:0.01}") double rate,
+            @Value("${filmorate.logging.sampling.min-status:400}") int minStatus,
+            @Value("${filmorate.logging.sampling.slow-threshold-ms:500}") long slowThresholdMs) {
+        return new SampledLogStrategy(rate, minStatus, Duration.ofMillis(slowThresholdMs));
+    }
+}
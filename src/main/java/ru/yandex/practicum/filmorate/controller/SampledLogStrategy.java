@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+import org.zalando.logbook.Strategy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Пишет запрос вместе с ответом, и только если ответ — ошибка, запрос выполнялся дольше порога
+ * или попал в случайную выборку. Остальные запросы не форматируются и не попадают в журнал.
+ * Решение принимается после ответа, поэтому запрос отдельно не пишется.
+ */
+class SampledLogStrategy implements Strategy {
+    private final double rate;
+
+    private final int minStatus;
+
+    private final Duration slowThreshold;
+
+    SampledLogStrategy(double rate, int minStatus, Duration slowThreshold) {
+        this.rate = rate;
+        this.minStatus = minStatus;
+        this.slowThreshold = slowThreshold;
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, HttpRequest request, Sink sink) {
+        // Запрос пишется вместе с ответом.
+    }
+
+    @Override
+    public void write(Correlation correlation, HttpRequest request, HttpResponse response, Sink sink)
+            throws IOException {
+        if (shouldLog(response.getStatus(), correlation.getDuration())) {
+            sink.writeBoth(correlation, request, response);
+        }
+    }
+
+    boolean shouldLog(int status, Duration duration) {
+        return status >= minStatus
+                || duration.compareTo(slowThreshold) >= 0
+                || ThreadLocalRandom.current().nextDouble() < rate;
+    }
+}
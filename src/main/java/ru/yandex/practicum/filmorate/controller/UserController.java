@@ -1,26 +1,48 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendOperation;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.Collection;
+import java.util.List;
 
 @RestController
 @RequestMapping("/users")
 public class UserController {
 
     private final UserService userService;
+    private final FilmService filmService;
+    private final NdjsonResponseWriter ndjsonWriter;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, FilmService filmService, NdjsonResponseWriter ndjsonWriter) {
         this.userService = userService;
+        this.filmService = filmService;
+        this.ndjsonWriter = ndjsonWriter;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ndjsonWriter.<User>stream(userService::forEach);
     }
 
     @GetMapping
-    public ResponseEntity<Collection<User>> getAllUsers() {
-        Collection<User> users = userService.getAllUsers();
+    public ResponseEntity<Collection<User>> getAllUsers(@RequestParam(required = false) Long after,
+                                                        @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(userService.getAllUsers());
+        }
+        Collection<User> users = userService.getUsersPage(after, limit);
         return ResponseEntity.ok(users);
     }
 
@@ -38,9 +60,13 @@ public class UserController {
     }
 
     @GetMapping("/{userId}")
-    public ResponseEntity<User> findById(@PathVariable long userId) {
+    public ResponseEntity<User> findById(@PathVariable long userId, WebRequest request) {
+        String version = userService.getUserVersion(userId);
+        if (request.checkNotModified(version)) {
+            return null;
+        }
         User user = userService.findById(userId);
-        return ResponseEntity.ok(user);
+        return ResponseEntity.ok().eTag(version).body(user);
     }
 
     @PutMapping("/{id}/friends/{friendId}")
@@ -55,10 +81,28 @@ public class UserController {
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/friends/batch")
+    public ResponseEntity<List<BatchItemResult>> applyFriendships(@RequestBody List<FriendOperation> operations) {
+        return ResponseEntity.ok(userService.applyFriendships(operations));
+    }
+
+    /**
+     * Версия покрывает весь список, поэтому подходит и для страниц: ETag у каждого URL свой.
+     */
     @GetMapping("/{id}/friends")
-    public ResponseEntity<Collection<User>> getFriends(@PathVariable Long id) {
-        Collection<User> friends = userService.getFriends(id);
-        return ResponseEntity.ok(friends);
+    public ResponseEntity<Collection<User>> getFriends(@PathVariable Long id,
+                                                       @RequestParam(required = false) Long after,
+                                                       @RequestParam(required = false) Integer limit,
+                                                       WebRequest request) {
+        String version = userService.getFriendsVersion(id);
+        if (request.checkNotModified(version)) {
+            return null;
+        }
+        if (after == null && limit == null) {
+            return ResponseEntity.ok().eTag(version).body(userService.getFriends(id));
+        }
+        Collection<User> friends = userService.getFriendsPage(id, after, limit);
+        return ResponseEntity.ok().eTag(version).body(friends);
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
@@ -66,4 +110,22 @@ public class UserController {
         Collection<User> commonFriends = userService.getCommonFriends(id, otherId);
         return ResponseEntity.ok(commonFriends);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/{id}/friends/common/{otherId}/count")
+    public ResponseEntity<Integer> getCommonFriendsCount(@PathVariable Long id, @PathVariable Long otherId) {
+        int count = userService.getCommonFriendsCount(id, otherId);
+        return ResponseEntity.ok(count);
+    }
+
+    @GetMapping("/{id}/friends/suggestions")
+    public ResponseEntity<List<FriendSuggestion>> getFriendSuggestions(@PathVariable Long id,
+                                                                       @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(userService.getFriendSuggestions(id, limit));
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public ResponseEntity<List<Film>> getRecommendations(@PathVariable Long id,
+                                                         @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(filmService.getRecommendations(id, limit));
+    }
+}
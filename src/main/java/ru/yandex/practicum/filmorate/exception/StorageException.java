@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.exception;
+
+public class StorageException extends RuntimeException {
+    public StorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.ModelAndView;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+/**
+ * Счётчик {@code filmorate.errors} для {@link NotFoundException} и {@link ValidationException}
+ * по эндпоинтам. Эндпоинт — метод и шаблон пути ({@code /films/{id}/like/{userId}}), а не URL,
+ * чтобы число счётчиков не росло с числом id. Ошибку не обрабатывает: стоит первым, считает
+ * и передаёт дальше, ответ по-прежнему формирует {@code ErrorHandler}.
+ */
+class ErrorCounters implements HandlerExceptionResolver, Ordered {
+    private final MeterRegistry registry;
+
+    ErrorCounters(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public ModelAndView resolveException(HttpServletRequest request, HttpServletResponse response,
+                                         Object handler, Exception ex) {
+        if (ex instanceof NotFoundException || ex instanceof ValidationException) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            registry.counter("filmorate.errors",
+                    "exception", ex.getClass().getSimpleName(),
+                    "method", request.getMethod(),
+                    "uri", pattern == null ? "UNKNOWN" : pattern.toString()).increment();
+        }
+        return null;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
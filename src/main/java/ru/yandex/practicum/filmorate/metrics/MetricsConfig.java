@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+/**
+ * Метрики приложения поверх Micrometer; actuator отдаёт их в формате Prometheus
+ * на {@code /actuator/prometheus}.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfig {
+
+    /**
+     * Статический, чтобы постпроцессор создавался до остальных бинов и не тянул за собой
+     * реестр раньше времени.
+     */
+    @Bean
+    static StorageTimers storageTimers(ObjectProvider<MeterRegistry> registry) {
+        return new StorageTimers(registry);
+    }
+
+    @Bean
+    MeterBinder storageGauges(FilmStorage filmStorage, UserStorage userStorage) {
+        return new StorageGauges(filmStorage, userStorage);
+    }
+
+    @Bean
+    ErrorCounters errorCounters(MeterRegistry registry) {
+        return new ErrorCounters(registry);
+    }
+}
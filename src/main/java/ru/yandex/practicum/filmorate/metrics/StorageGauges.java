@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.StorageStats;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Размеры хранилищ. Сводку хранилище считает обходом, поэтому она кешируется на секунду:
+ * три датчика одного хранилища за один опрос обходятся одним обходом.
+ */
+class StorageGauges implements MeterBinder {
+    private final CachedStats films;
+
+    private final CachedStats users;
+
+    StorageGauges(FilmStorage filmStorage, UserStorage userStorage) {
+        this.films = new CachedStats(filmStorage::stats);
+        this.users = new CachedStats(userStorage::stats);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.films", films, stats -> stats.get().entities())
+                .description("Число фильмов")
+                .register(registry);
+        Gauge.builder("filmorate.likes", films, stats -> stats.get().links())
+                .description("Число лайков")
+                .register(registry);
+        Gauge.builder("filmorate.likes.largest", films, stats -> stats.get().largestLinkSet())
+                .description("Наибольшее число лайков у одного фильма")
+                .register(registry);
+        Gauge.builder("filmorate.users", users, stats -> stats.get().entities())
+                .description("Число пользователей")
+                .register(registry);
+        Gauge.builder("filmorate.friendships", users, stats -> stats.get().links())
+                .description("Число дружб")
+                .register(registry);
+        Gauge.builder("filmorate.friends.largest", users, stats -> stats.get().largestLinkSet())
+                .description("Наибольшее число друзей у одного пользователя")
+                .register(registry);
+    }
+
+    private static final class CachedStats {
+        private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+        private final Supplier<StorageStats> source;
+
+        private volatile Cached cached;
+
+        private CachedStats(Supplier<StorageStats> source) {
+            this.source = source;
+        }
+
+        StorageStats get() {
+            long now = System.nanoTime();
+            Cached current = cached;
+            if (current == null || now - current.takenAt() > TTL_NANOS) {
+                current = new Cached(source.get(), now);
+                cached = current;
+            }
+            return current.stats();
+        }
+    }
+
+    private record Cached(StorageStats stats, long takenAt) {
+    }
+}
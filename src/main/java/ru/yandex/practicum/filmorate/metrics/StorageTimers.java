@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подменяет хранилища фильмов и пользователей обёртками {@link TimedFilmStorage} и {@link TimedUserStorage}.
+ * Методы жизненного цикла ({@code @PreDestroy}) Spring по-прежнему вызывает у исходного бина.
+ */
+class StorageTimers implements BeanPostProcessor {
+    private final ObjectProvider<MeterRegistry> registry;
+
+    StorageTimers(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof FilmStorage films) {
+            return new TimedFilmStorage(films, registry.getObject());
+        }
+        if (bean instanceof UserStorage users) {
+            return new TimedUserStorage(users, registry.getObject());
+        }
+        return bean;
+    }
+
+    /**
+     * Таймер {@code filmorate.storage} с гистограммой для перцентилей. У перегруженных методов
+     * ({@code findAll()} и постраничный {@code findAll(Long,int)}) в теге есть и типы параметров:
+     * стоят они по-разному.
+     */
+    static Timer timer(MeterRegistry registry, String storage, String method) {
+        return Timer.builder("filmorate.storage")
+                .description("Время операций хранилища")
+                .tag("storage", storage)
+                .tag("method", method)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    static void stop(Timer timer, long started) {
+        timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+}
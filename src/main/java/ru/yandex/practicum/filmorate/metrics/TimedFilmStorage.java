@@ -0,0 +1,262 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.StorageStats;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static ru.yandex.practicum.filmorate.metrics.StorageTimers.stop;
+import static ru.yandex.practicum.filmorate.metrics.StorageTimers.timer;
+
+/**
+ * Хранилище фильмов с таймером на каждом методе. Таймеры регистрируются при старте, поэтому
+ * на вызове остаются два {@code nanoTime} и запись в готовый таймер — без рефлексии и без
+ * создания объектов. Новый метод {@link FilmStorage} не скомпилируется, пока его не добавят сюда.
+ */
+class TimedFilmStorage implements FilmStorage {
+    private static final String STORAGE = "films";
+
+    private final FilmStorage delegate;
+
+    private final Timer findAll;
+    private final Timer findPage;
+    private final Timer forEach;
+    private final Timer findById;
+    private final Timer findByName;
+    private final Timer create;
+    private final Timer update;
+    private final Timer delete;
+    private final Timer addLike;
+    private final Timer removeLike;
+    private final Timer applyLikes;
+    private final Timer getPopularFilms;
+    private final Timer search;
+    private final Timer getLikesCount;
+    private final Timer getRecommendations;
+    private final Timer getLikedFilmIds;
+    private final Timer getVersion;
+    private final Timer getStorageVersion;
+    private final Timer stats;
+
+    TimedFilmStorage(FilmStorage delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.findAll = timer(registry, STORAGE, "findAll()");
+        this.findPage = timer(registry, STORAGE, "findAll(Long,int)");
+        this.forEach = timer(registry, STORAGE, "forEach");
+        this.findById = timer(registry, STORAGE, "findById");
+        this.findByName = timer(registry, STORAGE, "findByName");
+        this.create = timer(registry, STORAGE, "create");
+        this.update = timer(registry, STORAGE, "update");
+        this.delete = timer(registry, STORAGE, "delete");
+        this.addLike = timer(registry, STORAGE, "addLike");
+        this.removeLike = timer(registry, STORAGE, "removeLike");
+        this.applyLikes = timer(registry, STORAGE, "applyLikes");
+        this.getPopularFilms = timer(registry, STORAGE, "getPopularFilms");
+        this.search = timer(registry, STORAGE, "search");
+        this.getLikesCount = timer(registry, STORAGE, "getLikesCount");
+        this.getRecommendations = timer(registry, STORAGE, "getRecommendations");
+        this.getLikedFilmIds = timer(registry, STORAGE, "getLikedFilmIds");
+        this.getVersion = timer(registry, STORAGE, "getVersion(Long)");
+        this.getStorageVersion = timer(registry, STORAGE, "getVersion()");
+        this.stats = timer(registry, STORAGE, "stats");
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        long started = System.nanoTime();
+        try {
+            return delegate.findAll();
+        } finally {
+            stop(findAll, started);
+        }
+    }
+
+    @Override
+    public List<Film> findAll(Long afterId, int limit) {
+        long started = System.nanoTime();
+        try {
+            return delegate.findAll(afterId, limit);
+        } finally {
+            stop(findPage, started);
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super Film> action) {
+        long started = System.nanoTime();
+        try {
+            delegate.forEach(action);
+        } finally {
+            stop(forEach, started);
+        }
+    }
+
+    @Override
+    public Optional<Film> findById(Long id) {
+        long started = System.nanoTime();
+        try {
+            return delegate.findById(id);
+        } finally {
+            stop(findById, started);
+        }
+    }
+
+    @Override
+    public Optional<Film> findByName(String name) {
+        long started = System.nanoTime();
+        try {
+            return delegate.findByName(name);
+        } finally {
+            stop(findByName, started);
+        }
+    }
+
+    @Override
+    public Film create(Film film) {
+        long started = System.nanoTime();
+        try {
+            return delegate.create(film);
+        } finally {
+            stop(create, started);
+        }
+    }
+
+    @Override
+    public Film update(Film film) {
+        long started = System.nanoTime();
+        try {
+            return delegate.update(film);
+        } finally {
+            stop(update, started);
+        }
+    }
+
+    @Override
+    public void delete(Long id) {
+        long started = System.nanoTime();
+        try {
+            delegate.delete(id);
+        } finally {
+            stop(delete, started);
+        }
+    }
+
+    @Override
+    public void addLike(Long filmId, Long userId) {
+        long started = System.nanoTime();
+        try {
+            delegate.addLike(filmId, userId);
+        } finally {
+            stop(addLike, started);
+        }
+    }
+
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        long started = System.nanoTime();
+        try {
+            return delegate.removeLike(filmId, userId);
+        } finally {
+            stop(removeLike, started);
+        }
+    }
+
+    @Override
+    public List<BatchItemResult> applyLikes(List<LikeOperation> operations) {
+        long started = System.nanoTime();
+        try {
+            return delegate.applyLikes(operations);
+        } finally {
+            stop(applyLikes, started);
+        }
+    }
+
+    @Override
+    public Collection<Film> getPopularFilms(int count) {
+        long started = System.nanoTime();
+        try {
+            return delegate.getPopularFilms(count);
+        } finally {
+            stop(getPopularFilms, started);
+        }
+    }
+
+    @Override
+    public List<Film> search(String query, int limit) {
+        long started = System.nanoTime();
+        try {
+            return delegate.search(query, limit);
+        } finally {
+            stop(search, started);
+        }
+    }
+
+    @Override
+    public int getLikesCount(Long filmId) {
+        long started = System.nanoTime();
+        try {
+            return delegate.getLikesCount(filmId);
+        } finally {
+            stop(getLikesCount, started);
+        }
+    }
+
+    @Override
+    public List<Film> getRecommendations(Long userId, int limit) {
+        long started = System.nanoTime();
+        try {
+            return delegate.getRecommendations(userId, limit);
+        } finally {
+            stop(getRecommendations, started);
+        }
+    }
+
+    @Override
+    public Set<Long> getLikedFilmIds(Long userId) {
+        long started = System.nanoTime();
+        try {
+            return delegate.getLikedFilmIds(userId);
+        } finally {
+            stop(getLikedFilmIds, started);
+        }
+    }
+
+    @Override
+    public Optional<String> getVersion(Long id) {
+        long started = System.nanoTime();
+        try {
+            return delegate.getVersion(id);
+        } finally {
+            stop(getVersion, started);
+        }
+    }
+
+    @Override
+    public String getVersion() {
+        long started = System.nanoTime();
+        try {
+            return delegate.getVersion();
+        } finally {
+            stop(getStorageVersion, started);
+        }
+    }
+
+    @Override
+    public StorageStats stats() {
+        long started = System.nanoTime();
+        try {
+            return delegate.stats();
+        } finally {
+            stop(stats, started);
+        }
+    }
+}
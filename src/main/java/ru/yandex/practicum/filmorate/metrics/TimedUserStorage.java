@@ -0,0 +1,285 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.FriendOperation;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.StorageStats;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static ru.yandex.practicum.filmorate.metrics.StorageTimers.stop;
+import static ru.yandex.practicum.filmorate.metrics.StorageTimers.timer;
+
+/**
+ * Хранилище пользователей с таймером на каждом методе, устроено как {@link TimedFilmStorage}.
+ */
+class TimedUserStorage implements UserStorage {
+    private static final String STORAGE = "users";
+
+    private final UserStorage delegate;
+
+    private final Timer findAll;
+    private final Timer findPage;
+    private final Timer forEach;
+    private final Timer findById;
+    private final Timer findByEmail;
+    private final Timer findExistingIds;
+    private final Timer create;
+    private final Timer update;
+    private final Timer delete;
+    private final Timer deleteAll;
+    private final Timer addFriend;
+    private final Timer removeFriend;
+    private final Timer applyFriendships;
+    private final Timer getFriends;
+    private final Timer getFriendsPage;
+    private final Timer getCommonFriends;
+    private final Timer getCommonFriendsCount;
+    private final Timer getFriendSuggestions;
+    private final Timer getVersion;
+    private final Timer getFriendsVersion;
+    private final Timer stats;
+
+    TimedUserStorage(UserStorage delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.findAll = timer(registry, STORAGE, "findAll()");
+        this.findPage = timer(registry, STORAGE, "findAll(Long,int)");
+        this.forEach = timer(registry, STORAGE, "forEach");
+        this.findById = timer(registry, STORAGE, "findById");
+        this.findByEmail = timer(registry, STORAGE, "findByEmail");
+        this.findExistingIds = timer(registry, STORAGE, "findExistingIds");
+        this.create = timer(registry, STORAGE, "create");
+        this.update = timer(registry, STORAGE, "update");
+        this.delete = timer(registry, STORAGE, "delete");
+        this.deleteAll = timer(registry, STORAGE, "deleteAll");
+        this.addFriend = timer(registry, STORAGE, "addFriend");
+        this.removeFriend = timer(registry, STORAGE, "removeFriend");
+        this.applyFriendships = timer(registry, STORAGE, "applyFriendships");
+        this.getFriends = timer(registry, STORAGE, "getFriends(Long)");
+        this.getFriendsPage = timer(registry, STORAGE, "getFriends(Long,Long,int)");
+        this.getCommonFriends = timer(registry, STORAGE, "getCommonFriends");
+        this.getCommonFriendsCount = timer(registry, STORAGE, "getCommonFriendsCount");
+        this.getFriendSuggestions = timer(registry, STORAGE, "getFriendSuggestions");
+        this.getVersion = timer(registry, STORAGE, "getVersion");
+        this.getFriendsVersion = timer(registry, STORAGE, "getFriendsVersion");
+        this.stats = timer(registry, STORAGE, "stats");
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        long started = System.nanoTime();
+        try {
+            return delegate.findAll();
+        } finally {
+            stop(findAll, started);
+        }
+    }
+
+    @Override
+    public List<User> findAll(Long afterId, int limit) {
+        long started = System.nanoTime();
+        try {
+            return delegate.findAll(afterId, limit);
+        } finally {
+            stop(findPage, started);
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super User> action) {
+        long started = System.nanoTime();
+        try {
+            delegate.forEach(action);
+        } finally {
+            stop(forEach, started);
+        }
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        long started = System.nanoTime();
+        try {
+            return delegate.findById(id);
+        } finally {
+            stop(findById, started);
+        }
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        long started = System.nanoTime();
+        try {
+            return delegate.findByEmail(email);
+        } finally {
+            stop(findByEmail, started);
+        }
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        long started = System.nanoTime();
+        try {
+            return delegate.findExistingIds(ids);
+        } finally {
+            stop(findExistingIds, started);
+        }
+    }
+
+    @Override
+    public User create(User user) {
+        long started = System.nanoTime();
+        try {
+            return delegate.create(user);
+        } finally {
+            stop(create, started);
+        }
+    }
+
+    @Override
+    public User update(User user) {
+        long started = System.nanoTime();
+        try {
+            return delegate.update(user);
+        } finally {
+            stop(update, started);
+        }
+    }
+
+    @Override
+    public void delete(Long id) {
+        long started = System.nanoTime();
+        try {
+            delegate.delete(id);
+        } finally {
+            stop(delete, started);
+        }
+    }
+
+    @Override
+    public int deleteAll(Collection<Long> ids) {
+        long started = System.nanoTime();
+        try {
+            return delegate.deleteAll(ids);
+        } finally {
+            stop(deleteAll, started);
+        }
+    }
+
+    @Override
+    public void addFriend(Long userId, Long friendId) {
+        long started = System.nanoTime();
+        try {
+            delegate.addFriend(userId, friendId);
+        } finally {
+            stop(addFriend, started);
+        }
+    }
+
+    @Override
+    public void removeFriend(Long userId, Long friendId) {
+        long started = System.nanoTime();
+        try {
+            delegate.removeFriend(userId, friendId);
+        } finally {
+            stop(removeFriend, started);
+        }
+    }
+
+    @Override
+    public List<BatchItemResult> applyFriendships(List<FriendOperation> operations) {
+        long started = System.nanoTime();
+        try {
+            return delegate.applyFriendships(operations);
+        } finally {
+            stop(applyFriendships, started);
+        }
+    }
+
+    @Override
+    public Set<Long> getFriends(Long userId) {
+        long started = System.nanoTime();
+        try {
+            return delegate.getFriends(userId);
+        } finally {
+            stop(getFriends, started);
+        }
+    }
+
+    @Override
+    public List<Long> getFriends(Long userId, Long afterId, int limit) {
+        long started = System.nanoTime();
+        try {
+            return delegate.getFriends(userId, afterId, limit);
+        } finally {
+            stop(getFriendsPage, started);
+        }
+    }
+
+    @Override
+    public Collection<User> getCommonFriends(Long userId, Long otherId) {
+        long started = System.nanoTime();
+        try {
+            return delegate.getCommonFriends(userId, otherId);
+        } finally {
+            stop(getCommonFriends, started);
+        }
+    }
+
+    @Override
+    public int getCommonFriendsCount(Long userId, Long otherId) {
+        long started = System.nanoTime();
+        try {
+            return delegate.getCommonFriendsCount(userId, otherId);
+        } finally {
+            stop(getCommonFriendsCount, started);
+        }
+    }
+
+    @Override
+    public List<FriendSuggestion> getFriendSuggestions(Long userId, int limit) {
+        long started = System.nanoTime();
+        try {
+            return delegate.getFriendSuggestions(userId, limit);
+        } finally {
+            stop(getFriendSuggestions, started);
+        }
+    }
+
+    @Override
+    public Optional<String> getVersion(Long id) {
+        long started = System.nanoTime();
+        try {
+            return delegate.getVersion(id);
+        } finally {
+            stop(getVersion, started);
+        }
+    }
+
+    @Override
+    public Optional<String> getFriendsVersion(Long id) {
+        long started = System.nanoTime();
+        try {
+            return delegate.getFriendsVersion(id);
+        } finally {
+            stop(getFriendsVersion, started);
+        }
+    }
+
+    @Override
+    public StorageStats stats() {
+        long started = System.nanoTime();
+        try {
+            return delegate.stats();
+        } finally {
+            stop(stats, started);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Результат одной операции пакета; {@code index} — её позиция в запросе.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+    public enum Status {
+        OK,
+        NOT_FOUND,
+        INVALID
+    }
+
+    int index;
+    Status status;
+    String error;
+
+    /**
+     * Изменила ли операция данные; клиенту не отдаётся. Снятие несуществующего лайка
+     * отвечает {@link Status#OK}, но ничего не меняет.
+     */
+    @JsonIgnore
+    boolean changed;
+
+    public static BatchItemResult ok(int index) {
+        return new BatchItemResult(index, Status.OK, null, true);
+    }
+
+    public static BatchItemResult unchanged(int index) {
+        return new BatchItemResult(index, Status.OK, null, false);
+    }
+
+    public static BatchItemResult notFound(int index, String error) {
+        return new BatchItemResult(index, Status.NOT_FOUND, error, false);
+    }
+
+    public static BatchItemResult invalid(int index, String error) {
+        return new BatchItemResult(index, Status.INVALID, error, false);
+    }
+
+    public BatchItemResult withIndex(int newIndex) {
+        return new BatchItemResult(newIndex, status, error, changed);
+    }
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class FriendOperation {
+    private Long userId;
+    private Long friendId;
+    private BatchAction action = BatchAction.ADD;
+}
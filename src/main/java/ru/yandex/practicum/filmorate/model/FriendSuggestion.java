@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Возможный знакомый: пользователь и число общих с ним друзей.
+ */
+@Getter
+@AllArgsConstructor
+public class FriendSuggestion {
+    private User user;
+    private int mutualFriends;
+}
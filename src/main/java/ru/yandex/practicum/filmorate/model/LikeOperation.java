@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class LikeOperation {
+    private Long filmId;
+    private Long userId;
+    private BatchAction action = BatchAction.ADD;
+}
@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Заранее посчитанные рекомендации с настройками {@code filmorate.recommendations.*}.
+ * Пользователь, запросивший рекомендации, считается активным {@code active-window-seconds};
+ * для активных пользователей фоновый поток раз в {@code refresh-seconds} пересчитывает
+ * {@code max-limit} лучших фильмов, так что запрос — это поиск в таблице. Первый запрос
+ * пользователя считается сразу. Фильмы, лайкнутые после пересчёта, отфильтровываются при выдаче
+ * по текущим лайкам пользователя из хранилища: лайки внутри сохранённых фильмов могут быть снимком.
+ * С {@code refresh-seconds=0} рекомендации считаются на каждый запрос.
+ */
+@Slf4j
+@Component
+public class FilmRecommendations {
+    private final FilmStorage filmStorage;
+
+    private final long activeWindowNanos;
+
+    private final int maxActiveUsers;
+
+    private final int maxLimit;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public FilmRecommendations(FilmStorage filmStorage,
+                               @Value("${filmorate.recommendations.refresh-seconds:60}") long refreshSeconds,
+                               @Value("${filmorate.recommendations.active-window-seconds:1800}") long activeWindowSeconds,
+                               @Value("${filmorate.recommendations.max-active-users:10000}") int maxActiveUsers,
+                               @Value("${filmorate.recommendations.max-limit:50}") int maxLimit) {
+        this.filmStorage = filmStorage;
+        this.activeWindowNanos = TimeUnit.SECONDS.toNanos(activeWindowSeconds);
+        this.maxActiveUsers = maxActiveUsers;
+        this.maxLimit = maxLimit;
+        if (refreshSeconds > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "recommendations-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    refresh();
+                } catch (RuntimeException e) {
+                    log.error("Не удалось пересчитать рекомендации", e);
+                }
+            }, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    public static FilmRecommendations disabled(FilmStorage filmStorage) {
+        return new FilmRecommendations(filmStorage, 0, 0, 0, 50);
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public List<Film> getRecommendations(Long userId, int limit) {
+        if (scheduler == null) {
+            return filmStorage.getRecommendations(userId, limit);
+        }
+        long now = System.nanoTime();
+        Entry entry = entries.get(userId);
+        if (entry == null) {
+            entry = new Entry(List.copyOf(filmStorage.getRecommendations(userId, maxLimit)), now);
+            if (entries.size() < maxActiveUsers) {
+                entries.put(userId, entry);
+            }
+        } else if (now - entry.lastRequested() > TimeUnit.SECONDS.toNanos(1)) {
+            // Отметка активности не чаще раза в секунду, чтобы горячие запросы не писали в таблицу.
+            entries.replace(userId, entry, new Entry(entry.films(), now));
+        }
+
+        List<Film> recommendations = new ArrayList<>(Math.min(limit, entry.films().size()));
+        Set<Long> liked = entry.films().isEmpty() ? Set.of() : filmStorage.getLikedFilmIds(userId);
+        for (Film film : entry.films()) {
+            if (recommendations.size() == limit) {
+                break;
+            }
+            if (!liked.contains(film.getId())) {
+                recommendations.add(film);
+            }
+        }
+        return recommendations;
+    }
+
+    /**
+     * Пересчёт для активных пользователей; неактивные выбрасываются. Каждый пересчёт сам
+     * распараллелен хранилищем, поэтому пользователи обходятся по одному.
+     */
+    public void refresh() {
+        long started = System.nanoTime();
+        int refreshed = 0;
+        for (Map.Entry<Long, Entry> cached : entries.entrySet()) {
+            Entry entry = cached.getValue();
+            if (started - entry.lastRequested() > activeWindowNanos) {
+                entries.remove(cached.getKey(), entry);
+                continue;
+            }
+            List<Film> films = List.copyOf(filmStorage.getRecommendations(cached.getKey(), maxLimit));
+            // Отметка активности могла обновиться за время пересчёта — берётся свежая.
+            entries.computeIfPresent(cached.getKey(), (userId, current) -> new Entry(films, current.lastRequested()));
+            refreshed++;
+        }
+        log.debug("Рекомендации пересчитаны для {} пользователей за {} мс", refreshed,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    private record Entry(List<Film> films, long lastRequested) {
+    }
+}
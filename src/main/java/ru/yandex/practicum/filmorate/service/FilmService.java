@@ -1,45 +1,78 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchAction;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Slf4j
 @Service
 public class FilmService {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final Pattern WINDOW = Pattern.compile("(\\d{1,6})([mhd])");
 
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
+    private final LikeIngestionQueue likeQueue;
+    private final PopularFilmsCache popularCache;
+    private final FilmRecommendations recommendations;
+    private final TrendingFilms trending;
 
-    @Autowired
-    public FilmService(FilmStorage filmStorage, UserStorage userStorage) {
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, LikeIngestionQueue likeQueue,
+                       PopularFilmsCache popularCache, FilmRecommendations recommendations, TrendingFilms trending) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
+        this.likeQueue = likeQueue;
+        this.popularCache = popularCache;
+        this.recommendations = recommendations;
+        this.trending = trending;
     }
 
     public Collection<Film> findAll() {
         return filmStorage.findAll();
     }
 
+    public void forEach(Consumer<? super Film> action) {
+        filmStorage.forEach(action);
+    }
+
+    public Collection<Film> findPage(Long afterId, Integer limit) {
+        return filmStorage.findAll(afterId, pageSize(limit));
+    }
+
     public Film create(Film film) {
         log.info("Создание фильма: {}", film.getName());
         validateFilm(film);
-        return filmStorage.create(film);
+        Film created = filmStorage.create(film);
+        popularCache.invalidateAll();
+        return created;
     }
 
     public Film update(Film film) {
         log.info("Обновление фильма с id: {}", film.getId());
         validateFilm(film);
-        return filmStorage.update(film);
+        Film updated = filmStorage.update(film);
+        popularCache.invalidateAll();
+        return updated;
     }
 
     public Film findById(Long id) {
@@ -48,24 +81,234 @@ public class FilmService {
                 .orElseThrow(() -> new NotFoundException("Фильм с id=" + id + " не найден"));
     }
 
+    /**
+     * Версия фильма для ETag. Запрашивается до самого фильма: так ETag может оказаться старше
+     * ответа, что приведёт лишь к лишнему 200, но не новее — иначе клиент получил бы устаревший 304.
+     */
+    public String getFilmVersion(Long id) {
+        return filmStorage.getVersion(id)
+                .orElseThrow(() -> new NotFoundException("Фильм с id=" + id + " не найден"));
+    }
+
+    public Film findByName(String name) {
+        log.info("Поиск фильма по названию: {}", name);
+        return filmStorage.findByName(name)
+                .orElseThrow(() -> new NotFoundException("Фильм с названием '" + name + "' не найден"));
+    }
+
     public void addLike(Long filmId, Long userId) {
         log.info("Добавление лайка фильму {} пользователем {}", filmId, userId);
         Film film = findById(filmId);
         User user = userStorage.findById(userId)
                 .orElseThrow(() -> new NotFoundException("Пользователь с id=" + userId + " не найден"));
-        filmStorage.addLike(filmId, userId);
+        if (likeQueue.isEnabled()) {
+            await(likeQueue.submit(likeOperation(filmId, userId, BatchAction.ADD)));
+        } else {
+            filmStorage.addLike(filmId, userId);
+        }
+        likeChanged(filmId, BatchAction.ADD);
     }
 
     public void removeLike(Long filmId, Long userId) {
         log.info("Удаление лайка у фильма {} пользователем {}", filmId, userId);
         userStorage.findById(userId)
                 .orElseThrow(() -> new NotFoundException("Пользователь с id=" + userId + " не найден"));
-        filmStorage.removeLike(filmId, userId);
+        boolean removed = likeQueue.isEnabled()
+                ? await(likeQueue.submit(likeOperation(filmId, userId, BatchAction.REMOVE))).isChanged()
+                : filmStorage.removeLike(filmId, userId);
+        if (removed) {
+            likeChanged(filmId, BatchAction.REMOVE);
+        }
+    }
+
+    /**
+     * Лайк без ожидания применения. С включённой очередью возвращает {@code true}, как только команда
+     * принята, а ошибки применения только пишутся в лог. Без очереди применяет лайк сразу
+     * и возвращает {@code false}.
+     */
+    public boolean enqueueLike(Long filmId, Long userId, BatchAction action) {
+        if (!likeQueue.isEnabled()) {
+            if (action == BatchAction.REMOVE) {
+                removeLike(filmId, userId);
+            } else {
+                addLike(filmId, userId);
+            }
+            return false;
+        }
+        log.info("Постановка в очередь {} лайка фильму {} от пользователя {}", action, filmId, userId);
+        if (action == BatchAction.ADD) {
+            findById(filmId);
+        }
+        userStorage.findById(userId)
+                .orElseThrow(() -> new NotFoundException("Пользователь с id=" + userId + " не найден"));
+        likeQueue.submit(likeOperation(filmId, userId, action)).whenComplete((result, error) -> {
+            if (error != null) {
+                log.warn("Лайк фильму {} от пользователя {} не применён", filmId, userId, error);
+            } else if (result.getStatus() != BatchItemResult.Status.OK) {
+                log.warn("Лайк фильму {} от пользователя {} не применён: {}", filmId, userId, result.getError());
+            } else if (result.isChanged()) {
+                likeChanged(filmId, action);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Пакет лайков: пользователи проверяются одним обращением к хранилищу на весь пакет,
+     * а ошибка в отдельной операции попадает в её результат, не прерывая остальные.
+     */
+    public List<BatchItemResult> applyLikes(List<LikeOperation> operations) {
+        log.info("Пакет операций с лайками: {}", operations.size());
+        if (operations.size() > MAX_BATCH_SIZE) {
+            throw new ValidationException("Пакет не может содержать больше " + MAX_BATCH_SIZE + " операций");
+        }
+        Set<Long> userIds = new HashSet<>();
+        for (LikeOperation operation : operations) {
+            if (operation != null && operation.getUserId() != null) {
+                userIds.add(operation.getUserId());
+            }
+        }
+        Set<Long> existingUsers = userStorage.findExistingIds(userIds);
+
+        BatchItemResult[] results = new BatchItemResult[operations.size()];
+        List<LikeOperation> accepted = new ArrayList<>(operations.size());
+        int[] acceptedIndexes = new int[operations.size()];
+        for (int i = 0; i < operations.size(); i++) {
+            LikeOperation operation = operations.get(i);
+            if (operation == null || operation.getFilmId() == null || operation.getUserId() == null
+                    || operation.getAction() == null) {
+                results[i] = BatchItemResult.invalid(i, "Операция должна содержать filmId, userId и action");
+            } else if (!existingUsers.contains(operation.getUserId())) {
+                results[i] = BatchItemResult.notFound(i, "Пользователь с id=" + operation.getUserId() + " не найден");
+            } else {
+                acceptedIndexes[accepted.size()] = i;
+                accepted.add(operation);
+            }
+        }
+
+        List<BatchItemResult> applied = filmStorage.applyLikes(accepted);
+        for (int i = 0; i < applied.size(); i++) {
+            results[acceptedIndexes[i]] = applied.get(i).withIndex(acceptedIndexes[i]);
+            if (applied.get(i).isChanged()) {
+                likeChanged(accepted.get(i).getFilmId(), accepted.get(i).getAction());
+            }
+        }
+        return Arrays.asList(results);
     }
 
     public Collection<Film> getPopularFilms(int count) {
         log.info("Получение {} популярных фильмов", count);
-        return filmStorage.getPopularFilms(count);
+        return popularCache.getPopularFilms(count);
+    }
+
+    public List<Film> search(String query, int limit) {
+        log.info("Поиск фильмов по запросу: {}", query);
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Поисковый запрос не может быть пустым");
+        }
+        if (limit <= 0 || limit > MAX_SEARCH_RESULTS) {
+            throw new ValidationException("Число результатов должно быть от 1 до " + MAX_SEARCH_RESULTS);
+        }
+        return filmStorage.search(query, limit);
+    }
+
+    /**
+     * С кешем — версия, прочитанная перед вычислением закешированного топа, чтобы ETag
+     * не опережал ответ, который ещё отдаётся из кеша.
+     */
+    public String getPopularFilmsVersion(int count) {
+        return popularCache.getVersion(count);
+    }
+
+    /**
+     * Фильмы, которые лайкали пользователи с похожими лайками.
+     */
+    public List<Film> getRecommendations(Long userId, int limit) {
+        log.info("Подбор {} рекомендаций фильмов для пользователя {}", limit, userId);
+        if (limit <= 0 || limit > recommendations.getMaxLimit()) {
+            throw new ValidationException("Число рекомендаций должно быть от 1 до " + recommendations.getMaxLimit());
+        }
+        userStorage.findById(userId)
+                .orElseThrow(() -> new NotFoundException("Пользователь с id=" + userId + " не найден"));
+        return recommendations.getRecommendations(userId, limit);
+    }
+
+    /**
+     * Фильмы с наибольшим числом лайков за окно вида {@code 90m}, {@code 24h} или {@code 7d}.
+     */
+    public List<Film> getTrendingFilms(String window, int count) {
+        log.info("Получение {} фильмов в тренде за {}", count, window);
+        Duration duration = parseWindow(window);
+        if (duration.isZero() || duration.compareTo(trending.getMaxWindow()) > 0) {
+            throw new ValidationException("Окно должно быть от 1 минуты до " + trending.getMaxWindow().toHours() + " ч");
+        }
+        if (count <= 0 || count > MAX_PAGE_SIZE) {
+            throw new ValidationException("Число фильмов должно быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return trending.getTrendingFilms(duration, count);
+    }
+
+    /**
+     * Вызывается только для операций, изменивших данные: снятие несуществующего лайка
+     * не должно сдвигать ни кеш популярных, ни тренды.
+     */
+    private void likeChanged(Long filmId, BatchAction action) {
+        popularCache.likeChanged(filmId, action);
+        trending.likeChanged(filmId, action);
+    }
+
+    private static Duration parseWindow(String window) {
+        Matcher matcher = WINDOW.matcher(window == null ? "" : window.trim());
+        if (!matcher.matches()) {
+            throw new ValidationException("Окно задаётся как число с единицей m, h или d, например 24h");
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        return switch (matcher.group(2)) {
+            case "m" -> Duration.ofMinutes(amount);
+            case "h" -> Duration.ofHours(amount);
+            default -> Duration.ofDays(amount);
+        };
+    }
+
+    private static LikeOperation likeOperation(Long filmId, Long userId, BatchAction action) {
+        LikeOperation operation = new LikeOperation();
+        operation.setFilmId(filmId);
+        operation.setUserId(userId);
+        operation.setAction(action);
+        return operation;
+    }
+
+    /**
+     * Ждёт применения команды из очереди и превращает её результат в те же исключения,
+     * что бросает хранилище при прямом вызове.
+     */
+    private static BatchItemResult await(CompletableFuture<BatchItemResult> future) {
+        BatchItemResult result;
+        try {
+            result = future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        switch (result.getStatus()) {
+            case NOT_FOUND -> throw new NotFoundException(result.getError());
+            case INVALID -> throw new ValidationException(result.getError());
+            default -> {
+            }
+        }
+        return result;
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return limit;
     }
 
     private void validateFilm(Film film) {
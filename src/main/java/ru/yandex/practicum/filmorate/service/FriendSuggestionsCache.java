@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Кеш рекомендаций друзей с настройками {@code filmorate.friends.suggestions.*}. На каждого
+ * пользователя хранится полный список из {@code max-limit} рекомендаций, меньшие запросы получают
+ * его начало. Запись живёт {@code ttl-seconds}; раньше её сбрасывает только изменение дружбы самого
+ * пользователя — изменения у друзей друзей ждут истечения срока. Когда записей больше
+ * {@code max-entries}, сначала выбрасываются просроченные, а если их нет — все.
+ */
+@Component
+public class FriendSuggestionsCache {
+    private final UserStorage userStorage;
+
+    private final long ttlNanos;
+
+    private final int maxEntries;
+
+    private final int maxLimit;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    @Autowired
+    public FriendSuggestionsCache(UserStorage userStorage,
+                                  @Value("${filmorate.friends.suggestions.ttl-seconds:30}") long ttlSeconds,
+                                  @Value("${filmorate.friends.suggestions.max-entries:10000}") int maxEntries,
+                                  @Value("${filmorate.friends.suggestions.max-limit:100}") int maxLimit) {
+        this.userStorage = userStorage;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.maxEntries = maxEntries;
+        this.maxLimit = maxLimit;
+    }
+
+    public static FriendSuggestionsCache disabled(UserStorage userStorage) {
+        return new FriendSuggestionsCache(userStorage, 0, 0, 100);
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public List<FriendSuggestion> getSuggestions(Long userId, int limit) {
+        if (ttlNanos <= 0) {
+            return userStorage.getFriendSuggestions(userId, limit);
+        }
+        long now = System.nanoTime();
+        Entry entry = entries.get(userId);
+        if (entry == null || now - entry.computedAt() >= ttlNanos) {
+            entry = new Entry(List.copyOf(userStorage.getFriendSuggestions(userId, maxLimit)), now);
+            if (entries.size() >= maxEntries) {
+                entries.values().removeIf(cached -> now - cached.computedAt() >= ttlNanos);
+                if (entries.size() >= maxEntries) {
+                    entries.clear();
+                }
+            }
+            entries.put(userId, entry);
+        }
+        List<FriendSuggestion> suggestions = entry.suggestions();
+        return suggestions.size() <= limit ? suggestions : suggestions.subList(0, limit);
+    }
+
+    public void friendshipChanged(Long userId, Long friendId) {
+        entries.remove(userId);
+        entries.remove(friendId);
+    }
+
+    private record Entry(List<FriendSuggestion> suggestions, long computedAt) {
+    }
+}
@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.OverloadedException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Очередь лайков по настройкам {@code filmorate.likes.queue.*}. Команды раскладываются по шардам
+ * по id фильма, у каждого шарда один писатель: он забирает накопившиеся команды пачкой и применяет
+ * их одним вызовом {@link FilmStorage#applyLikes}, так что блокировка фильма, индекс популярности
+ * и ожидание журнала обходятся один раз на пачку, а не на каждый лайк. Команды одного фильма
+ * применяются в порядке поступления. Переполненная очередь отказывает, а не копит задержку.
+ */
+@Slf4j
+@Component
+public class LikeIngestionQueue {
+    private static final long POLL_MS = 100;
+
+    private final FilmStorage filmStorage;
+
+    private final int batchSize;
+
+    private final long offerTimeoutMs;
+
+    private final List<Shard> shards = new ArrayList<>();
+
+    private volatile boolean running;
+
+    @Autowired
+    public LikeIngestionQueue(FilmStorage filmStorage,
+                              @Value("${filmorate.likes.queue.enabled:false}") boolean enabled,
+                              @Value("${filmorate.likes.queue.shards:4}") int shardCount,
+                              @Value("${filmorate.likes.queue.capacity:10000}") int capacity,
+                              @Value("${filmorate.likes.queue.batch-size:512}") int batchSize,
+                              @Value("${filmorate.likes.queue.offer-timeout-ms:20}") long offerTimeoutMs) {
+        this.filmStorage = filmStorage;
+        this.batchSize = batchSize;
+        this.offerTimeoutMs = offerTimeoutMs;
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < shardCount; i++) {
+            Shard shard = new Shard(new ArrayBlockingQueue<>(capacity));
+            // Писатель пишет в журнал хранилища, поэтому его не прерывают: прерванный в FileChannel
+            // поток закрывает канал. Остановка — по флагу и таймауту ожидания.
+            shard.writer = new Thread(() -> drain(shard), "like-writer-" + i);
+            shard.writer.setDaemon(true);
+            shards.add(shard);
+        }
+        shards.forEach(shard -> shard.writer.start());
+        log.info("Очередь лайков: шардов {}, ёмкость шарда {}, пачка до {}", shardCount, capacity, batchSize);
+    }
+
+    public static LikeIngestionQueue disabled() {
+        return new LikeIngestionQueue(null, false, 0, 0, 0, 0);
+    }
+
+    public boolean isEnabled() {
+        return !shards.isEmpty();
+    }
+
+    /**
+     * Ставит команду в очередь шарда её фильма. Если за {@code offer-timeout-ms} место не освободилось,
+     * бросает {@link OverloadedException}.
+     */
+    public CompletableFuture<BatchItemResult> submit(LikeOperation operation) {
+        Shard shard = shards.get(Math.floorMod(Long.hashCode(operation.getFilmId()), shards.size()));
+        Command command = new Command(operation, new CompletableFuture<>());
+        boolean accepted;
+        try {
+            accepted = running && shard.queue.offer(command, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (!accepted) {
+            throw new OverloadedException("Очередь лайков переполнена, повторите запрос позже");
+        }
+        return command.result();
+    }
+
+    /**
+     * Писатели дорабатывают уже принятые команды и завершаются; то, что успело попасть
+     * в очередь после их выхода, завершается ошибкой, чтобы никто не ждал вечно.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Shard shard : shards) {
+            try {
+                shard.writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            List<Command> leftover = new ArrayList<>();
+            shard.queue.drainTo(leftover);
+            leftover.forEach(command -> command.result().completeExceptionally(
+                    new OverloadedException("Сервис останавливается, лайк не применён")));
+        }
+    }
+
+    private void drain(Shard shard) {
+        List<Command> commands = new ArrayList<>(batchSize);
+        List<LikeOperation> operations = new ArrayList<>(batchSize);
+        while (true) {
+            Command first;
+            try {
+                first = shard.queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (first == null) {
+                if (!running) {
+                    return;
+                }
+                continue;
+            }
+            commands.add(first);
+            shard.queue.drainTo(commands, batchSize - 1);
+            for (Command command : commands) {
+                operations.add(command.operation());
+            }
+            try {
+                List<BatchItemResult> results = filmStorage.applyLikes(operations);
+                for (int i = 0; i < commands.size(); i++) {
+                    commands.get(i).result().complete(results.get(i));
+                }
+            } catch (RuntimeException e) {
+                log.error("Не удалось применить пачку из {} лайков", commands.size(), e);
+                commands.forEach(command -> command.result().completeExceptionally(e));
+            }
+            commands.clear();
+            operations.clear();
+        }
+    }
+
+    private static final class Shard {
+        private final BlockingQueue<Command> queue;
+
+        private Thread writer;
+
+        private Shard(BlockingQueue<Command> queue) {
+            this.queue = queue;
+        }
+    }
+
+    private record Command(LikeOperation operation, CompletableFuture<BatchItemResult> result) {
+    }
+}
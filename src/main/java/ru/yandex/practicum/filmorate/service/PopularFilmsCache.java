@@ -0,0 +1,172 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.BatchAction;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Кеш популярных фильмов по {@code count} с настройками {@code filmorate.popular.cache.*}.
+ * Запись живёт не дольше {@code max-staleness-ms}; раньше её сбрасывает только лайк, который
+ * меняет состав топа: фильм вне топа догнал последний фильм топа или фильм топа опустился
+ * до первого фильма за его границей. Лайки, меняющие лишь порядок внутри топа, ждут истечения срока.
+ * Одновременные промахи по одному {@code count} ждут одного вычисления.
+ */
+@Component
+public class PopularFilmsCache {
+    private final FilmStorage filmStorage;
+
+    private final long maxStalenessNanos;
+
+    private final int maxCount;
+
+    private final Map<Integer, CompletableFuture<Entry>> entries = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PopularFilmsCache(FilmStorage filmStorage,
+                             @Value("${filmorate.popular.cache.max-staleness-ms:1000}") long maxStalenessMs,
+                             @Value("${filmorate.popular.cache.max-count:100}") int maxCount) {
+        this.filmStorage = filmStorage;
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMs);
+        this.maxCount = maxCount;
+    }
+
+    public static PopularFilmsCache disabled(FilmStorage filmStorage) {
+        return new PopularFilmsCache(filmStorage, 0, 0);
+    }
+
+    public Collection<Film> getPopularFilms(int count) {
+        Entry entry = entry(count);
+        return entry == null ? filmStorage.getPopularFilms(count) : entry.films();
+    }
+
+    /**
+     * Версия для ETag — та, что была прочитана перед вычислением закешированного ответа.
+     */
+    public String getVersion(int count) {
+        Entry entry = entry(count);
+        return entry == null ? filmStorage.getVersion() : entry.version();
+    }
+
+    /**
+     * Вызывается после применённого лайка. Число лайков фильма запрашивается, только если
+     * от него зависит решение, и только когда в кеше что-то есть.
+     */
+    public void likeChanged(Long filmId, BatchAction action) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        int likes = -1;
+        for (Map.Entry<Integer, CompletableFuture<Entry>> cached : entries.entrySet()) {
+            CompletableFuture<Entry> future = cached.getValue();
+            Entry entry = future.getNow(null);
+            if (entry == null) {
+                // Вычисление ещё идёт и могло не увидеть этот лайк.
+                entries.remove(cached.getKey(), future);
+                continue;
+            }
+            boolean member = entry.ids().contains(filmId);
+            if (member == (action == BatchAction.ADD)) {
+                // Лайк фильму топа меняет только порядок, снятый лайк фильма вне топа — ничего.
+                continue;
+            }
+            if (likes < 0) {
+                likes = filmStorage.getLikesCount(filmId);
+            }
+            if (member ? likes <= entry.runnerUp().get() : likes >= entry.boundary().get()) {
+                entries.remove(cached.getKey(), future);
+            } else if (member) {
+                entry.boundary().accumulateAndGet(likes, Math::min);
+            } else {
+                entry.runnerUp().accumulateAndGet(likes, Math::max);
+            }
+        }
+    }
+
+    /**
+     * Создание, изменение и удаление фильмов редки — после них кеш просто сбрасывается.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    private Entry entry(int count) {
+        if (maxStalenessNanos <= 0 || count > maxCount) {
+            return null;
+        }
+        while (true) {
+            CompletableFuture<Entry> future = entries.get(count);
+            if (future == null) {
+                CompletableFuture<Entry> created = new CompletableFuture<>();
+                future = entries.putIfAbsent(count, created);
+                if (future == null) {
+                    return compute(count, created);
+                }
+            }
+            Entry entry;
+            try {
+                entry = future.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+            if (System.nanoTime() - entry.computedAt() < maxStalenessNanos) {
+                return entry;
+            }
+            entries.remove(count, future);
+        }
+    }
+
+    /**
+     * Топ считается на один фильм длиннее запрошенного: число лайков первого фильма за границей
+     * нужно, чтобы понять, вытеснит ли он фильм топа, потерявший лайк.
+     */
+    private Entry compute(int count, CompletableFuture<Entry> future) {
+        try {
+            String version = filmStorage.getVersion();
+            long computedAt = System.nanoTime();
+            List<Film> films = new ArrayList<>(filmStorage.getPopularFilms(count + 1));
+            int runnerUp = films.size() > count ? films.remove(count).getLikes().size() : 0;
+            Set<Long> ids = new HashSet<>();
+            int boundary = Integer.MAX_VALUE;
+            for (Film film : films) {
+                ids.add(film.getId());
+                boundary = Math.min(boundary, film.getLikes().size());
+            }
+            // Пока фильмов меньше count, в топ попадает любой новый фильм.
+            if (films.size() < count) {
+                boundary = 0;
+            }
+            Entry entry = new Entry(version, List.copyOf(films), ids, new AtomicInteger(boundary),
+                    new AtomicInteger(runnerUp), computedAt);
+            future.complete(entry);
+            return entry;
+        } catch (RuntimeException e) {
+            entries.remove(count, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * {@code boundary} — наименьшее число лайков в топе, {@code runnerUp} — наибольшее за его
+     * границей. Оба уточняются по лайкам, не сбросившим запись, и могут только отставать
+     * в безопасную сторону: лишний сброс возможен, пропущенный — нет.
+     */
+    private record Entry(String version, List<Film> films, Set<Long> ids, AtomicInteger boundary,
+                         AtomicInteger runnerUp, long computedAt) {
+    }
+}
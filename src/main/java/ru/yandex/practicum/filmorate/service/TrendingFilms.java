@@ -0,0 +1,207 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.BatchAction;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Лайки за последнее окно с настройками {@code filmorate.trending.*}. У каждого фильма —
+ * кольцо из {@code buckets} корзин по {@code bucket-minutes}: ячейка хранит номер своей корзины
+ * и число лайков за неё, поэтому устаревшая ячейка просто не учитывается и обнуляется при
+ * следующей записи. Окно суммирует фиксированное число ячеек, память на фильм постоянна
+ * и не зависит от числа лайкнувших.
+ * <p>
+ * Сюда приходят только снятия, действительно удалившие лайк. Корзина, где лайк был учтён,
+ * не хранится, поэтому снятый лайк вычитается из текущей корзины, а сумма окна не опускается
+ * ниже нуля. Снятие у фильма без лайков в кольце не учитывается.
+ * <p>
+ * Рядом ведётся такое же кольцо множеств фильмов, лайкнутых в каждой корзине: запрос обходит
+ * только фильмы с лайками в окне. Когда ячейка кольца переходит к новой корзине, фильмы из её
+ * старого множества, не встречающиеся в других живых корзинах, выбрасываются — без обхода всех фильмов.
+ * Данные держатся только в памяти и после перезапуска набираются заново.
+ */
+@Component
+public class TrendingFilms {
+    private final FilmStorage filmStorage;
+
+    private final long bucketMillis;
+
+    private final int buckets;
+
+    private final LongSupplier clock;
+
+    private final Map<Long, AtomicLongArray> counts = new ConcurrentHashMap<>();
+
+    private final AtomicReferenceArray<ActiveFilms> activeFilms;
+
+    @Autowired
+    public TrendingFilms(FilmStorage filmStorage,
+                         @Value("${filmorate.trending.bucket-minutes:60}") long bucketMinutes,
+                         @Value("${filmorate.trending.buckets:72}") int buckets) {
+        this(filmStorage, Duration.ofMinutes(bucketMinutes), buckets, System::currentTimeMillis);
+    }
+
+    public TrendingFilms(FilmStorage filmStorage, Duration bucket, int buckets, LongSupplier clock) {
+        this.filmStorage = filmStorage;
+        this.bucketMillis = bucket.toMillis();
+        this.buckets = buckets;
+        this.clock = clock;
+        this.activeFilms = new AtomicReferenceArray<>(buckets);
+    }
+
+    /**
+     * Самое длинное окно, которое помещается в кольцо.
+     */
+    public Duration getMaxWindow() {
+        return Duration.ofMillis(bucketMillis * buckets);
+    }
+
+    public void likeChanged(Long filmId, BatchAction action) {
+        int bucket = currentBucket();
+        int slot = Math.floorMod(bucket, buckets);
+        if (action == BatchAction.REMOVE) {
+            // Фильм без лайков в кольце не активен ни в одной корзине, и вычитать не из чего.
+            counts.computeIfPresent(filmId, (id, filmCounts) -> {
+                add(filmCounts, slot, bucket, -1);
+                return filmCounts;
+            });
+            return;
+        }
+        ActiveFilms active = activeIn(bucket);
+        // Под блокировкой ключа, чтобы не разминуться с выбрасыванием фильма в rotate.
+        counts.compute(filmId, (id, filmCounts) -> {
+            AtomicLongArray updated = filmCounts == null ? new AtomicLongArray(buckets) : filmCounts;
+            add(updated, slot, bucket, 1);
+            active.films().add(id);
+            return updated;
+        });
+    }
+
+    /**
+     * Число ячеек, которые держит фильм: ноль без лайков в кольце, иначе {@code buckets}.
+     */
+    int cellsOf(Long filmId) {
+        AtomicLongArray filmCounts = counts.get(filmId);
+        return filmCounts == null ? 0 : filmCounts.length();
+    }
+
+    /**
+     * До {@code count} фильмов с наибольшим числом лайков за окно, округлённое вверх до целых корзин;
+     * текущая корзина входит в окно целиком.
+     */
+    public List<Film> getTrendingFilms(Duration window, int count) {
+        long requested = (window.toMillis() + bucketMillis - 1) / bucketMillis;
+        int windowBuckets = (int) Math.min(buckets, Math.max(1, requested));
+        int now = currentBucket();
+        Map<Long, Integer> likes = new HashMap<>();
+        for (int bucket = now - windowBuckets + 1; bucket <= now; bucket++) {
+            ActiveFilms active = activeFilms.get(Math.floorMod(bucket, buckets));
+            if (active == null || active.bucket() != bucket) {
+                continue;
+            }
+            for (Long filmId : active.films()) {
+                if (!likes.containsKey(filmId)) {
+                    likes.put(filmId, sum(filmId, now, windowBuckets));
+                }
+            }
+        }
+        return likes.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0)
+                .sorted(Map.Entry.<Long, Integer>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(count)
+                .flatMap(entry -> filmStorage.findById(entry.getKey()).stream())
+                .collect(Collectors.toList());
+    }
+
+    private int sum(Long filmId, int now, int windowBuckets) {
+        AtomicLongArray filmCounts = counts.get(filmId);
+        if (filmCounts == null) {
+            return 0;
+        }
+        int total = 0;
+        for (int bucket = now - windowBuckets + 1; bucket <= now; bucket++) {
+            long packed = filmCounts.get(Math.floorMod(bucket, buckets));
+            if (bucketOf(packed) == bucket) {
+                total += countOf(packed);
+            }
+        }
+        return Math.max(total, 0);
+    }
+
+    /**
+     * Множество фильмов корзины; ячейку, хранящую старую корзину, заменяет и вычищает первый писатель.
+     */
+    private ActiveFilms activeIn(int bucket) {
+        int slot = Math.floorMod(bucket, buckets);
+        while (true) {
+            ActiveFilms active = activeFilms.get(slot);
+            if (active != null && active.bucket() == bucket) {
+                return active;
+            }
+            ActiveFilms fresh = new ActiveFilms(bucket, ConcurrentHashMap.newKeySet());
+            if (activeFilms.compareAndSet(slot, active, fresh)) {
+                if (active != null) {
+                    rotate(active, bucket);
+                }
+                return fresh;
+            }
+        }
+    }
+
+    private void rotate(ActiveFilms expired, int now) {
+        for (Long filmId : expired.films()) {
+            counts.computeIfPresent(filmId, (id, filmCounts) -> isActive(id, now) ? filmCounts : null);
+        }
+    }
+
+    private boolean isActive(Long filmId, int now) {
+        for (int slot = 0; slot < buckets; slot++) {
+            ActiveFilms active = activeFilms.get(slot);
+            if (active != null && active.bucket() > now - buckets && active.films().contains(filmId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int currentBucket() {
+        return (int) (clock.getAsLong() / bucketMillis);
+    }
+
+    private static void add(AtomicLongArray filmCounts, int slot, int bucket, int delta) {
+        filmCounts.getAndUpdate(slot, packed -> bucketOf(packed) == bucket
+                ? pack(bucket, countOf(packed) + delta)
+                : pack(bucket, delta));
+    }
+
+    private static long pack(int bucket, int count) {
+        return (long) bucket << 32 | (count & 0xFFFFFFFFL);
+    }
+
+    private static int bucketOf(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private static int countOf(long packed) {
+        return (int) packed;
+    }
+
+    private record ActiveFilms(int bucket, Set<Long> films) {
+    }
+}
@@ -1,33 +1,52 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.FriendOperation;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class UserService {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 1000;
+
     private final UserStorage userStorage;
+    private final FriendSuggestionsCache suggestionsCache;
 
-    @Autowired
-    public UserService(UserStorage userStorage) {
+    public UserService(UserStorage userStorage, FriendSuggestionsCache suggestionsCache) {
         this.userStorage = userStorage;
+        this.suggestionsCache = suggestionsCache;
     }
 
     public Collection<User> getAllUsers() {
         return userStorage.findAll();
     }
 
+    public void forEach(Consumer<? super User> action) {
+        userStorage.forEach(action);
+    }
+
+    public Collection<User> getUsersPage(Long afterId, Integer limit) {
+        return userStorage.findAll(afterId, pageSize(limit));
+    }
+
     public User create(User user) {
         log.info("Создание пользователя: {}", user.getEmail());
         validateUser(user);
@@ -46,6 +65,19 @@ public class UserService {
                 .orElseThrow(() -> new NotFoundException("Пользователь с id=" + id + " не найден"));
     }
 
+    /**
+     * Версия пользователя для ETag; как и в {@link FilmService#getFilmVersion}, запрашивается до данных.
+     */
+    public String getUserVersion(Long id) {
+        return userStorage.getVersion(id)
+                .orElseThrow(() -> new NotFoundException("Пользователь с id=" + id + " не найден"));
+    }
+
+    public String getFriendsVersion(Long userId) {
+        return userStorage.getFriendsVersion(userId)
+                .orElseThrow(() -> new NotFoundException("Пользователь с id=" + userId + " не найден"));
+    }
+
     public void addFriend(Long userId, Long friendId) {
         log.info("Добавление друга {} пользователю {}", friendId, userId);
         if (userId.equals(friendId)) {
@@ -54,6 +86,7 @@ public class UserService {
         User user = findById(userId);
         User friend = findById(friendId);
         userStorage.addFriend(userId, friendId);
+        suggestionsCache.friendshipChanged(userId, friendId);
     }
 
     public void removeFriend(Long userId, Long friendId) {
@@ -61,6 +94,40 @@ public class UserService {
         User user = findById(userId);
         User friend = findById(friendId);
         userStorage.removeFriend(userId, friendId);
+        suggestionsCache.friendshipChanged(userId, friendId);
+    }
+
+    /**
+     * Пакет изменений дружбы. Существование пользователей хранилище проверяет само за один проход
+     * по пакету; здесь отсекаются только неполные операции.
+     */
+    public List<BatchItemResult> applyFriendships(List<FriendOperation> operations) {
+        log.info("Пакет операций с друзьями: {}", operations.size());
+        if (operations.size() > MAX_BATCH_SIZE) {
+            throw new ValidationException("Пакет не может содержать больше " + MAX_BATCH_SIZE + " операций");
+        }
+        BatchItemResult[] results = new BatchItemResult[operations.size()];
+        List<FriendOperation> accepted = new ArrayList<>(operations.size());
+        int[] acceptedIndexes = new int[operations.size()];
+        for (int i = 0; i < operations.size(); i++) {
+            FriendOperation operation = operations.get(i);
+            if (operation == null || operation.getUserId() == null || operation.getFriendId() == null
+                    || operation.getAction() == null) {
+                results[i] = BatchItemResult.invalid(i, "Операция должна содержать userId, friendId и action");
+            } else {
+                acceptedIndexes[accepted.size()] = i;
+                accepted.add(operation);
+            }
+        }
+
+        List<BatchItemResult> applied = userStorage.applyFriendships(accepted);
+        for (int i = 0; i < applied.size(); i++) {
+            results[acceptedIndexes[i]] = applied.get(i).withIndex(acceptedIndexes[i]);
+            if (applied.get(i).getStatus() == BatchItemResult.Status.OK) {
+                suggestionsCache.friendshipChanged(accepted.get(i).getUserId(), accepted.get(i).getFriendId());
+            }
+        }
+        return Arrays.asList(results);
     }
 
     public Collection<User> getFriends(Long userId) {
@@ -75,6 +142,16 @@ public class UserService {
                 .collect(Collectors.toList());
     }
 
+    public Collection<User> getFriendsPage(Long userId, Long afterId, Integer limit) {
+        log.info("Получение страницы друзей пользователя с id: {} после id: {}", userId, afterId);
+
+        return userStorage.getFriends(userId, afterId, pageSize(limit)).stream()
+                .map(userStorage::findById)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toList());
+    }
+
     public Collection<User> getCommonFriends(Long userId, Long otherId) {
         log.info("Получение общих друзей пользователей {} и {}", userId, otherId);
         findById(userId);
@@ -82,6 +159,32 @@ public class UserService {
         return userStorage.getCommonFriends(userId, otherId);
     }
 
+    public int getCommonFriendsCount(Long userId, Long otherId) {
+        log.info("Подсчет общих друзей пользователей {} и {}", userId, otherId);
+        return userStorage.getCommonFriendsCount(userId, otherId);
+    }
+
+    /**
+     * «Возможно, вы знакомы»: друзья друзей по числу общих друзей.
+     */
+    public List<FriendSuggestion> getFriendSuggestions(Long userId, int limit) {
+        log.info("Подбор {} рекомендаций друзей для пользователя {}", limit, userId);
+        if (limit <= 0 || limit > suggestionsCache.getMaxLimit()) {
+            throw new ValidationException("Число рекомендаций должно быть от 1 до " + suggestionsCache.getMaxLimit());
+        }
+        return suggestionsCache.getSuggestions(userId, limit);
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+
     private void validateUser(User user) {
         if (user.getEmail() == null || user.getEmail().isBlank() || !user.getEmail().contains("@")) {
             throw new ValidationException("Некорректный email");
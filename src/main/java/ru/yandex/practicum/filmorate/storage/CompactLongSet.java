@@ -0,0 +1,271 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+/**
+ * Множество id без упаковки в {@code Long}.
+ * Пока элементов немного, они лежат в отсортированном массиве; при росте множество
+ * переходит на хеш-таблицу с открытой адресацией и линейным пробированием.
+ * Не потокобезопасно: изменения выполняются под блокировкой владельца. Методы чтения
+ * не зацикливаются и не портят состояние при гонке с записью, поэтому их можно вызывать
+ * при оптимистичном чтении с последующей валидацией.
+ */
+final class CompactLongSet {
+    static final int ARRAY_LIMIT = 16;
+
+    private static final long FREE = 0L;
+
+    private static final long[] EMPTY = new long[0];
+
+    private long[] values = EMPTY;
+
+    private int size;
+
+    private boolean hashed;
+
+    private boolean containsFree;
+
+    /**
+     * Множество из готового списка без повторов (например, из снимка): хеш-таблица сразу
+     * нужного размера, без промежуточных расширений.
+     */
+    static CompactLongSet of(long[] elements) {
+        CompactLongSet set = new CompactLongSet();
+        if (elements.length > ARRAY_LIMIT) {
+            int minCapacity = (int) (elements.length * 4L / 3) + 2;
+            set.values = new long[Integer.highestOneBit(minCapacity - 1) << 1];
+            set.hashed = true;
+        }
+        for (long element : elements) {
+            set.add(element);
+        }
+        return set;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(long value) {
+        long[] table = values;
+        if (!hashed) {
+            return Arrays.binarySearch(table, 0, Math.min(size, table.length), value) >= 0;
+        }
+        if (value == FREE) {
+            return containsFree;
+        }
+        int mask = table.length - 1;
+        int index = indexFor(value, mask);
+        for (int probes = 0; probes < table.length; probes++) {
+            long current = table[index];
+            if (current == value) {
+                return true;
+            }
+            if (current == FREE) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    boolean add(long value) {
+        if (!hashed) {
+            int position = Arrays.binarySearch(values, 0, size, value);
+            if (position >= 0) {
+                return false;
+            }
+            if (size == ARRAY_LIMIT) {
+                toHashTable(ARRAY_LIMIT * 4);
+                return add(value);
+            }
+            int insertAt = -position - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.max(2, size * 2));
+            }
+            System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+            values[insertAt] = value;
+            size++;
+            return true;
+        }
+        if (value == FREE) {
+            if (containsFree) {
+                return false;
+            }
+            containsFree = true;
+            size++;
+            return true;
+        }
+        if ((size + 1) * 4L > values.length * 3L) {
+            rehash(values.length * 2);
+        }
+        if (!insert(values, value)) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    boolean remove(long value) {
+        if (!hashed) {
+            int position = Arrays.binarySearch(values, 0, size, value);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(values, position + 1, values, position, size - position - 1);
+            size--;
+            values[size] = 0L;
+            return true;
+        }
+        if (value == FREE) {
+            if (!containsFree) {
+                return false;
+            }
+            containsFree = false;
+            size--;
+            shrinkIfSparse();
+            return true;
+        }
+        long[] table = values;
+        int mask = table.length - 1;
+        int index = indexFor(value, mask);
+        while (table[index] != value) {
+            if (table[index] == FREE) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        deleteAt(table, index);
+        size--;
+        shrinkIfSparse();
+        return true;
+    }
+
+    /**
+     * Копия элементов. Для представления-массива порядок возрастающий, для хеш-таблицы — произвольный.
+     * При гонке с записью может выбросить {@link IllegalStateException}; вызывающий перечитывает под блокировкой.
+     */
+    long[] toArray() {
+        long[] table = values;
+        int count = size;
+        if (!hashed) {
+            return Arrays.copyOf(table, count);
+        }
+        long[] result = new long[count];
+        int position = 0;
+        if (containsFree) {
+            result[position++] = FREE;
+        }
+        for (long value : table) {
+            if (value != FREE) {
+                if (position == count) {
+                    throw new IllegalStateException("Множество изменилось во время чтения");
+                }
+                result[position++] = value;
+            }
+        }
+        return position == count ? result : Arrays.copyOf(result, position);
+    }
+
+    /**
+     * Те из {@code candidates}, что есть в этом множестве. Стоимость — по одному поиску на кандидата,
+     * поэтому перебирать стоит меньшее из двух множеств, а проверять по большему.
+     */
+    long[] retainContained(long[] candidates) {
+        long[] common = new long[candidates.length];
+        int count = 0;
+        for (long candidate : candidates) {
+            if (contains(candidate)) {
+                common[count++] = candidate;
+            }
+        }
+        return count == common.length ? common : Arrays.copyOf(common, count);
+    }
+
+    int countContained(long[] candidates) {
+        int count = 0;
+        for (long candidate : candidates) {
+            if (contains(candidate)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void toHashTable(int capacity) {
+        long[] sorted = values;
+        int count = size;
+        values = new long[capacity];
+        hashed = true;
+        containsFree = false;
+        size = 0;
+        for (int i = 0; i < count; i++) {
+            add(sorted[i]);
+        }
+    }
+
+    private void shrinkIfSparse() {
+        if (size > ARRAY_LIMIT / 2) {
+            return;
+        }
+        long[] elements = toArray();
+        Arrays.sort(elements);
+        long[] compact = new long[ARRAY_LIMIT];
+        System.arraycopy(elements, 0, compact, 0, elements.length);
+        hashed = false;
+        containsFree = false;
+        values = compact;
+        size = elements.length;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = values;
+        long[] table = new long[capacity];
+        for (long value : old) {
+            if (value != FREE) {
+                insert(table, value);
+            }
+        }
+        values = table;
+    }
+
+    private static boolean insert(long[] table, long value) {
+        int mask = table.length - 1;
+        int index = indexFor(value, mask);
+        while (table[index] != FREE) {
+            if (table[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        table[index] = value;
+        return true;
+    }
+
+    /**
+     * Удаление со сдвигом следующих элементов кластера назад, без «надгробий».
+     */
+    private static void deleteAt(long[] table, int index) {
+        int mask = table.length - 1;
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (table[next] != FREE) {
+            int home = indexFor(table[next], mask);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                table[gap] = table[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[gap] = FREE;
+    }
+
+    private static int indexFor(long value, int mask) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Пул соединений и схема для хранилищ на базе данных (filmorate.storage=db). Без этого свойства
+ * источник данных не создаётся: автоконфигурация Spring Boot для него отключена.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "db")
+public class DbStorageConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public DataSource dataSource(
+            @Value("${spring.datasource.url:jdbc:h2:file:./db/filmorate}") String url,
+            @Value("${spring.datasource.username:sa}") String username,
+            @Value("${spring.datasource.password:}") String password) {
+        return DataSourceBuilder.create()
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+    }
+
+    /**
+     * Схема создаётся здесь, а не в {@link #dataSource}, чтобы пул стартовал уже с настройками
+     * {@code spring.datasource.hikari.*}. Выгрузки читают строки порциями, а не целиком.
+     */
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.setFetchSize(500);
+        return jdbc;
+    }
+
+    @Bean
+    public PlatformTransactionManager transactionManager(DataSource dataSource) {
+        return new DataSourceTransactionManager(dataSource);
+    }
+}
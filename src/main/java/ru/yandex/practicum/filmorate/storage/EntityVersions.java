@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Версии для ETag: общий счётчик изменений хранилища и номер последнего изменения по полосам id.
+ * Полос фиксированное число, поэтому память не растёт с числом сущностей; изменение соседа
+ * по полосе меняет и версию сущности — это лишний ответ 200, но не устаревший 304.
+ * Версия полосы только растёт, а каждое изменение получает новый номер счётчика, поэтому
+ * однажды выданная версия не вернётся. Версия отмечается после изменения, а читается до данных,
+ * поэтому может только отставать от них.
+ * В версию входит эпоха — время старта: после рестарта счётчики начинаются заново,
+ * и ETag, выданные до него, не совпадут с новыми.
+ */
+class EntityVersions {
+    private static final int STRIPES = 1 << 16;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36) + "-";
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final AtomicLongArray stripes = new AtomicLongArray(STRIPES);
+
+    void touch(long id) {
+        stripes.accumulateAndGet(indexFor(id), clock.incrementAndGet(), Math::max);
+    }
+
+    String version(long id) {
+        return epoch + stripes.get(indexFor(id));
+    }
+
+    /**
+     * Версия ответа, собранного из сущности и связанных с ней: растёт при изменении любой из них.
+     */
+    String version(long id, long[] relatedIds) {
+        long version = stripes.get(indexFor(id));
+        for (long relatedId : relatedIds) {
+            version = Math.max(version, stripes.get(indexFor(relatedId)));
+        }
+        return epoch + version;
+    }
+
+    /**
+     * Версия всей коллекции: меняется при изменении любой сущности.
+     */
+    String version() {
+        return epoch + clock.get();
+    }
+
+    private static int indexFor(long id) {
+        int hash = Long.hashCode(id) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+}
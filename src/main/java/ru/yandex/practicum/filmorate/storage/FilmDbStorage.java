@@ -0,0 +1,400 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchAction;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "db")
+public class FilmDbStorage implements FilmStorage {
+    private static final String SELECT_FILMS = """
+            SELECT f.id, f.name, f.description, f.release_date, f.duration,
+                   ARRAY_AGG(l.user_id) FILTER (WHERE l.user_id IS NOT NULL) AS likes
+            FROM films f
+            LEFT JOIN likes l ON l.film_id = f.id
+            """;
+    private static final String GROUP_BY_FILM = """
+            GROUP BY f.id, f.name, f.description, f.release_date, f.duration
+            """;
+
+    private static final String DELETE_LIKE = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
+
+    private static final String INSERT_LIKE_IF_ABSENT = """
+            INSERT INTO likes (film_id, user_id)
+            SELECT CAST(? AS BIGINT), CAST(? AS BIGINT)
+            WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)
+            """;
+
+    /**
+     * Соседи — пользователи с наибольшим числом общих лайков; фильм получает сумму их похожестей.
+     */
+    private static final String RECOMMENDED_FILM_IDS = """
+            WITH neighbours AS (
+                SELECT other.user_id, COUNT(*) AS overlap
+                FROM likes mine
+                JOIN likes other ON other.film_id = mine.film_id AND other.user_id <> mine.user_id
+                WHERE mine.user_id = ?
+                GROUP BY other.user_id
+                ORDER BY overlap DESC, other.user_id
+                LIMIT 50
+            )
+            SELECT l.film_id, SUM(n.overlap) AS score
+            FROM neighbours n
+            JOIN likes l ON l.user_id = n.user_id
+            WHERE l.film_id NOT IN (SELECT film_id FROM likes WHERE user_id = ?)
+            GROUP BY l.film_id
+            ORDER BY score DESC, l.film_id
+            LIMIT ?
+            """;
+
+    private final JdbcTemplate jdbc;
+
+    private final SimpleJdbcInsert insertFilm;
+
+    private final SavepointBatch batch;
+
+    private final EntityVersions versions = new EntityVersions();
+
+    public FilmDbStorage(JdbcTemplate jdbc, PlatformTransactionManager transactionManager) {
+        this.jdbc = jdbc;
+        this.insertFilm = new SimpleJdbcInsert(jdbc)
+                .withTableName("films")
+                .usingColumns("name", "name_normalized", "description", "release_date", "duration")
+                .usingGeneratedKeyColumns("id");
+        this.batch = new SavepointBatch(jdbc, transactionManager);
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        return jdbc.query(SELECT_FILMS + GROUP_BY_FILM + "ORDER BY f.id", FilmDbStorage::mapFilm);
+    }
+
+    @Override
+    public List<Film> findAll(Long afterId, int limit) {
+        return jdbc.query(SELECT_FILMS + "WHERE f.id > ? " + GROUP_BY_FILM + "ORDER BY f.id LIMIT ?",
+                FilmDbStorage::mapFilm, afterId == null ? 0L : afterId, limit);
+    }
+
+    @Override
+    public void forEach(Consumer<? super Film> action) {
+        jdbc.query(SELECT_FILMS + GROUP_BY_FILM + "ORDER BY f.id",
+                (RowCallbackHandler) rs -> action.accept(mapFilm(rs, rs.getRow())));
+    }
+
+    @Override
+    public Optional<Film> findById(Long id) {
+        return findOne("WHERE f.id = ? ", id);
+    }
+
+    @Override
+    public Optional<Film> findByName(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        return findOne("WHERE f.name_normalized = ? ", normalizeName(name));
+    }
+
+    @Override
+    public Film create(Film film) {
+        try {
+            Number id = insertFilm.executeAndReturnKey(new MapSqlParameterSource()
+                    .addValue("name", film.getName())
+                    .addValue("name_normalized", normalizeName(film.getName()))
+                    .addValue("description", film.getDescription())
+                    .addValue("release_date", film.getReleaseDate())
+                    .addValue("duration", film.getDuration()));
+            film.setId(id.longValue());
+        } catch (DuplicateKeyException e) {
+            throw duplicateName(film);
+        }
+        film.setLikes(new HashSet<>());
+        versions.touch(film.getId());
+        log.info("Создан фильм с id: {}, название: {}", film.getId(), film.getName());
+        return film;
+    }
+
+    @Override
+    public Film update(Film film) {
+        int updated;
+        try {
+            updated = jdbc.update("""
+                            UPDATE films
+                            SET name = ?, name_normalized = ?, description = ?, release_date = ?, duration = ?
+                            WHERE id = ?
+                            """,
+                    film.getName(), normalizeName(film.getName()), film.getDescription(),
+                    film.getReleaseDate(), film.getDuration(), film.getId());
+        } catch (DuplicateKeyException e) {
+            throw duplicateName(film);
+        }
+        if (updated == 0) {
+            throw new NotFoundException("Фильм с id=" + film.getId() + " не найден");
+        }
+        versions.touch(film.getId());
+        film.setLikes(new HashSet<>(jdbc.queryForList("SELECT user_id FROM likes WHERE film_id = ?",
+                Long.class, film.getId())));
+        log.info("Обновлен фильм с id: {}", film.getId());
+        return film;
+    }
+
+    @Override
+    public void delete(Long id) {
+        if (jdbc.update("DELETE FROM films WHERE id = ?", id) == 0) {
+            throw new NotFoundException("Фильм с id=" + id + " не найден");
+        }
+        versions.touch(id);
+        log.info("Удален фильм с id: {}", id);
+    }
+
+    @Override
+    public void addLike(Long filmId, Long userId) {
+        int inserted;
+        try {
+            inserted = jdbc.update(
+                    "INSERT INTO likes (film_id, user_id) SELECT id, CAST(? AS BIGINT) FROM films WHERE id = ?",
+                    userId, filmId);
+        } catch (DuplicateKeyException e) {
+            throw new ValidationException("Пользователь " + userId + " уже поставил лайк фильму " + filmId);
+        } catch (DataIntegrityViolationException e) {
+            throw new NotFoundException("Пользователь с id=" + userId + " не найден");
+        }
+        if (inserted == 0) {
+            throw new NotFoundException("Фильм с id=" + filmId + " не найден");
+        }
+        versions.touch(filmId);
+        log.info("Добавлен лайк фильму {} от пользователя {}", filmId, userId);
+    }
+
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        if (jdbc.update(DELETE_LIKE, filmId, userId) == 0) {
+            if (!exists(filmId)) {
+                throw new NotFoundException("Фильм с id=" + filmId + " не найден");
+            }
+            return false;
+        }
+        versions.touch(filmId);
+        log.info("Удален лайк у фильма {} от пользователя {}", filmId, userId);
+        return true;
+    }
+
+    /**
+     * Фильмы пакета проверяются одним запросом, изменения пишутся в одной транзакции:
+     * подряд идущие операции одного вида уходят одним {@code executeBatch}. Повторный лайк
+     * не нарушает ограничение, а просто ничего не вставляет. Лайк несуществующего пользователя
+     * нарушает внешний ключ — тогда серия повторяется по одной операции ({@link SavepointBatch}),
+     * и отказ получает только она.
+     */
+    @Override
+    public List<BatchItemResult> applyLikes(List<LikeOperation> operations) {
+        Set<Long> filmIds = new HashSet<>();
+        operations.forEach(operation -> filmIds.add(operation.getFilmId()));
+        Set<Long> existing = filmIds.isEmpty() ? Set.of() : new HashSet<>(jdbc.queryForList(
+                "SELECT id FROM films WHERE id = ANY(?)", Long.class, SqlArrays.param(filmIds)));
+
+        BatchItemResult[] results = new BatchItemResult[operations.size()];
+        batch.inTransaction(() -> {
+            List<Integer> run = new ArrayList<>();
+            BatchAction current = null;
+            for (int i = 0; i < operations.size(); i++) {
+                LikeOperation operation = operations.get(i);
+                if (!existing.contains(operation.getFilmId())) {
+                    results[i] = BatchItemResult.notFound(i, "Фильм с id=" + operation.getFilmId() + " не найден");
+                    continue;
+                }
+                if (operation.getAction() != current) {
+                    writeLikes(operations, run, results);
+                    run.clear();
+                    current = operation.getAction();
+                }
+                run.add(i);
+            }
+            writeLikes(operations, run, results);
+        });
+        for (int i = 0; i < operations.size(); i++) {
+            if (results[i].isChanged()) {
+                versions.touch(operations.get(i).getFilmId());
+            }
+        }
+        log.info("Применён пакет из {} операций с лайками", operations.size());
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Один запрос: подсчёт лайков, сортировка и список лайкнувших для каждого фильма из топа.
+     */
+    @Override
+    public Collection<Film> getPopularFilms(int count) {
+        log.info("Запрошено {} популярных фильмов", count);
+        return jdbc.query(SELECT_FILMS + GROUP_BY_FILM + "ORDER BY COUNT(l.user_id) DESC, f.id LIMIT ?",
+                FilmDbStorage::mapFilm, count);
+    }
+
+    /**
+     * Слова ищутся подстрокой в названии и описании. Индекса для такого поиска в базе нет,
+     * поэтому запрос просматривает все фильмы — быстрый поиск есть только в памяти.
+     */
+    @Override
+    public List<Film> search(String query, int limit) {
+        List<String> terms = FilmSearchIndex.tokenize(query);
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+        terms = terms.subList(0, Math.min(terms.size(), FilmSearchIndex.MAX_QUERY_TOKENS));
+        StringJoiner where = new StringJoiner(" AND ", "WHERE ", " ");
+        StringJoiner relevance = new StringJoiner(" + ", "ORDER BY ", " DESC, ");
+        List<Object> params = new ArrayList<>();
+        for (String term : terms) {
+            where.add("(LOWER(f.name) LIKE ? OR LOWER(f.description) LIKE ?)");
+            params.add("%" + term + "%");
+            params.add("%" + term + "%");
+        }
+        for (String term : terms) {
+            relevance.add("CASE WHEN LOWER(f.name) LIKE ? THEN 3 ELSE 1 END");
+            params.add("%" + term + "%");
+        }
+        params.add(limit);
+        return jdbc.query(SELECT_FILMS + where + GROUP_BY_FILM + relevance + "COUNT(l.user_id) DESC, f.id LIMIT ?",
+                FilmDbStorage::mapFilm, params.toArray());
+    }
+
+    @Override
+    public int getLikesCount(Long filmId) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM likes WHERE film_id = ?", Integer.class, filmId);
+    }
+
+    /**
+     * Похожие пользователи и оценки фильмов считаются в базе одним запросом; вторым загружаются
+     * сами фильмы, порядок берётся из первого.
+     */
+    @Override
+    public Set<Long> getLikedFilmIds(Long userId) {
+        return new HashSet<>(jdbc.queryForList("SELECT film_id FROM likes WHERE user_id = ?", Long.class, userId));
+    }
+
+    @Override
+    public List<Film> getRecommendations(Long userId, int limit) {
+        List<Long> ids = jdbc.query(RECOMMENDED_FILM_IDS, (rs, rowNum) -> rs.getLong("film_id"), userId, userId, limit);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Film> recommended = new HashMap<>();
+        for (Film film : jdbc.query(SELECT_FILMS + "WHERE f.id = ANY(?) " + GROUP_BY_FILM, FilmDbStorage::mapFilm,
+                SqlArrays.param(ids))) {
+            recommended.put(film.getId(), film);
+        }
+        List<Film> recommendations = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Film film = recommended.get(id);
+            if (film != null) {
+                recommendations.add(film);
+            }
+        }
+        return recommendations;
+    }
+
+    /**
+     * Версии ведутся в памяти приложения, поэтому верны, пока база меняется только через него.
+     */
+    @Override
+    public Optional<String> getVersion(Long id) {
+        return id != null && exists(id) ? Optional.of(versions.version(id)) : Optional.empty();
+    }
+
+    @Override
+    public String getVersion() {
+        return versions.version();
+    }
+
+    @Override
+    public StorageStats stats() {
+        return jdbc.queryForObject("""
+                        SELECT (SELECT COUNT(*) FROM films) AS films,
+                               (SELECT COUNT(*) FROM likes) AS likes,
+                               (SELECT COALESCE(MAX(c), 0)
+                                FROM (SELECT COUNT(*) AS c FROM likes GROUP BY film_id) per_film) AS largest
+                        """,
+                (rs, rowNum) -> new StorageStats(rs.getLong("films"), rs.getLong("likes"), rs.getInt("largest")));
+    }
+
+    private Optional<Film> findOne(String where, Object... params) {
+        return jdbc.query(SELECT_FILMS + where + GROUP_BY_FILM, FilmDbStorage::mapFilm, params).stream().findFirst();
+    }
+
+    private boolean exists(Long id) {
+        return !jdbc.queryForList("SELECT id FROM films WHERE id = ?", Long.class, id).isEmpty();
+    }
+
+    private void writeLikes(List<LikeOperation> operations, List<Integer> run, BatchItemResult[] results) {
+        if (run.isEmpty()) {
+            return;
+        }
+        boolean remove = operations.get(run.get(0)).getAction() == BatchAction.REMOVE;
+        List<List<Object[]>> rows = new ArrayList<>(run.size());
+        for (int index : run) {
+            LikeOperation operation = operations.get(index);
+            rows.add(List.<Object[]>of(remove
+                    ? new Object[]{operation.getFilmId(), operation.getUserId()}
+                    : new Object[]{operation.getFilmId(), operation.getUserId(),
+                            operation.getFilmId(), operation.getUserId()}));
+        }
+        int[] updated = batch.write(remove ? DELETE_LIKE : INSERT_LIKE_IF_ABSENT, rows);
+        for (int i = 0; i < run.size(); i++) {
+            int index = run.get(i);
+            LikeOperation operation = operations.get(index);
+            if (updated[i] == SavepointBatch.VIOLATED) {
+                results[index] = BatchItemResult.notFound(index,
+                        "Пользователь с id=" + operation.getUserId() + " не найден");
+            } else if (updated[i] == 0) {
+                results[index] = remove
+                        ? BatchItemResult.unchanged(index)
+                        : BatchItemResult.invalid(index, "Пользователь " + operation.getUserId()
+                                + " уже поставил лайк фильму " + operation.getFilmId());
+            } else {
+                results[index] = BatchItemResult.ok(index);
+            }
+        }
+    }
+
+    private static Film mapFilm(ResultSet rs, int rowNum) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getLong("id"));
+        film.setName(rs.getString("name"));
+        film.setDescription(rs.getString("description"));
+        film.setReleaseDate(rs.getObject("release_date", LocalDate.class));
+        film.setDuration(rs.getInt("duration"));
+        film.setLikes(new HashSet<>(SqlArrays.longs(rs, "likes")));
+        return film;
+    }
+
+    private static ValidationException duplicateName(Film film) {
+        return new ValidationException("Фильм с названием '" + film.getName() + "' уже существует");
+    }
+
+    private static String normalizeName(String name) {
+        if (name == null) {
+            throw new ValidationException("Название фильма не может быть пустым");
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,207 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.function.LongToIntFunction;
+
+/**
+ * Обратный индекс слов названий и описаний фильмов. Слова лежат в упорядоченной карте, поэтому
+ * она же служит префиксной структурой: слова с общим началом идут подряд. Списки фильмов слова
+ * меняются под полосой, выбранной по слову, так что индекс обновляется из разных полос фильмов.
+ * Изменения одного фильма вызывающий выполняет под полосой этого фильма.
+ */
+final class FilmSearchIndex {
+    /**
+     * Слова запроса сверх этого числа не учитываются.
+     */
+    static final int MAX_QUERY_TOKENS = 8;
+
+    private static final int NAME_WEIGHT = 3;
+
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    /**
+     * Ранг упаковывается в один int: релевантность в старших битах, число лайков — в младших,
+     * так что куча {@link LongCounter#top} сама разрешает равенство по популярности.
+     */
+    private static final int POPULARITY_BITS = 20;
+
+    private static final int MAX_POPULARITY = (1 << POPULARITY_BITS) - 1;
+
+    private final NavigableMap<String, Postings> postings = new ConcurrentSkipListMap<>();
+
+    /**
+     * Проиндексированный текст каждого фильма. Сравнивать новое состояние приходится с ним, а не
+     * с прежним объектом: вызывающий мог изменить сохранённый экземпляр на месте.
+     */
+    private final Map<Long, IndexedText> texts = new ConcurrentHashMap<>();
+
+    private final StripedLocks locks = new StripedLocks();
+
+    /**
+     * Индексирует фильм или переиндексирует уже известный. Меняет только те слова, что появились
+     * или исчезли, поэтому правка одного поля дёшева.
+     */
+    void put(long id, Film film) {
+        IndexedText before = texts.get(id);
+        IndexedText after = new IndexedText(film.getName(), film.getDescription());
+        update(id, tokenize(before == null ? null : before.name()), tokenize(after.name()), Postings::name);
+        update(id, tokenize(before == null ? null : before.description()),
+                tokenize(after.description()), Postings::description);
+        texts.put(id, after);
+    }
+
+    void remove(long id) {
+        IndexedText before = texts.remove(id);
+        if (before != null) {
+            update(id, tokenize(before.name()), List.of(), Postings::name);
+            update(id, tokenize(before.description()), List.of(), Postings::description);
+        }
+    }
+
+    /**
+     * Фильмы, содержащие все слова запроса; последнее слово, если запрос не кончается пробелом,
+     * ищется как начало слова. Совпадение в названии весит больше, чем в описании, при равной
+     * релевантности выше фильм с большим числом лайков. Стоимость пропорциональна числу
+     * совпадений, а не размеру каталога: кандидаты берутся из самого короткого списка.
+     */
+    long[] search(String query, int limit, LongToIntFunction popularity) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return new long[0];
+        }
+        boolean typing = Character.isLetterOrDigit(query.charAt(query.length() - 1));
+        if (terms.size() > MAX_QUERY_TOKENS) {
+            terms = terms.subList(0, MAX_QUERY_TOKENS);
+            typing = false;
+        }
+
+        LongCounter[] scores = new LongCounter[terms.size()];
+        int shortest = 0;
+        for (int i = 0; i < scores.length; i++) {
+            String term = terms.get(i);
+            scores[i] = typing && i == scores.length - 1 ? matchPrefix(term) : matchExact(term);
+            if (scores[i].size() == 0) {
+                return new long[0];
+            }
+            if (scores[i].size() < scores[shortest].size()) {
+                shortest = i;
+            }
+        }
+
+        LongCounter ranked = new LongCounter(scores[shortest].size());
+        for (long id : scores[shortest].keys()) {
+            int relevance = 0;
+            for (LongCounter termScores : scores) {
+                int score = termScores.get(id);
+                if (score == 0) {
+                    relevance = 0;
+                    break;
+                }
+                relevance += score;
+            }
+            if (relevance > 0) {
+                ranked.add(id, relevance << POPULARITY_BITS | Math.min(popularity.applyAsInt(id), MAX_POPULARITY));
+            }
+        }
+        return ranked.top(limit, id -> false);
+    }
+
+    /**
+     * Слова текста в нижнем регистре без повторов: последовательности букв и цифр, «ё» приравнена к «е».
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    private void update(long id, Collection<String> before, Collection<String> after,
+                        Function<Postings, CompactLongSet> field) {
+        for (String token : before) {
+            if (!after.contains(token)) {
+                locks.withLock(token.hashCode(), () -> {
+                    Postings tokenPostings = postings.get(token);
+                    if (tokenPostings != null && field.apply(tokenPostings).remove(id) && tokenPostings.isEmpty()) {
+                        postings.remove(token, tokenPostings);
+                    }
+                });
+            }
+        }
+        for (String token : after) {
+            if (!before.contains(token)) {
+                locks.withLock(token.hashCode(), () -> {
+                    field.apply(postings.computeIfAbsent(token, key -> new Postings())).add(id);
+                });
+            }
+        }
+    }
+
+    private LongCounter matchExact(String term) {
+        LongCounter scores = new LongCounter(16);
+        Postings tokenPostings = postings.get(term);
+        if (tokenPostings != null) {
+            collect(term, tokenPostings, scores);
+        }
+        return scores;
+    }
+
+    /**
+     * Все слова, начинающиеся с {@code prefix}; фильм получает наибольший вес среди своих совпадений.
+     */
+    private LongCounter matchPrefix(String prefix) {
+        LongCounter scores = new LongCounter(16);
+        for (Map.Entry<String, Postings> entry : postings.subMap(prefix, prefix + Character.MAX_VALUE).entrySet()) {
+            collect(entry.getKey(), entry.getValue(), scores);
+        }
+        return scores;
+    }
+
+    private void collect(String token, Postings tokenPostings, LongCounter scores) {
+        long[][] ids = locks.read(token.hashCode(),
+                () -> new long[][]{tokenPostings.name().toArray(), tokenPostings.description().toArray()});
+        for (long id : ids[0]) {
+            scores.raise(id, NAME_WEIGHT);
+        }
+        for (long id : ids[1]) {
+            scores.raise(id, DESCRIPTION_WEIGHT);
+        }
+    }
+
+    private record IndexedText(String name, String description) {
+    }
+
+    private record Postings(CompactLongSet name, CompactLongSet description) {
+        Postings() {
+            this(new CompactLongSet(), new CompactLongSet());
+        }
+
+        boolean isEmpty() {
+            return name.isEmpty() && description.isEmpty();
+        }
+    }
+}
@@ -1,15 +1,26 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Collection<Film> findAll();
 
+    List<Film> findAll(Long afterId, int limit);
+
+    void forEach(Consumer<? super Film> action);
+
     Optional<Film> findById(Long id);
 
+    Optional<Film> findByName(String name);
+
     Film create(Film film);
 
     Film update(Film film);
@@ -18,7 +29,50 @@ public interface FilmStorage {
 
     void addLike(Long filmId, Long userId);
 
-    void removeLike(Long filmId, Long userId);
+    /**
+     * @return {@code false}, если лайка и не было
+     */
+    boolean removeLike(Long filmId, Long userId);
+
+    /**
+     * Применяет пакет лайков по порядку и возвращает результат для каждой операции;
+     * ошибка одной операции не отменяет остальные. Пользователи должны быть проверены заранее.
+     */
+    List<BatchItemResult> applyLikes(List<LikeOperation> operations);
 
     Collection<Film> getPopularFilms(int count);
+
+    /**
+     * До {@code limit} фильмов, в названии или описании которых есть все слова запроса,
+     * последнее — хотя бы как начало слова; сначала более релевантные, при равенстве — популярные.
+     */
+    List<Film> search(String query, int limit);
+
+    /**
+     * Число лайков фильма без загрузки самого фильма; 0, если фильма нет.
+     */
+    int getLikesCount(Long filmId);
+
+    /**
+     * До {@code limit} фильмов, которые лайкали пользователи с похожими лайками, без уже
+     * лайкнутых самим пользователем; лучшие первыми.
+     */
+    List<Film> getRecommendations(Long userId, int limit);
+
+    /**
+     * Фильмы, которые лайкнул пользователь; пустое множество, если лайков нет.
+     */
+    Set<Long> getLikedFilmIds(Long userId);
+
+    /**
+     * Версия фильма для ETag: меняется при изменении фильма и его лайков; пусто, если фильма нет.
+     */
+    Optional<String> getVersion(Long id);
+
+    /**
+     * Версия всех фильмов для ETag списков, например популярных: меняется при любом изменении.
+     */
+    String getVersion();
+
+    StorageStats stats();
 }
\ No newline at end of file
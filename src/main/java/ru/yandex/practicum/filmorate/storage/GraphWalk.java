@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongFunction;
+import java.util.function.LongToIntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Ограниченный обход на два шага по спискам смежности в памяти: друзья друзей, пользователи
+ * с общими лайками. Стоимость зависит от заданных ограничений, а не от размера графа.
+ */
+final class GraphWalk {
+    /**
+     * Начиная с такого числа вершин подсчёт делится на части для общего пула потоков.
+     */
+    private static final int PARALLEL_CHUNK = 64;
+
+    private GraphWalk() {
+    }
+
+    /**
+     * До {@code limit} вершин со степенью от 1 до {@code maxDegree}, сначала с наименьшей.
+     * Вершины высокой степени связаны почти со всеми и дают мало сигнала, а обходить их дороже всего.
+     * Степень и позиция упакованы в один long, чтобы отсортировать их без объектов.
+     */
+    static long[] lowDegreeFirst(long[] ids, LongToIntFunction degree, int maxDegree, int limit) {
+        long[] byDegree = new long[ids.length];
+        int selected = 0;
+        for (int i = 0; i < ids.length; i++) {
+            int size = degree.applyAsInt(ids[i]);
+            if (size > 0 && size <= maxDegree) {
+                byDegree[selected++] = (long) size << 32 | i;
+            }
+        }
+        if (selected > limit) {
+            Arrays.sort(byDegree, 0, selected);
+            selected = limit;
+        }
+        long[] result = new long[selected];
+        for (int i = 0; i < selected; i++) {
+            result[i] = ids[(int) byDegree[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Сумма весов вершин {@code ids} по каждому их соседу. Большой список делится на части,
+     * которые считаются параллельно и затем складываются.
+     */
+    static LongCounter countNeighbours(long[] ids, LongFunction<long[]> neighbours, LongToIntFunction weight) {
+        int chunks = Math.min(ForkJoinPool.getCommonPoolParallelism(), ids.length / PARALLEL_CHUNK);
+        if (chunks <= 1) {
+            return countNeighbours(ids, 0, ids.length, neighbours, weight);
+        }
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> countNeighbours(ids, ids.length * chunk / chunks,
+                        ids.length * (chunk + 1) / chunks, neighbours, weight))
+                .reduce((left, right) -> {
+                    left.addAll(right);
+                    return left;
+                })
+                .orElseThrow();
+    }
+
+    private static LongCounter countNeighbours(long[] ids, int from, int to, LongFunction<long[]> neighbours,
+                                               LongToIntFunction weight) {
+        LongCounter counter = new LongCounter((to - from) * 16);
+        for (int i = from; i < to; i++) {
+            int idWeight = weight.applyAsInt(ids[i]);
+            for (long neighbour : neighbours.apply(ids[i])) {
+                counter.add(neighbour, idWeight);
+            }
+        }
+        return counter;
+    }
+}
@@ -1,22 +1,113 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.StorageException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchAction;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory", matchIfMissing = true)
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Long, Film> films = new HashMap<>();
+    private static final String NAME = "films";
 
-    private final Map<Long, Set<Long>> likes = new HashMap<>();
+    private static final byte FILM_CREATED = 1;
+    private static final byte FILM_UPDATED = 2;
+    private static final byte FILM_DELETED = 3;
+    private static final byte LIKE_ADDED = 4;
+    private static final byte LIKE_REMOVED = 5;
 
-    private long currentId = 1L;
+    /**
+     * Сколько фильмов пользователя с наименьшим числом лайков обходится при поиске похожих пользователей.
+     */
+    private static final int RECOMMENDATION_FAN_OUT = 500;
+
+    /**
+     * Фильмы с большим числом лайков при поиске похожих пользователей пропускаются: общий лайк
+     * хиту почти ничего не говорит о сходстве вкусов, а обход его лайков дороже всего.
+     */
+    private static final int RECOMMENDATION_MAX_FILM_LIKES = 2000;
+
+    /**
+     * Сколько самых похожих пользователей голосует за рекомендации.
+     */
+    private static final int RECOMMENDATION_NEIGHBOURS = 50;
+
+    /**
+     * Пользователи с большим числом лайков в соседи не берутся: они лайкают почти всё подряд.
+     */
+    private static final int RECOMMENDATION_MAX_USER_LIKES = 5000;
+
+    private final NavigableMap<Long, Film> films = new ConcurrentSkipListMap<>();
+
+    private final Map<Long, CompactLongSet> likes = new ConcurrentHashMap<>();
+
+    /**
+     * Обратный индекс лайков: пользователь → фильмы. Меняется под полосой фильма и затем под своей
+     * полосой в {@link #userLocks}; в обратном порядке эти полосы не берутся.
+     */
+    private final Map<Long, CompactLongSet> likedFilms = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> filmIdsByName = new ConcurrentHashMap<>();
+
+    private final Map<Long, String> namesByFilmId = new ConcurrentHashMap<>();
+
+    private final PopularityIndex popularity = new PopularityIndex();
+
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+
+    private final StripedLocks locks = new StripedLocks();
+
+    private final StripedLocks userLocks = new StripedLocks();
+
+    private final EntityVersions versions = new EntityVersions();
+
+    private final AtomicLong currentId = new AtomicLong(1L);
+
+    private final WriteAheadLog wal;
+
+    private final SnapshotStore snapshots;
+
+    private final ScheduledFuture<?> snapshotTask;
+
+    public InMemoryFilmStorage() {
+        this(WriteAheadLog.disabled(), SnapshotStore.disabled());
+    }
+
+    @Autowired
+    InMemoryFilmStorage(WriteAheadLogFactory walFactory, SnapshotStore snapshots) {
+        this(walFactory.open(NAME), snapshots);
+    }
+
+    /**
+     * Восстанавливает состояние: снимок, затем записи журнала, сделанные после его начала.
+     */
+    InMemoryFilmStorage(WriteAheadLog wal, SnapshotStore snapshots) {
+        this.wal = wal;
+        this.snapshots = snapshots;
+        long fromSegment = snapshots.load(NAME, this::loadSnapshot);
+        wal.replay(fromSegment, this::replay);
+        snapshotTask = snapshots.schedule(this::snapshot);
+    }
 
     @Override
     public Collection<Film> findAll() {
@@ -24,93 +115,550 @@ public class InMemoryFilmStorage implements FilmStorage {
         return new ArrayList<>(films.values());
     }
 
+    @Override
+    public List<Film> findAll(Long afterId, int limit) {
+        NavigableMap<Long, Film> tail = afterId == null ? films : films.tailMap(afterId, false);
+        List<Film> page = new ArrayList<>(Math.min(limit, tail.size()));
+        for (Film film : tail.values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(film);
+        }
+        return page;
+    }
+
+    @Override
+    public void forEach(Consumer<? super Film> action) {
+        films.values().forEach(action);
+    }
+
     @Override
     public Optional<Film> findById(Long id) {
-        return Optional.ofNullable(films.get(id));
+        return id == null ? Optional.empty() : Optional.ofNullable(films.get(id));
+    }
+
+    @Override
+    public Optional<Film> findByName(String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        Long id = filmIdsByName.get(normalizeName(name));
+        return id == null ? Optional.empty() : findById(id);
     }
 
     @Override
     public Film create(Film film) {
-        boolean nameExists = films.values().stream()
-                .anyMatch(f -> f.getName().equalsIgnoreCase(film.getName()));
-        if (nameExists) {
+        String name = normalizeName(film.getName());
+        long[] allocatedId = new long[1];
+        filmIdsByName.computeIfAbsent(name, key -> allocatedId[0] = currentId.getAndIncrement());
+        if (allocatedId[0] == 0) {
             throw new ValidationException("Фильм с названием '" + film.getName() + "' уже существует");
         }
 
-        film.setId(currentId++);
-        films.put(film.getId(), film);
-        likes.put(film.getId(), new HashSet<>());
+        long id = allocatedId[0];
+        film.setId(id);
+        long position;
+        try {
+            position = locks.withLock(id, () -> {
+                long appended = wal.append(FILM_CREATED, out -> writeFilm(out, film));
+                store(id, name, film, new CompactLongSet());
+                versions.touch(id);
+                return appended;
+            });
+        } catch (RuntimeException e) {
+            filmIdsByName.remove(name, id);
+            throw e;
+        }
+        wal.awaitDurable(position);
         log.info("Создан фильм с id: {}, название: {}", film.getId(), film.getName());
         return film;
     }
 
     @Override
     public Film update(Film film) {
-        if (!films.containsKey(film.getId())) {
-            throw new NotFoundException("Фильм с id=" + film.getId() + " не найден");
+        Long id = film.getId();
+        if (id == null) {
+            throw new NotFoundException("Фильм с id=" + id + " не найден");
         }
 
-        films.put(film.getId(), film);
+        long position = locks.withLock(id, () -> {
+            String oldName = namesByFilmId.get(id);
+            if (oldName == null) {
+                throw new NotFoundException("Фильм с id=" + id + " не найден");
+            }
+
+            String newName = normalizeName(film.getName());
+            boolean renamed = !oldName.equals(newName);
+            if (renamed) {
+                Long owner = filmIdsByName.putIfAbsent(newName, id);
+                if (owner != null && !owner.equals(id)) {
+                    throw new ValidationException("Фильм с названием '" + film.getName() + "' уже существует");
+                }
+            }
+            long appended;
+            try {
+                appended = wal.append(FILM_UPDATED, out -> writeFilm(out, film));
+            } catch (RuntimeException e) {
+                if (renamed) {
+                    filmIdsByName.remove(newName, id);
+                }
+                throw e;
+            }
+            if (renamed) {
+                filmIdsByName.remove(oldName, id);
+                namesByFilmId.put(id, newName);
+            }
+
+            film.setLikes(new LongSetView(locks, id, likes.get(id)));
+            films.put(id, film);
+            searchIndex.put(id, film);
+            versions.touch(id);
+            return appended;
+        });
+        wal.awaitDurable(position);
         log.info("Обновлен фильм с id: {}", film.getId());
         return film;
     }
 
     @Override
     public void delete(Long id) {
-        if (!films.containsKey(id)) {
-            throw new NotFoundException("Фильм с id=" + id + " не найден");
-        }
-
-        films.remove(id);
-        likes.remove(id);
+        long position = locks.withLock(id, () -> {
+            if (!films.containsKey(id)) {
+                throw new NotFoundException("Фильм с id=" + id + " не найден");
+            }
+            long appended = wal.append(FILM_DELETED, out -> out.writeLong(id));
+            remove(id);
+            versions.touch(id);
+            return appended;
+        });
+        wal.awaitDurable(position);
         log.info("Удален фильм с id: {}", id);
     }
 
     @Override
     public void addLike(Long filmId, Long userId) {
-        validateFilmExists(filmId);
-
-        Set<Long> filmLikes = likes.computeIfAbsent(filmId, k -> new HashSet<>());
-
-        if (filmLikes.contains(userId)) {
-            throw new ValidationException("Пользователь " + userId + " уже поставил лайк фильму " + filmId);
-        }
+        long position = locks.withLock(filmId, () -> {
+            CompactLongSet filmLikes = getFilmLikes(filmId);
 
-        filmLikes.add(userId);
-        Film film = films.get(filmId);
-        film.getLikes().add(userId);
+            if (filmLikes.contains(userId)) {
+                throw new ValidationException("Пользователь " + userId + " уже поставил лайк фильму " + filmId);
+            }
+            long appended = wal.append(LIKE_ADDED, out -> writeLike(out, filmId, userId));
+            filmLikes.add(userId);
+            indexLike(filmId, userId);
+            popularity.increment(filmId);
+            versions.touch(filmId);
+            return appended;
+        });
+        wal.awaitDurable(position);
 
         log.info("Добавлен лайк фильму {} от пользователя {}", filmId, userId);
     }
 
     @Override
-    public void removeLike(Long filmId, Long userId) {
-        validateFilmExists(filmId);
-        if (likes.containsKey(filmId)) {
-            likes.get(filmId).remove(userId);
-            Film film = films.get(filmId);
-            film.getLikes().remove(userId);
-            log.info("Удален лайк у фильма {} от пользователя {}", filmId, userId);
+    public boolean removeLike(Long filmId, Long userId) {
+        long position = locks.withLock(filmId, () -> {
+            CompactLongSet filmLikes = getFilmLikes(filmId);
+            if (!filmLikes.contains(userId)) {
+                return -1L;
+            }
+            long appended = wal.append(LIKE_REMOVED, out -> writeLike(out, filmId, userId));
+            filmLikes.remove(userId);
+            unindexLike(filmId, userId);
+            popularity.decrement(filmId);
+            versions.touch(filmId);
+            return appended;
+        });
+        if (position < 0) {
+            return false;
+        }
+        wal.awaitDurable(position);
+        log.info("Удален лайк у фильма {} от пользователя {}", filmId, userId);
+        return true;
+    }
+
+    /**
+     * Операции группируются по фильму: полоса фильма берётся один раз на группу, а позиция
+     * в индексе популярности сдвигается на итоговую разницу. Порядок операций внутри фильма сохраняется.
+     */
+    @Override
+    public List<BatchItemResult> applyLikes(List<LikeOperation> operations) {
+        BatchItemResult[] results = new BatchItemResult[operations.size()];
+        Map<Long, List<Integer>> indexesByFilm = new LinkedHashMap<>();
+        for (int i = 0; i < operations.size(); i++) {
+            indexesByFilm.computeIfAbsent(operations.get(i).getFilmId(), key -> new ArrayList<>()).add(i);
+        }
+
+        long lastPosition = 0L;
+        for (Map.Entry<Long, List<Integer>> group : indexesByFilm.entrySet()) {
+            long filmId = group.getKey();
+            long position = locks.withLock(filmId, () -> {
+                CompactLongSet filmLikes = likes.get(filmId);
+                long appended = 0L;
+                int delta = 0;
+                boolean changed = false;
+                try {
+                    for (int index : group.getValue()) {
+                        LikeOperation operation = operations.get(index);
+                        long userId = operation.getUserId();
+                        if (filmLikes == null) {
+                            results[index] = BatchItemResult.notFound(index, "Фильм с id=" + filmId + " не найден");
+                            continue;
+                        }
+                        if (operation.getAction() == BatchAction.REMOVE) {
+                            if (!filmLikes.contains(userId)) {
+                                results[index] = BatchItemResult.unchanged(index);
+                                continue;
+                            }
+                            appended = wal.append(LIKE_REMOVED, out -> writeLike(out, filmId, userId));
+                            filmLikes.remove(userId);
+                            unindexLike(filmId, userId);
+                            delta--;
+                            changed = true;
+                        } else if (filmLikes.contains(userId)) {
+                            results[index] = BatchItemResult.invalid(index,
+                                    "Пользователь " + userId + " уже поставил лайк фильму " + filmId);
+                            continue;
+                        } else {
+                            appended = wal.append(LIKE_ADDED, out -> writeLike(out, filmId, userId));
+                            filmLikes.add(userId);
+                            indexLike(filmId, userId);
+                            delta++;
+                            changed = true;
+                        }
+                        results[index] = BatchItemResult.ok(index);
+                    }
+                } finally {
+                    // Лайки, попавшие в журнал до сбоя, уже применены — индекс должен их учесть.
+                    popularity.adjust(filmId, delta);
+                    if (changed) {
+                        versions.touch(filmId);
+                    }
+                }
+                return appended;
+            });
+            lastPosition = Math.max(lastPosition, position);
         }
+        wal.awaitDurable(lastPosition);
+        log.info("Применён пакет из {} операций с лайками к {} фильмам", operations.size(), indexesByFilm.size());
+        return Arrays.asList(results);
     }
 
     @Override
     public Collection<Film> getPopularFilms(int count) {
         log.info("Запрошено {} популярных фильмов", count);
 
-        return films.values().stream()
-                .sorted((f1, f2) -> {
-                    int likes1 = likes.getOrDefault(f1.getId(), new HashSet<>()).size();
-                    int likes2 = likes.getOrDefault(f2.getId(), new HashSet<>()).size();
-                    return Integer.compare(likes2, likes1);
-                })
-                .limit(count)
+        return popularity.top(count).stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
-    private void validateFilmExists(Long filmId) {
-        if (!films.containsKey(filmId)) {
+    @Override
+    public List<Film> search(String query, int limit) {
+        long[] ids = searchIndex.search(query, limit, this::likesCount);
+        List<Film> found = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Film film = films.get(id);
+            if (film != null) {
+                found.add(film);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public int getLikesCount(Long filmId) {
+        CompactLongSet filmLikes = filmId == null ? null : likes.get(filmId);
+        return filmLikes == null ? 0 : locks.read(filmId, filmLikes::size);
+    }
+
+    /**
+     * Рекомендации по пользователям с похожими лайками. Похожесть — число общих лайков, причём
+     * сравниваются не больше {@link #RECOMMENDATION_FAN_OUT} фильмов пользователя и без хитов;
+     * фильм получает сумму похожестей {@link #RECOMMENDATION_NEIGHBOURS} ближайших соседей,
+     * которые его лайкнули. Фильмы, уже лайкнутые пользователем, не рекомендуются.
+     */
+    @Override
+    public List<Film> getRecommendations(Long userId, int limit) {
+        if (userId == null) {
+            return new ArrayList<>();
+        }
+        long self = userId;
+        long[] own = likedFilmIds(self);
+        long[] scanned = GraphWalk.lowDegreeFirst(own, this::likesCount, RECOMMENDATION_MAX_FILM_LIKES,
+                RECOMMENDATION_FAN_OUT);
+        LongCounter overlap = GraphWalk.countNeighbours(scanned, this::likerIds, id -> 1);
+        long[] neighbours = overlap.top(RECOMMENDATION_NEIGHBOURS,
+                id -> id == self || likedFilmsCount(id) > RECOMMENDATION_MAX_USER_LIKES);
+        LongCounter scores = GraphWalk.countNeighbours(neighbours, this::likedFilmIds, overlap::get);
+
+        Arrays.sort(own);
+        List<Film> recommendations = new ArrayList<>(limit);
+        for (long filmId : scores.top(limit, id -> Arrays.binarySearch(own, id) >= 0)) {
+            Film film = films.get(filmId);
+            if (film != null) {
+                recommendations.add(film);
+            }
+        }
+        return recommendations;
+    }
+
+    @Override
+    public Optional<String> getVersion(Long id) {
+        return id != null && films.containsKey(id) ? Optional.of(versions.version(id)) : Optional.empty();
+    }
+
+    @Override
+    public String getVersion() {
+        return versions.version();
+    }
+
+    /**
+     * Обход без блокировок: размеры наборов читаются как есть, для метрик такой точности достаточно.
+     */
+    @Override
+    public StorageStats stats() {
+        long count = 0;
+        long total = 0;
+        int largest = 0;
+        for (CompactLongSet filmLikes : likes.values()) {
+            int size = filmLikes.size();
+            count++;
+            total += size;
+            largest = Math.max(largest, size);
+        }
+        return new StorageStats(count, total, largest);
+    }
+
+    /**
+     * Снимок хранилища в фоне. Запись не останавливается: каждый фильм читается согласованно
+     * под своей полосой, а то, что снимок не застал, восстановится из журнала.
+     */
+    void snapshot() {
+        snapshots.checkpoint(NAME, wal, this::writeSnapshot);
+    }
+
+    @PreDestroy
+    void close() {
+        if (snapshotTask != null) {
+            snapshotTask.cancel(false);
+        }
+        snapshot();
+        wal.close();
+    }
+
+    private void store(long id, String name, Film film, CompactLongSet filmLikes) {
+        namesByFilmId.put(id, name);
+        likes.put(id, filmLikes);
+        for (long userId : filmLikes.toArray()) {
+            indexLike(id, userId);
+        }
+        film.setLikes(new LongSetView(locks, id, filmLikes));
+        popularity.add(id, filmLikes.size());
+        films.put(id, film);
+        searchIndex.put(id, film);
+    }
+
+    private void remove(long id) {
+        films.remove(id);
+        searchIndex.remove(id);
+        filmIdsByName.remove(namesByFilmId.remove(id), id);
+        CompactLongSet filmLikes = likes.remove(id);
+        if (filmLikes != null) {
+            for (long userId : filmLikes.toArray()) {
+                unindexLike(id, userId);
+            }
+        }
+        popularity.remove(id);
+    }
+
+    /**
+     * Применяет запись журнала при старте. Записи уже прошли проверки в момент операции,
+     * поэтому здесь они применяются без них: параллельные переименования могли попасть в журнал
+     * не в том порядке, в каком освобождались названия.
+     */
+    private void replay(byte type, DataInput in) throws IOException {
+        switch (type) {
+            case FILM_CREATED -> {
+                Film film = readFilm(in);
+                long id = film.getId();
+                if (films.containsKey(id)) {
+                    // Фильм уже попал в снимок; все его дальнейшие изменения идут в журнале следом.
+                    remove(id);
+                }
+                String name = normalizeName(film.getName());
+                filmIdsByName.put(name, id);
+                store(id, name, film, new CompactLongSet());
+                currentId.accumulateAndGet(id + 1, Math::max);
+            }
+            case FILM_UPDATED -> {
+                Film film = readFilm(in);
+                long id = film.getId();
+                String oldName = namesByFilmId.get(id);
+                if (oldName == null) {
+                    log.warn("Журнал фильмов: пропущено обновление несуществующего фильма {}", id);
+                    return;
+                }
+                String newName = normalizeName(film.getName());
+                filmIdsByName.remove(oldName, id);
+                filmIdsByName.put(newName, id);
+                namesByFilmId.put(id, newName);
+                film.setLikes(new LongSetView(locks, id, likes.get(id)));
+                films.put(id, film);
+                searchIndex.put(id, film);
+            }
+            case FILM_DELETED -> {
+                long id = in.readLong();
+                if (films.containsKey(id)) {
+                    remove(id);
+                }
+            }
+            case LIKE_ADDED, LIKE_REMOVED -> {
+                long filmId = in.readLong();
+                long userId = in.readLong();
+                CompactLongSet filmLikes = likes.get(filmId);
+                if (filmLikes == null) {
+                    return;
+                }
+                if (type == LIKE_ADDED && filmLikes.add(userId)) {
+                    indexLike(filmId, userId);
+                    popularity.increment(filmId);
+                } else if (type == LIKE_REMOVED && filmLikes.remove(userId)) {
+                    unindexLike(filmId, userId);
+                    popularity.decrement(filmId);
+                }
+            }
+            default -> throw new StorageException("Неизвестный тип записи в журнале фильмов: " + type, null);
+        }
+    }
+
+    private void writeSnapshot(SnapshotFile.Writer out) throws IOException {
+        for (Long id : films.keySet()) {
+            FilmState state = locks.read(id, () -> capture(id));
+            if (state == null) {
+                continue;
+            }
+            Film film = state.film();
+            out.putLong(id)
+                    .putString(film.getName())
+                    .putString(film.getDescription())
+                    .putDate(film.getReleaseDate())
+                    .putInt(film.getDuration())
+                    .putLongs(state.likes())
+                    .endRecord();
+        }
+    }
+
+    private FilmState capture(long id) {
+        Film film = films.get(id);
+        CompactLongSet filmLikes = likes.get(id);
+        return film == null || filmLikes == null ? null : new FilmState(film, filmLikes.toArray());
+    }
+
+    private void loadSnapshot(SnapshotFile.Reader in) throws IOException {
+        while (in.nextRecord()) {
+            Film film = new Film();
+            long id = in.getLong();
+            film.setId(id);
+            film.setName(in.getString());
+            film.setDescription(in.getString());
+            film.setReleaseDate(in.getDate());
+            film.setDuration(in.getInt());
+            String name = normalizeName(film.getName());
+            filmIdsByName.put(name, id);
+            store(id, name, film, CompactLongSet.of(in.getLongs()));
+            currentId.accumulateAndGet(id + 1, Math::max);
+        }
+    }
+
+    private static void writeFilm(DataOutput out, Film film) throws IOException {
+        out.writeLong(film.getId());
+        WriteAheadLog.writeString(out, film.getName());
+        WriteAheadLog.writeString(out, film.getDescription());
+        WriteAheadLog.writeDate(out, film.getReleaseDate());
+        out.writeInt(film.getDuration());
+    }
+
+    private static Film readFilm(DataInput in) throws IOException {
+        Film film = new Film();
+        film.setId(in.readLong());
+        film.setName(WriteAheadLog.readString(in));
+        film.setDescription(WriteAheadLog.readString(in));
+        film.setReleaseDate(WriteAheadLog.readDate(in));
+        film.setDuration(in.readInt());
+        return film;
+    }
+
+    private static void writeLike(DataOutput out, long filmId, long userId) throws IOException {
+        out.writeLong(filmId);
+        out.writeLong(userId);
+    }
+
+    private static String normalizeName(String name) {
+        if (name == null) {
+            throw new ValidationException("Название фильма не может быть пустым");
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private void indexLike(long filmId, long userId) {
+        userLocks.withLock(userId, () -> {
+            likedFilms.computeIfAbsent(userId, key -> new CompactLongSet()).add(filmId);
+        });
+    }
+
+    private void unindexLike(long filmId, long userId) {
+        userLocks.withLock(userId, () -> {
+            CompactLongSet userLikes = likedFilms.get(userId);
+            if (userLikes != null && userLikes.remove(filmId) && userLikes.isEmpty()) {
+                likedFilms.remove(userId);
+            }
+        });
+    }
+
+    @Override
+    public Set<Long> getLikedFilmIds(Long userId) {
+        long[] ids = likedFilmIds(userId);
+        Set<Long> liked = new HashSet<>(ids.length * 2);
+        for (long id : ids) {
+            liked.add(id);
+        }
+        return liked;
+    }
+
+    private long[] likedFilmIds(long userId) {
+        CompactLongSet userLikes = likedFilms.get(userId);
+        return userLikes == null ? new long[0] : userLocks.read(userId, userLikes::toArray);
+    }
+
+    private long[] likerIds(long filmId) {
+        CompactLongSet filmLikes = likes.get(filmId);
+        return filmLikes == null ? new long[0] : locks.read(filmId, filmLikes::toArray);
+    }
+
+    /**
+     * Размер набора читается без блокировки — для отбора обходимых фильмов точность не нужна.
+     */
+    private int likesCount(long filmId) {
+        CompactLongSet filmLikes = likes.get(filmId);
+        return filmLikes == null ? 0 : filmLikes.size();
+    }
+
+    private int likedFilmsCount(long userId) {
+        CompactLongSet userLikes = likedFilms.get(userId);
+        return userLikes == null ? 0 : userLikes.size();
+    }
+
+    private CompactLongSet getFilmLikes(Long filmId) {
+        CompactLongSet filmLikes = likes.get(filmId);
+        if (filmLikes == null) {
             throw new NotFoundException("Фильм с id=" + filmId + " не найден");
         }
+        return filmLikes;
+    }
+
+    private record FilmState(Film film, long[] likes) {
     }
-}
\ No newline at end of file
+}
@@ -1,22 +1,92 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.StorageException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchAction;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.FriendOperation;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory", matchIfMissing = true)
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Long, User> users = new HashMap<>();
+    private static final String NAME = "users";
 
-    private final Map<Long, Set<Long>> friends = new HashMap<>();
+    private static final byte USER_CREATED = 1;
+    private static final byte USER_UPDATED = 2;
+    private static final byte USER_DELETED = 3;
+    private static final byte FRIEND_ADDED = 4;
+    private static final byte FRIEND_REMOVED = 5;
 
-    private long currentId = 1L;
+    /**
+     * Сколько друзей с наименьшим числом собственных друзей обходится при подборе рекомендаций.
+     */
+    private static final int SUGGESTION_FAN_OUT = 1000;
+
+    /**
+     * Друзья с большим числом друзей при подборе рекомендаций пропускаются: через такого «хаба»
+     * знаком почти каждый, а обход его списка стоил бы больше, чем весь остальной подбор.
+     */
+    private static final int SUGGESTION_MAX_DEGREE = 500;
+
+    private final NavigableMap<Long, User> users = new ConcurrentSkipListMap<>();
+
+    private final Map<Long, CompactLongSet> friends = new ConcurrentHashMap<>();
+
+    private final Map<String, Long> userIdsByEmail = new ConcurrentHashMap<>();
+
+    private final Map<Long, String> emailsByUserId = new ConcurrentHashMap<>();
+
+    private final StripedLocks locks = new StripedLocks();
+
+    private final EntityVersions versions = new EntityVersions();
+
+    private final AtomicLong currentId = new AtomicLong(1L);
+
+    private final WriteAheadLog wal;
+
+    private final SnapshotStore snapshots;
+
+    private final ScheduledFuture<?> snapshotTask;
+
+    public InMemoryUserStorage() {
+        this(WriteAheadLog.disabled(), SnapshotStore.disabled());
+    }
+
+    @Autowired
+    InMemoryUserStorage(WriteAheadLogFactory walFactory, SnapshotStore snapshots) {
+        this(walFactory.open(NAME), snapshots);
+    }
+
+    /**
+     * Восстанавливает состояние: снимок, затем записи журнала, сделанные после его начала.
+     */
+    InMemoryUserStorage(WriteAheadLog wal, SnapshotStore snapshots) {
+        this.wal = wal;
+        this.snapshots = snapshots;
+        long fromSegment = snapshots.load(NAME, this::loadSnapshot);
+        wal.replay(fromSegment, this::replay);
+        snapshotTask = snapshots.schedule(this::snapshot);
+    }
 
     @Override
     public Collection<User> findAll() {
@@ -24,108 +94,628 @@ public class InMemoryUserStorage implements UserStorage {
         return new ArrayList<>(users.values());
     }
 
+    @Override
+    public List<User> findAll(Long afterId, int limit) {
+        NavigableMap<Long, User> tail = afterId == null ? users : users.tailMap(afterId, false);
+        List<User> page = new ArrayList<>(Math.min(limit, tail.size()));
+        for (User user : tail.values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(user);
+        }
+        return page;
+    }
+
+    @Override
+    public void forEach(Consumer<? super User> action) {
+        users.values().forEach(action);
+    }
+
     @Override
     public Optional<User> findById(Long id) {
-        return Optional.ofNullable(users.get(id));
+        return id == null ? Optional.empty() : Optional.ofNullable(users.get(id));
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        Long id = userIdsByEmail.get(normalizeEmail(email));
+        return id == null ? Optional.empty() : findById(id);
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        for (Long id : ids) {
+            if (id != null && users.containsKey(id)) {
+                existing.add(id);
+            }
+        }
+        return existing;
     }
 
     @Override
     public User create(User user) {
-        boolean emailExists = users.values().stream()
-                .anyMatch(u -> u.getEmail().equalsIgnoreCase(user.getEmail()));
-        if (emailExists) {
+        String email = normalizeEmail(user.getEmail());
+        long[] allocatedId = new long[1];
+        userIdsByEmail.computeIfAbsent(email, key -> allocatedId[0] = currentId.getAndIncrement());
+        if (allocatedId[0] == 0) {
             throw new ValidationException("Пользователь с email " + user.getEmail() + " уже существует");
         }
 
-        user.setId(currentId++);
-        users.put(user.getId(), user);
-        friends.put(user.getId(), new HashSet<>());
+        long id = allocatedId[0];
+        user.setId(id);
+        long position;
+        try {
+            position = locks.withLock(id, () -> {
+                long appended = wal.append(USER_CREATED, out -> writeUser(out, user));
+                store(id, email, user, new CompactLongSet());
+                versions.touch(id);
+                return appended;
+            });
+        } catch (RuntimeException e) {
+            userIdsByEmail.remove(email, id);
+            throw e;
+        }
+        wal.awaitDurable(position);
         log.info("Создан пользователь с id: {}", user.getId());
         return user;
     }
 
     @Override
     public User update(User user) {
-        if (!users.containsKey(user.getId())) {
-            throw new NotFoundException("Пользователь с id=" + user.getId() + " не найден");
+        Long id = user.getId();
+        if (id == null) {
+            throw new NotFoundException("Пользователь с id=" + id + " не найден");
         }
 
-        boolean emailExists = users.values().stream()
-                .filter(u -> !u.getId().equals(user.getId()))
-                .anyMatch(u -> u.getEmail().equalsIgnoreCase(user.getEmail()));
-        if (emailExists) {
-            throw new ValidationException("Email " + user.getEmail() + " уже используется другим пользователем");
-        }
+        long position = locks.withLock(id, () -> {
+            String oldEmail = emailsByUserId.get(id);
+            if (oldEmail == null) {
+                throw new NotFoundException("Пользователь с id=" + id + " не найден");
+            }
 
-        users.put(user.getId(), user);
+            String newEmail = normalizeEmail(user.getEmail());
+            boolean emailChanged = !oldEmail.equals(newEmail);
+            if (emailChanged) {
+                Long owner = userIdsByEmail.putIfAbsent(newEmail, id);
+                if (owner != null && !owner.equals(id)) {
+                    throw new ValidationException("Email " + user.getEmail()
+                            + " уже используется другим пользователем");
+                }
+            }
+            long appended;
+            try {
+                appended = wal.append(USER_UPDATED, out -> writeUser(out, user));
+            } catch (RuntimeException e) {
+                if (emailChanged) {
+                    userIdsByEmail.remove(newEmail, id);
+                }
+                throw e;
+            }
+            if (emailChanged) {
+                userIdsByEmail.remove(oldEmail, id);
+                emailsByUserId.put(id, newEmail);
+            }
+
+            user.setFriends(new LongSetView(locks, id, friends.get(id)));
+            users.put(id, user);
+            versions.touch(id);
+            return appended;
+        });
+        wal.awaitDurable(position);
         log.info("Обновлен пользователь с id: {}", user.getId());
         return user;
     }
 
     @Override
     public void delete(Long id) {
-        if (!users.containsKey(id)) {
+        long position = deleteUser(id, Set.of());
+        if (position < 0) {
             throw new NotFoundException("Пользователь с id=" + id + " не найден");
         }
-
-        users.remove(id);
-        friends.values().forEach(friendSet -> friendSet.remove(id));
-        friends.remove(id);
+        wal.awaitDurable(position);
         log.info("Удален пользователь с id: {}", id);
     }
 
     @Override
-    public void addFriend(Long userId, Long friendId) {
-        validateUserExists(userId);
-        validateUserExists(friendId);
+    public int deleteAll(Collection<Long> ids) {
+        Set<Long> purged = new HashSet<>(ids);
+        int deleted = 0;
+        long lastPosition = 0L;
+        for (Long id : purged) {
+            long position = deleteUser(id, purged);
+            if (position >= 0) {
+                deleted++;
+                lastPosition = Math.max(lastPosition, position);
+            }
+        }
+        wal.awaitDurable(lastPosition);
+        log.info("Удалено пользователей: {} из {} запрошенных", deleted, purged.size());
+        return deleted;
+    }
 
+    @Override
+    public void addFriend(Long userId, Long friendId) {
         if (userId.equals(friendId)) {
+            validateUserExists(userId);
             throw new ValidationException("Нельзя добавить самого себя в друзья");
         }
 
-        friends.computeIfAbsent(userId, k -> new HashSet<>()).add(friendId);
-        friends.computeIfAbsent(friendId, k -> new HashSet<>()).add(userId);
+        wal.awaitDurable(befriend(userId, friendId));
         log.info("Пользователь {} добавил в друзья пользователя {}", userId, friendId);
     }
 
     @Override
     public void removeFriend(Long userId, Long friendId) {
-        if (friends.containsKey(userId)) {
-            friends.get(userId).remove(friendId);
-        }
-        if (friends.containsKey(friendId)) {
-            friends.get(friendId).remove(userId);
-        }
+        wal.awaitDurable(unfriend(userId, friendId));
         log.info("Пользователь {} удалил из друзей пользователя {}", userId, friendId);
     }
 
+    /**
+     * Операции пакета пишутся в журнал по одной, но ожидание сброса на диск одно — на последнюю запись.
+     */
+    @Override
+    public List<BatchItemResult> applyFriendships(List<FriendOperation> operations) {
+        List<BatchItemResult> results = new ArrayList<>(operations.size());
+        long lastPosition = 0L;
+        for (int i = 0; i < operations.size(); i++) {
+            FriendOperation operation = operations.get(i);
+            Long userId = operation.getUserId();
+            Long friendId = operation.getFriendId();
+            try {
+                if (operation.getAction() == BatchAction.REMOVE) {
+                    lastPosition = Math.max(lastPosition, unfriend(userId, friendId));
+                } else if (userId.equals(friendId)) {
+                    throw new ValidationException("Нельзя добавить самого себя в друзья");
+                } else {
+                    lastPosition = Math.max(lastPosition, befriend(userId, friendId));
+                }
+                results.add(BatchItemResult.ok(i));
+            } catch (NotFoundException e) {
+                results.add(BatchItemResult.notFound(i, e.getMessage()));
+            } catch (ValidationException e) {
+                results.add(BatchItemResult.invalid(i, e.getMessage()));
+            }
+        }
+        wal.awaitDurable(lastPosition);
+        log.info("Применён пакет из {} операций с друзьями", operations.size());
+        return results;
+    }
+
     @Override
     public Set<Long> getFriends(Long userId) {
         validateUserExists(userId);
-        return friends.getOrDefault(userId, new HashSet<>());
+        CompactLongSet userFriends = friends.get(userId);
+        return userFriends == null ? Set.of() : new LongSetView(locks, userId, userFriends);
+    }
+
+    /**
+     * Страница списка друзей по возрастанию id. Большие списки хранятся в хеш-таблице без порядка,
+     * поэтому стоимость пропорциональна числу друзей пользователя, но не числу всех пользователей.
+     */
+    @Override
+    public List<Long> getFriends(Long userId, Long afterId, int limit) {
+        validateUserExists(userId);
+        CompactLongSet userFriends = friends.get(userId);
+        if (userFriends == null) {
+            return List.of();
+        }
+
+        long[] friendIds = locks.read(userId, userFriends::toArray);
+        long lowerBound = afterId == null ? Long.MIN_VALUE : afterId;
+        int count = 0;
+        for (long friendId : friendIds) {
+            if (friendId > lowerBound) {
+                friendIds[count++] = friendId;
+            }
+        }
+        Arrays.sort(friendIds, 0, count);
+
+        List<Long> page = new ArrayList<>(Math.min(limit, count));
+        for (int i = 0; i < count && page.size() < limit; i++) {
+            page.add(friendIds[i]);
+        }
+        return page;
     }
 
     @Override
     public Collection<User> getCommonFriends(Long userId, Long otherId) {
+        long[] commonFriendIds = intersectFriends(userId, otherId, CompactLongSet::retainContained);
+
+        List<User> commonFriends = new ArrayList<>(commonFriendIds.length);
+        for (long friendId : commonFriendIds) {
+            User friend = users.get(friendId);
+            if (friend != null) {
+                commonFriends.add(friend);
+            }
+        }
+        return commonFriends;
+    }
+
+    @Override
+    public int getCommonFriendsCount(Long userId, Long otherId) {
+        return intersectFriends(userId, otherId, CompactLongSet::countContained);
+    }
+
+    /**
+     * Обход ограничен {@link #SUGGESTION_FAN_OUT} × {@link #SUGGESTION_MAX_DEGREE} элементами списков
+     * друзей, сколько бы друзей ни было у пользователя; см. {@link GraphWalk}. Лучшие отбираются
+     * кучей размера {@code limit}.
+     */
+    @Override
+    public List<FriendSuggestion> getFriendSuggestions(Long userId, int limit) {
+        validateUserExists(userId);
+        long[] direct = friendIds(userId);
+        long[] fanOut = GraphWalk.lowDegreeFirst(direct, this::friendsCount, SUGGESTION_MAX_DEGREE,
+                SUGGESTION_FAN_OUT);
+        LongCounter mutual = GraphWalk.countNeighbours(fanOut, this::friendIds, id -> 1);
+
+        Arrays.sort(direct);
+        long self = userId;
+        long[] top = mutual.top(limit, id -> id == self || Arrays.binarySearch(direct, id) >= 0);
+        List<FriendSuggestion> suggestions = new ArrayList<>(top.length);
+        for (long id : top) {
+            User user = users.get(id);
+            if (user != null) {
+                suggestions.add(new FriendSuggestion(user, mutual.get(id)));
+            }
+        }
+        return suggestions;
+    }
+
+    @Override
+    public Optional<String> getVersion(Long id) {
+        return id != null && users.containsKey(id) ? Optional.of(versions.version(id)) : Optional.empty();
+    }
+
+    /**
+     * Список друзей содержит самих друзей вместе с их списками друзей, поэтому его версия —
+     * наибольшая из версий пользователя и его друзей.
+     */
+    @Override
+    public Optional<String> getFriendsVersion(Long id) {
+        if (id == null || !users.containsKey(id)) {
+            return Optional.empty();
+        }
+        CompactLongSet userFriends = friends.get(id);
+        long[] friendIds = userFriends == null ? new long[0] : locks.read(id, userFriends::toArray);
+        return Optional.of(versions.version(id, friendIds));
+    }
+
+    /**
+     * Обход без блокировок: размеры наборов читаются как есть, для метрик такой точности достаточно.
+     * Дружба взаимна и лежит в двух наборах, поэтому сумма делится пополам.
+     */
+    @Override
+    public StorageStats stats() {
+        long count = 0;
+        long total = 0;
+        int largest = 0;
+        for (CompactLongSet userFriends : friends.values()) {
+            int size = userFriends.size();
+            count++;
+            total += size;
+            largest = Math.max(largest, size);
+        }
+        return new StorageStats(count, total / 2, largest);
+    }
+
+    /**
+     * Пересечение списков друзей: снимок меньшего списка проверяется по большему
+     * без блокировки писателей. {@code probe} решает, что вернуть — сами id или только их число.
+     */
+    private <T> T intersectFriends(Long userId, Long otherId, BiFunction<CompactLongSet, long[], T> probe) {
         validateUserExists(userId);
         validateUserExists(otherId);
 
-        Set<Long> userFriends = getFriends(userId);
-        Set<Long> otherFriends = getFriends(otherId);
+        CompactLongSet userFriends = friends.getOrDefault(userId, new CompactLongSet());
+        CompactLongSet otherFriends = friends.getOrDefault(otherId, new CompactLongSet());
+
+        long smallerId = userId;
+        long largerId = otherId;
+        CompactLongSet smaller = userFriends;
+        CompactLongSet larger = otherFriends;
+        if (locks.read(userId, userFriends::size) > locks.read(otherId, otherFriends::size)) {
+            smallerId = otherId;
+            largerId = userId;
+            smaller = otherFriends;
+            larger = userFriends;
+        }
+
+        long[] candidates = locks.read(smallerId, smaller::toArray);
+        CompactLongSet probed = larger;
+        return locks.read(largerId, () -> probe.apply(probed, candidates));
+    }
+
+    /**
+     * Возвращает номер записи в журнале или 0, если пользователи уже дружат.
+     */
+    private long befriend(Long userId, Long friendId) {
+        return locks.withLocks(userId, friendId, () -> {
+            validateUserExists(userId);
+            validateUserExists(friendId);
+
+            CompactLongSet userFriends = friends.get(userId);
+            if (userFriends.contains(friendId)) {
+                return 0L;
+            }
+            long appended = wal.append(FRIEND_ADDED, out -> writeFriendship(out, userId, friendId));
+            userFriends.add(friendId);
+            friends.get(friendId).add(userId);
+            versions.touch(userId);
+            versions.touch(friendId);
+            return appended;
+        });
+    }
+
+    private long unfriend(Long userId, Long friendId) {
+        return locks.withLocks(userId, friendId, () -> {
+            CompactLongSet userFriends = friends.get(userId);
+            if (userFriends == null || !userFriends.contains(friendId)) {
+                return 0L;
+            }
+            long appended = wal.append(FRIEND_REMOVED, out -> writeFriendship(out, userId, friendId));
+            unlink(userId, friendId);
+            versions.touch(userId);
+            versions.touch(friendId);
+            return appended;
+        });
+    }
+
+    /**
+     * Дружба симметрична, поэтому собственный список друзей удаляемого пользователя
+     * точно указывает, из каких списков его нужно убрать: стоимость пропорциональна числу друзей.
+     * Списки пользователей из {@code skipCleanup} не чистятся — они удаляются в той же пачке.
+     * Чистка идёт уже после освобождения полосы удаляемого пользователя, чтобы не держать
+     * две полосы в произвольном порядке; новые дружбы с ним к этому моменту невозможны.
+     * Возвращает номер записи в журнале или -1, если пользователя нет.
+     */
+    private long deleteUser(Long id, Set<Long> skipCleanup) {
+        long[] position = {-1L};
+        long[] userFriends = locks.withLock(id, () -> {
+            if (!users.containsKey(id)) {
+                return null;
+            }
+            position[0] = wal.append(USER_DELETED, out -> out.writeLong(id));
+            long[] detached = detach(id);
+            versions.touch(id);
+            return detached;
+        });
+        if (userFriends == null) {
+            return -1L;
+        }
+        for (long friendId : userFriends) {
+            if (skipCleanup.contains(friendId)) {
+                continue;
+            }
+            locks.withLock(friendId, () -> {
+                CompactLongSet friendFriends = friends.get(friendId);
+                if (friendFriends != null) {
+                    friendFriends.remove(id);
+                    versions.touch(friendId);
+                }
+            });
+        }
+        return position[0];
+    }
+
+    /**
+     * Снимок хранилища в фоне. Запись не останавливается: каждый пользователь читается согласованно
+     * под своей полосой, а то, что снимок не застал, восстановится из журнала.
+     */
+    void snapshot() {
+        snapshots.checkpoint(NAME, wal, this::writeSnapshot);
+    }
+
+    @PreDestroy
+    void close() {
+        if (snapshotTask != null) {
+            snapshotTask.cancel(false);
+        }
+        snapshot();
+        wal.close();
+    }
+
+    private void store(long id, String email, User user, CompactLongSet userFriends) {
+        emailsByUserId.put(id, email);
+        friends.put(id, userFriends);
+        user.setFriends(new LongSetView(locks, id, userFriends));
+        users.put(id, user);
+    }
+
+    /**
+     * Убирает пользователя из хранилища и возвращает его список друзей; чужие списки не трогает.
+     */
+    private long[] detach(long id) {
+        users.remove(id);
+        userIdsByEmail.remove(emailsByUserId.remove(id), id);
+        CompactLongSet removed = friends.remove(id);
+        return removed == null ? new long[0] : removed.toArray();
+    }
+
+    private void unlink(long userId, long friendId) {
+        CompactLongSet userFriends = friends.get(userId);
+        if (userFriends != null) {
+            userFriends.remove(friendId);
+        }
+        CompactLongSet friendFriends = friends.get(friendId);
+        if (friendFriends != null) {
+            friendFriends.remove(userId);
+        }
+    }
+
+    /**
+     * Применяет запись журнала при старте, без проверок: они выполнены в момент операции.
+     */
+    private void replay(byte type, DataInput in) throws IOException {
+        switch (type) {
+            case USER_CREATED -> {
+                User user = readUser(in);
+                long id = user.getId();
+                if (users.containsKey(id)) {
+                    // Пользователь уже попал в снимок; все его дальнейшие изменения идут в журнале следом.
+                    purge(id);
+                }
+                String email = normalizeEmail(user.getEmail());
+                userIdsByEmail.put(email, id);
+                store(id, email, user, new CompactLongSet());
+                currentId.accumulateAndGet(id + 1, Math::max);
+            }
+            case USER_UPDATED -> {
+                User user = readUser(in);
+                long id = user.getId();
+                String oldEmail = emailsByUserId.get(id);
+                if (oldEmail == null) {
+                    log.warn("Журнал пользователей: пропущено обновление несуществующего пользователя {}", id);
+                    return;
+                }
+                String newEmail = normalizeEmail(user.getEmail());
+                userIdsByEmail.remove(oldEmail, id);
+                userIdsByEmail.put(newEmail, id);
+                emailsByUserId.put(id, newEmail);
+                user.setFriends(new LongSetView(locks, id, friends.get(id)));
+                users.put(id, user);
+            }
+            case USER_DELETED -> {
+                long id = in.readLong();
+                if (users.containsKey(id)) {
+                    purge(id);
+                }
+            }
+            case FRIEND_ADDED -> {
+                long userId = in.readLong();
+                long friendId = in.readLong();
+                CompactLongSet userFriends = friends.get(userId);
+                CompactLongSet friendFriends = friends.get(friendId);
+                if (userFriends != null && friendFriends != null) {
+                    userFriends.add(friendId);
+                    friendFriends.add(userId);
+                }
+            }
+            case FRIEND_REMOVED -> unlink(in.readLong(), in.readLong());
+            default -> throw new StorageException("Неизвестный тип записи в журнале пользователей: " + type, null);
+        }
+    }
+
+    /**
+     * Удаление при восстановлении, когда блокировки не нужны: пользователь и его след в чужих списках.
+     */
+    private void purge(long id) {
+        for (long friendId : detach(id)) {
+            CompactLongSet friendFriends = friends.get(friendId);
+            if (friendFriends != null) {
+                friendFriends.remove(id);
+            }
+        }
+    }
+
+    private void writeSnapshot(SnapshotFile.Writer out) throws IOException {
+        for (Long id : users.keySet()) {
+            UserState state = locks.read(id, () -> capture(id));
+            if (state == null) {
+                continue;
+            }
+            User user = state.user();
+            out.putLong(id)
+                    .putString(user.getEmail())
+                    .putString(user.getLogin())
+                    .putString(user.getName())
+                    .putDate(user.getBirthday())
+                    .putLongs(state.friends())
+                    .endRecord();
+        }
+    }
+
+    private UserState capture(long id) {
+        User user = users.get(id);
+        CompactLongSet userFriends = friends.get(id);
+        return user == null || userFriends == null ? null : new UserState(user, userFriends.toArray());
+    }
 
-        Set<Long> commonFriendIds = new HashSet<>(userFriends);
-        commonFriendIds.retainAll(otherFriends);
+    /**
+     * Списки друзей в снимке могут быть сняты с разницей во времени, поэтому дружба
+     * восстанавливается в обе стороны, а ссылки на пользователей, которых в снимке нет, пропускаются.
+     * Точное состояние дают записи журнала, проигрываемые следом.
+     */
+    private void loadSnapshot(SnapshotFile.Reader in) throws IOException {
+        while (in.nextRecord()) {
+            User user = new User();
+            long id = in.getLong();
+            user.setId(id);
+            user.setEmail(in.getString());
+            user.setLogin(in.getString());
+            user.setName(in.getString());
+            user.setBirthday(in.getDate());
+            String email = normalizeEmail(user.getEmail());
+            userIdsByEmail.put(email, id);
+            store(id, email, user, CompactLongSet.of(in.getLongs()));
+            currentId.accumulateAndGet(id + 1, Math::max);
+        }
+        friends.forEach((id, own) -> {
+            for (long friendId : own.toArray()) {
+                CompactLongSet other = friends.get(friendId);
+                if (other == null) {
+                    own.remove(friendId);
+                } else {
+                    other.add(id);
+                }
+            }
+        });
+    }
 
-        return commonFriendIds.stream()
-                .map(this::findById)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toList());
+    private static void writeUser(DataOutput out, User user) throws IOException {
+        out.writeLong(user.getId());
+        WriteAheadLog.writeString(out, user.getEmail());
+        WriteAheadLog.writeString(out, user.getLogin());
+        WriteAheadLog.writeString(out, user.getName());
+        WriteAheadLog.writeDate(out, user.getBirthday());
+    }
+
+    private static User readUser(DataInput in) throws IOException {
+        User user = new User();
+        user.setId(in.readLong());
+        user.setEmail(WriteAheadLog.readString(in));
+        user.setLogin(WriteAheadLog.readString(in));
+        user.setName(WriteAheadLog.readString(in));
+        user.setBirthday(WriteAheadLog.readDate(in));
+        return user;
+    }
+
+    private static void writeFriendship(DataOutput out, long userId, long friendId) throws IOException {
+        out.writeLong(userId);
+        out.writeLong(friendId);
+    }
+
+    private static String normalizeEmail(String email) {
+        if (email == null) {
+            throw new ValidationException("Некорректный email");
+        }
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Размер набора читается без блокировки — для отбора обходимых друзей точность не нужна.
+     */
+    private int friendsCount(long userId) {
+        CompactLongSet userFriends = friends.get(userId);
+        return userFriends == null ? 0 : userFriends.size();
+    }
+
+    private long[] friendIds(long userId) {
+        CompactLongSet userFriends = friends.get(userId);
+        return userFriends == null ? new long[0] : locks.read(userId, userFriends::toArray);
     }
 
     private void validateUserExists(Long userId) {
-        if (!users.containsKey(userId)) {
+        if (userId == null || !users.containsKey(userId)) {
             throw new NotFoundException("Пользователь с id=" + userId + " не найден");
         }
     }
-}
\ No newline at end of file
+
+    private record UserState(User user, long[] friends) {
+    }
+}
@@ -0,0 +1,201 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.function.LongPredicate;
+
+/**
+ * Счётчики по id без упаковки в объекты: открытая адресация, как в {@link CompactLongSet}.
+ * Id 0 служит пустой ячейкой — id сущностей начинаются с 1.
+ */
+final class LongCounter {
+    private static final long FREE = 0L;
+
+    private long[] keys;
+
+    private int[] counts;
+
+    private int size;
+
+    LongCounter(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        counts = new int[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void increment(long key) {
+        add(key, 1);
+    }
+
+    void add(long key, int delta) {
+        int mask = keys.length - 1;
+        int index = indexFor(key, mask);
+        while (keys[index] != FREE) {
+            if (keys[index] == key) {
+                counts[index] += delta;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        counts[index] = delta;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    /**
+     * Поднимает счётчик до {@code value}, если он меньше.
+     */
+    void raise(long key, int value) {
+        int current = get(key);
+        if (value > current) {
+            add(key, value - current);
+        }
+    }
+
+    int get(long key) {
+        int mask = keys.length - 1;
+        int index = indexFor(key, mask);
+        while (keys[index] != FREE) {
+            if (keys[index] == key) {
+                return counts[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return 0;
+    }
+
+    long[] keys() {
+        long[] result = new long[size];
+        int next = 0;
+        for (long key : keys) {
+            if (key != FREE) {
+                result[next++] = key;
+            }
+        }
+        return result;
+    }
+
+    void addAll(LongCounter other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != FREE) {
+                add(other.keys[i], other.counts[i]);
+            }
+        }
+    }
+
+    /**
+     * До {@code limit} id с наибольшими счётчиками, при равенстве — с меньшим id; id из {@code skip}
+     * не учитываются. Кандидаты проходят через кучу размера {@code limit}, а не через полную сортировку:
+     * стоимость — O(n log limit).
+     */
+    long[] top(int limit, LongPredicate skip) {
+        if (limit <= 0) {
+            return new long[0];
+        }
+        long[] heapKeys = new long[limit];
+        int[] heapCounts = new int[limit];
+        int heapSize = 0;
+        for (int i = 0; i < keys.length; i++) {
+            long key = keys[i];
+            if (key == FREE) {
+                continue;
+            }
+            int count = counts[i];
+            if (heapSize == limit && !ranksAbove(count, key, heapCounts[0], heapKeys[0])) {
+                continue;
+            }
+            if (skip.test(key)) {
+                continue;
+            }
+            if (heapSize < limit) {
+                heapKeys[heapSize] = key;
+                heapCounts[heapSize] = count;
+                siftUp(heapKeys, heapCounts, heapSize++);
+            } else {
+                heapKeys[0] = key;
+                heapCounts[0] = count;
+                siftDown(heapKeys, heapCounts, heapSize);
+            }
+        }
+
+        long[] result = new long[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            result[i] = heapKeys[0];
+            heapKeys[0] = heapKeys[i];
+            heapCounts[0] = heapCounts[i];
+            siftDown(heapKeys, heapCounts, i);
+        }
+        return result;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[capacity];
+        counts = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int index = indexFor(oldKeys[i], mask);
+                while (keys[index] != FREE) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                counts[index] = oldCounts[i];
+            }
+        }
+    }
+
+    /**
+     * В вершине кучи — худший из отобранных, чтобы его можно было вытеснить.
+     */
+    private static void siftUp(long[] heapKeys, int[] heapCounts, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksAbove(heapCounts[parent], heapKeys[parent], heapCounts[index], heapKeys[index])) {
+                return;
+            }
+            swap(heapKeys, heapCounts, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] heapKeys, int[] heapCounts, int size) {
+        int index = 0;
+        while (true) {
+            int worst = index;
+            for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                if (ranksAbove(heapCounts[worst], heapKeys[worst], heapCounts[child], heapKeys[child])) {
+                    worst = child;
+                }
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(heapKeys, heapCounts, worst, index);
+            index = worst;
+        }
+    }
+
+    private static boolean ranksAbove(int count, long key, int otherCount, long otherKey) {
+        return count > otherCount || count == otherCount && key < otherKey;
+    }
+
+    private static void swap(long[] heapKeys, int[] heapCounts, int i, int j) {
+        long key = heapKeys[i];
+        heapKeys[i] = heapKeys[j];
+        heapKeys[j] = key;
+        int count = heapCounts[i];
+        heapCounts[i] = heapCounts[j];
+        heapCounts[j] = count;
+    }
+
+    private static int indexFor(long value, int mask) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Неизменяемое представление {@link CompactLongSet} в виде {@code Set<Long>} для моделей и сервисов.
+ * Каждое обращение читает актуальное состояние хранилища через полосу блокировок владельца,
+ * итератор проходит по согласованному снимку.
+ */
+final class LongSetView extends AbstractSet<Long> {
+    private final StripedLocks locks;
+
+    private final long ownerId;
+
+    private final CompactLongSet set;
+
+    LongSetView(StripedLocks locks, long ownerId, CompactLongSet set) {
+        this.locks = locks;
+        this.ownerId = ownerId;
+        this.set = set;
+    }
+
+    long[] snapshot() {
+        return locks.read(ownerId, set::toArray);
+    }
+
+    @Override
+    public int size() {
+        return locks.read(ownerId, set::size);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long value && locks.read(ownerId, () -> set.contains(value));
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        long[] elements = snapshot();
+        return new Iterator<>() {
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                return position < elements.length;
+            }
+
+            @Override
+            public Long next() {
+                if (position == elements.length) {
+                    throw new NoSuchElementException();
+                }
+                return elements[position++];
+            }
+        };
+    }
+}
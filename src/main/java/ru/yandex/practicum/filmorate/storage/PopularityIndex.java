@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Упорядоченный индекс фильмов по количеству лайков.
+ * Порядок: больше лайков — выше, при равенстве — меньший id выше.
+ * Обновляется при каждом лайке, поэтому выборка топ-N стоит O(N), а не сортировку всего каталога.
+ * Изменения одного фильма должны выполняться под его блокировкой; чтение не блокируется.
+ */
+class PopularityIndex {
+    private static final Comparator<Rank> ORDER = Comparator
+            .comparingInt(Rank::likes).reversed()
+            .thenComparingLong(Rank::filmId);
+
+    private final NavigableSet<Rank> ranks = new ConcurrentSkipListSet<>(ORDER);
+
+    private final Map<Long, Integer> likeCounts = new ConcurrentHashMap<>();
+
+    void add(long filmId, int likes) {
+        if (likeCounts.putIfAbsent(filmId, likes) == null) {
+            ranks.add(new Rank(filmId, likes));
+        }
+    }
+
+    void remove(long filmId) {
+        Integer likes = likeCounts.remove(filmId);
+        if (likes != null) {
+            ranks.remove(new Rank(filmId, likes));
+        }
+    }
+
+    void increment(long filmId) {
+        adjust(filmId, 1);
+    }
+
+    void decrement(long filmId) {
+        adjust(filmId, -1);
+    }
+
+    int likes(long filmId) {
+        return likeCounts.getOrDefault(filmId, 0);
+    }
+
+    List<Long> top(int count) {
+        List<Long> result = new ArrayList<>(Math.min(count, likeCounts.size()));
+        Set<Long> seen = new HashSet<>();
+        Iterator<Rank> iterator = ranks.iterator();
+        while (result.size() < count && iterator.hasNext()) {
+            long filmId = iterator.next().filmId();
+            if (seen.add(filmId)) {
+                result.add(filmId);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Сдвигает фильм сразу на {@code delta} лайков: пакет лайков одному фильму переставляет его один раз.
+     */
+    void adjust(long filmId, int delta) {
+        Integer likes = likeCounts.get(filmId);
+        if (likes == null || delta == 0) {
+            return;
+        }
+        int updated = Math.max(0, likes + delta);
+        // Сначала новая позиция, потом удаление старой: параллельное чтение может увидеть фильм дважды
+        // (это отсекается в top), но никогда не потеряет его.
+        ranks.add(new Rank(filmId, updated));
+        ranks.remove(new Rank(filmId, likes));
+        likeCounts.put(filmId, updated);
+    }
+
+    private record Rank(long filmId, int likes) {
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Пакетная запись операций, где ошибка одной операции не отменяет остальные. Серия однотипных
+ * операций уходит одним {@code executeBatch} под точкой сохранения; если она нарушает ограничение,
+ * серия откатывается до точки и повторяется по одной операции, каждая под своей точкой.
+ * Обычный путь остаётся одним сетевым проходом на серию.
+ */
+final class SavepointBatch {
+    /**
+     * Результат операции, нарушившей ограничение: её строки не записаны.
+     */
+    static final int VIOLATED = -1;
+
+    private final JdbcTemplate jdbc;
+
+    private final TransactionTemplate transaction;
+
+    private final TransactionTemplate savepoint;
+
+    SavepointBatch(JdbcTemplate jdbc, PlatformTransactionManager transactionManager) {
+        this.jdbc = jdbc;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.savepoint = new TransactionTemplate(transactionManager);
+        this.savepoint.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+    }
+
+    /**
+     * Выполняет {@code action} в одной транзакции; внутри неё вызывается {@link #write}.
+     */
+    void inTransaction(Runnable action) {
+        transaction.executeWithoutResult(status -> action.run());
+    }
+
+    /**
+     * Пишет операции серии: у каждой свои строки для {@code sql}.
+     *
+     * @return число изменённых строк по каждой операции или {@link #VIOLATED}
+     */
+    int[] write(String sql, List<List<Object[]>> operations) {
+        int[] updated = new int[operations.size()];
+        if (operations.isEmpty()) {
+            return updated;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        operations.forEach(rows::addAll);
+        try {
+            int[] counts = savepoint.execute(status -> jdbc.batchUpdate(sql, rows));
+            int row = 0;
+            for (int i = 0; i < operations.size(); i++) {
+                for (int j = 0; j < operations.get(i).size(); j++) {
+                    updated[i] += Math.max(counts[row++], 0);
+                }
+            }
+        } catch (DataIntegrityViolationException e) {
+            for (int i = 0; i < operations.size(); i++) {
+                updated[i] = writeOne(sql, operations.get(i));
+            }
+        }
+        return updated;
+    }
+
+    private int writeOne(String sql, List<Object[]> rows) {
+        try {
+            return savepoint.execute(status -> {
+                int updated = 0;
+                for (Object[] row : rows) {
+                    updated += jdbc.update(sql, row);
+                }
+                return updated;
+            });
+        } catch (DataIntegrityViolationException e) {
+            return VIOLATED;
+        }
+    }
+}
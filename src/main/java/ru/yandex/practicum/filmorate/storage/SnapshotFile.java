@@ -0,0 +1,234 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.exception.StorageException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Двоичный формат снимка хранилища. Заголовок: сигнатура, версия, номер сегмента журнала,
+ * с которого нужно продолжить проигрывание, и число записей. Дальше записи {@code [длина][данные]};
+ * строки хранятся как {@code [длина UTF-8][байты]}, списки id — как {@code [n][long × n]},
+ * поэтому списки лайков и друзей читаются одним копированием без разбора по элементу.
+ */
+final class SnapshotFile {
+    private static final int MAGIC = 0x46534E31;
+
+    private static final int VERSION = 1;
+
+    private static final int RECORD_COUNT_OFFSET = Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+    private static final int HEADER_SIZE = RECORD_COUNT_OFFSET + Long.BYTES;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private SnapshotFile() {
+    }
+
+    static final class Writer {
+        private final FileChannel channel;
+
+        private final ByteBuffer out = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+
+        private ByteBuffer record = ByteBuffer.allocate(1 << 12).order(ByteOrder.LITTLE_ENDIAN);
+
+        private long records;
+
+        Writer(FileChannel channel, long walSegment) {
+            this.channel = channel;
+            out.putInt(MAGIC).putInt(VERSION).putLong(walSegment).putLong(0L);
+        }
+
+        Writer putInt(int value) {
+            ensureCapacity(Integer.BYTES);
+            record.putInt(value);
+            return this;
+        }
+
+        Writer putLong(long value) {
+            ensureCapacity(Long.BYTES);
+            record.putLong(value);
+            return this;
+        }
+
+        Writer putString(String value) {
+            if (value == null) {
+                return putInt(-1);
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensureCapacity(Integer.BYTES + bytes.length);
+            record.putInt(bytes.length).put(bytes);
+            return this;
+        }
+
+        Writer putDate(LocalDate value) {
+            return putLong(value == null ? NO_DATE : value.toEpochDay());
+        }
+
+        Writer putLongs(long[] values) {
+            ensureCapacity(Integer.BYTES + values.length * Long.BYTES);
+            record.putInt(values.length);
+            record.asLongBuffer().put(values);
+            record.position(record.position() + values.length * Long.BYTES);
+            return this;
+        }
+
+        void endRecord() throws IOException {
+            record.flip();
+            if (out.remaining() < Integer.BYTES) {
+                drain();
+            }
+            out.putInt(record.remaining());
+            while (record.hasRemaining()) {
+                if (!out.hasRemaining()) {
+                    drain();
+                }
+                int chunk = Math.min(out.remaining(), record.remaining());
+                out.put(out.position(), record, record.position(), chunk);
+                out.position(out.position() + chunk);
+                record.position(record.position() + chunk);
+            }
+            record.clear();
+            records++;
+        }
+
+        /**
+         * Дописывает буфер, проставляет число записей в заголовке и сбрасывает файл на диск.
+         */
+        void finish() throws IOException {
+            drain();
+            channel.write(ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(0, records),
+                    RECORD_COUNT_OFFSET);
+            channel.force(true);
+        }
+
+        private void drain() throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            out.clear();
+        }
+
+        private void ensureCapacity(int bytes) {
+            if (record.remaining() < bytes) {
+                int capacity = Math.max(record.capacity() * 2, record.position() + bytes);
+                ByteBuffer grown = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+                grown.put(record.flip());
+                record = grown;
+            }
+        }
+    }
+
+    /**
+     * Чтение через отображение файла в память окнами до 1 ГБ: данные не копируются в кучу целиком,
+     * а страницы подтягиваются ОС по мере чтения.
+     */
+    static final class Reader {
+        private static final long WINDOW = 1L << 30;
+
+        private final FileChannel channel;
+
+        private final long size;
+
+        private final long walSegment;
+
+        private final long recordCount;
+
+        private MappedByteBuffer window;
+
+        private long windowStart;
+
+        private ByteBuffer record;
+
+        private long recordsRead;
+
+        Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new StorageException("Снимок повреждён: нет заголовка", null);
+            }
+            map(0);
+            if (window.getInt() != MAGIC || window.getInt() != VERSION) {
+                throw new StorageException("Неизвестный формат снимка", null);
+            }
+            walSegment = window.getLong();
+            recordCount = window.getLong();
+        }
+
+        long walSegment() {
+            return walSegment;
+        }
+
+        boolean nextRecord() throws IOException {
+            if (windowStart + window.position() >= size) {
+                if (recordsRead != recordCount) {
+                    throw new StorageException("Снимок повреждён: прочитано записей " + recordsRead
+                            + " из " + recordCount, null);
+                }
+                return false;
+            }
+            ensureAvailable(Integer.BYTES);
+            int length = window.getInt();
+            if (length < 0) {
+                throw new StorageException("Снимок повреждён: отрицательная длина записи", null);
+            }
+            ensureAvailable(length);
+            record = window.slice(window.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+            window.position(window.position() + length);
+            recordsRead++;
+            return true;
+        }
+
+        int getInt() {
+            return record.getInt();
+        }
+
+        long getLong() {
+            return record.getLong();
+        }
+
+        String getString() {
+            int length = record.getInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            record.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        LocalDate getDate() {
+            long epochDay = record.getLong();
+            return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+        }
+
+        long[] getLongs() {
+            long[] values = new long[record.getInt()];
+            record.asLongBuffer().get(values);
+            record.position(record.position() + values.length * Long.BYTES);
+            return values;
+        }
+
+        private void ensureAvailable(int bytes) throws IOException {
+            if (window.remaining() < bytes) {
+                map(windowStart + window.position());
+                if (window.remaining() < bytes) {
+                    throw new StorageException("Снимок повреждён: запись обрывается", null);
+                }
+            }
+        }
+
+        private void map(long position) throws IOException {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, WINDOW));
+            window.order(ByteOrder.LITTLE_ENDIAN);
+            windowStart = position;
+        }
+    }
+}
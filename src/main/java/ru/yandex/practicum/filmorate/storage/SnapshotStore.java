@@ -0,0 +1,153 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.StorageException;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Снимки in-memory хранилищ по настройкам {@code filmorate.snapshot.*}: периодическая запись
+ * в фоне и загрузка при старте. Снимок пишется во временный файл и атомарно подменяет прежний,
+ * так что при падении посреди записи остаётся предыдущий целый снимок.
+ */
+@Slf4j
+@Component
+class SnapshotStore {
+    @FunctionalInterface
+    interface Body {
+        void write(SnapshotFile.Writer out) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface Loader {
+        void load(SnapshotFile.Reader in) throws IOException;
+    }
+
+    private final boolean enabled;
+
+    private final Path directory;
+
+    private final long intervalSeconds;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+
+    SnapshotStore(@Value("${filmorate.snapshot.enabled:false}") boolean enabled,
+                  @Value("${filmorate.snapshot.dir:./data/snapshot}") Path directory,
+                  @Value("${filmorate.snapshot.interval-seconds:300}") long intervalSeconds) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.intervalSeconds = intervalSeconds;
+        this.scheduler = enabled && intervalSeconds > 0
+                ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "snapshot-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+    }
+
+    static SnapshotStore disabled() {
+        return new SnapshotStore(false, null, 0);
+    }
+
+    /**
+     * Загружает снимок, если он есть, и возвращает номер сегмента журнала, с которого
+     * нужно продолжить проигрывание; без снимка — 0, то есть журнал целиком.
+     */
+    long load(String name, Loader loader) {
+        Path path = snapshotPath(name);
+        if (!enabled || !Files.exists(path)) {
+            return 0L;
+        }
+        long started = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            SnapshotFile.Reader reader = new SnapshotFile.Reader(channel);
+            loader.load(reader);
+            log.info("Снимок {} загружен за {} мс", path, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            return reader.walSegment();
+        } catch (IOException e) {
+            throw new StorageException("Не удалось прочитать снимок " + path, e);
+        }
+    }
+
+    /**
+     * Снимок вместе с журналом: новый сегмент журнала начинается до обхода данных,
+     * поэтому всё, что снимок мог не застать, окажется в сегментах начиная с этого номера.
+     * Обход не останавливает запись, а повторное проигрывание уже учтённых операций безвредно.
+     * После записи снимка старые сегменты больше не нужны.
+     */
+    void checkpoint(String name, WriteAheadLog wal, Body body) {
+        if (!enabled) {
+            return;
+        }
+        checkpointLock.lock();
+        try {
+            long started = System.nanoTime();
+            long walSegment = wal.rotate();
+            write(name, walSegment, body);
+            wal.deleteSegmentsBefore(walSegment);
+            log.info("Снимок {} записан за {} мс", name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    /**
+     * Ставит периодический снимок; вызывающий отменяет задачу при остановке.
+     */
+    ScheduledFuture<?> schedule(Runnable snapshot) {
+        if (scheduler == null) {
+            return null;
+        }
+        return scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot.run();
+            } catch (RuntimeException e) {
+                log.error("Не удалось записать снимок", e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    private void write(String name, long walSegment, Body body) {
+        Path path = snapshotPath(name);
+        Path temporary = directory.resolve(name + ".snapshot.tmp");
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                SnapshotFile.Writer writer = new SnapshotFile.Writer(channel, walSegment);
+                body.write(writer);
+                writer.finish();
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new StorageException("Не удалось записать снимок " + path, e);
+        }
+    }
+
+    private Path snapshotPath(String name) {
+        return directory == null ? null : directory.resolve(name + ".snapshot");
+    }
+}
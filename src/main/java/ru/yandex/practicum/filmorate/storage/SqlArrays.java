@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Массивы SQL для хранилищ на базе данных: id лайков и друзей читаются одним {@code ARRAY_AGG},
+ * а наборы id передаются одним параметром для {@code = ANY(?)}.
+ */
+final class SqlArrays {
+    private SqlArrays() {
+    }
+
+    static List<Long> longs(ResultSet rs, String column) throws SQLException {
+        Array array = rs.getArray(column);
+        if (array == null) {
+            return List.of();
+        }
+        Object[] values = (Object[]) array.getArray();
+        List<Long> result = new ArrayList<>(values.length);
+        for (Object value : values) {
+            if (value != null) {
+                result.add(((Number) value).longValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Один параметр-массив; приведение к {@link Object} не даёт ему развернуться в varargs.
+     */
+    static Object param(Collection<Long> ids) {
+        return ids.toArray(Long[]::new);
+    }
+}
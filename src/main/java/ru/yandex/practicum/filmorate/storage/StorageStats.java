@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.storage;
+
+/**
+ * Сводка хранилища для метрик: число сущностей, число связей (лайков или дружб)
+ * и размер самого большого набора связей у одной сущности.
+ */
+public record StorageStats(long entities, long links, int largestLinkSet) {
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * Набор блокировок, распределённых по id сущности.
+ * Операции над разными фильмами или пользователями почти всегда попадают в разные полосы
+ * и не ждут друг друга, в отличие от одной общей блокировки на хранилище.
+ * Блокировки не реентерабельны: внутри действия нельзя снова захватывать полосу.
+ */
+class StripedLocks {
+    private final StampedLock[] stripes;
+
+    StripedLocks() {
+        this(Runtime.getRuntime().availableProcessors() * 16);
+    }
+
+    StripedLocks(int concurrency) {
+        int size = Integer.highestOneBit(Math.max(2, concurrency - 1)) << 1;
+        stripes = new StampedLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new StampedLock();
+        }
+    }
+
+    <T> T withLock(long id, Supplier<T> action) {
+        StampedLock lock = stripeFor(id);
+        long stamp = lock.writeLock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    void withLock(long id, Runnable action) {
+        withLock(id, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Захватывает полосы двух id всегда в одном порядке, чтобы встречные операции
+     * (например, взаимное добавление в друзья) не приводили к взаимной блокировке.
+     */
+    <T> T withLocks(long firstId, long secondId, Supplier<T> action) {
+        int first = indexFor(firstId);
+        int second = indexFor(secondId);
+        if (first == second) {
+            return withLock(firstId, action);
+        }
+        StampedLock outer = stripes[Math.min(first, second)];
+        StampedLock inner = stripes[Math.max(first, second)];
+        long outerStamp = outer.writeLock();
+        try {
+            long innerStamp = inner.writeLock();
+            try {
+                return action.get();
+            } finally {
+                inner.unlockWrite(innerStamp);
+            }
+        } finally {
+            outer.unlockWrite(outerStamp);
+        }
+    }
+
+    void withLocks(long firstId, long secondId, Runnable action) {
+        withLocks(firstId, secondId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Чтение без блокировки писателей: сначала оптимистичная попытка, и только если
+     * за это время в полосу кто-то писал, чтение повторяется под блокировкой чтения.
+     * Действие не должно иметь побочных эффектов — при неудачной попытке оно выполняется повторно.
+     */
+    <T> T read(long id, Supplier<T> reader) {
+        StampedLock lock = stripeFor(id);
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0L) {
+            try {
+                T result = reader.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // Несогласованное состояние при гонке с записью — перечитываем под блокировкой.
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private StampedLock stripeFor(long id) {
+        return stripes[indexFor(id)];
+    }
+
+    private int indexFor(long id) {
+        int hash = Long.hashCode(id) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+}
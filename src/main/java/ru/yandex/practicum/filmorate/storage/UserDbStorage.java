@@ -0,0 +1,431 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchAction;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.FriendOperation;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "db")
+public class UserDbStorage implements UserStorage {
+    private static final String SELECT_USERS = """
+            SELECT u.id, u.email, u.login, u.name, u.birthday,
+                   ARRAY_AGG(fr.friend_id) FILTER (WHERE fr.friend_id IS NOT NULL) AS friends
+            FROM users u
+            LEFT JOIN friendships fr ON fr.user_id = u.id
+            """;
+    private static final String GROUP_BY_USER = """
+            GROUP BY u.id, u.email, u.login, u.name, u.birthday
+            """;
+    private static final String COMMON_FRIEND_IDS = """
+            SELECT a.friend_id
+            FROM friendships a
+            JOIN friendships b ON b.friend_id = a.friend_id
+            WHERE a.user_id = ? AND b.user_id = ?
+            """;
+    private static final String SUGGESTED_FRIEND_IDS = """
+            SELECT fof.friend_id, COUNT(*) AS mutual
+            FROM friendships f
+            JOIN friendships fof ON fof.user_id = f.friend_id
+            WHERE f.user_id = ? AND fof.friend_id <> ?
+              AND fof.friend_id NOT IN (SELECT friend_id FROM friendships WHERE user_id = ?)
+            GROUP BY fof.friend_id
+            ORDER BY mutual DESC, fof.friend_id
+            LIMIT ?
+            """;
+    private static final String MERGE_FRIENDSHIP =
+            "MERGE INTO friendships (user_id, friend_id) KEY (user_id, friend_id) VALUES (?, ?)";
+    private static final String DELETE_FRIENDSHIP = "DELETE FROM friendships WHERE user_id = ? AND friend_id = ?";
+
+    private final JdbcTemplate jdbc;
+
+    private final SimpleJdbcInsert insertUser;
+
+    private final SavepointBatch batch;
+
+    private final EntityVersions versions = new EntityVersions();
+
+    public UserDbStorage(JdbcTemplate jdbc, PlatformTransactionManager transactionManager) {
+        this.jdbc = jdbc;
+        this.insertUser = new SimpleJdbcInsert(jdbc)
+                .withTableName("users")
+                .usingColumns("email", "email_normalized", "login", "name", "birthday")
+                .usingGeneratedKeyColumns("id");
+        this.batch = new SavepointBatch(jdbc, transactionManager);
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return jdbc.query(SELECT_USERS + GROUP_BY_USER + "ORDER BY u.id", UserDbStorage::mapUser);
+    }
+
+    @Override
+    public List<User> findAll(Long afterId, int limit) {
+        return jdbc.query(SELECT_USERS + "WHERE u.id > ? " + GROUP_BY_USER + "ORDER BY u.id LIMIT ?",
+                UserDbStorage::mapUser, afterId == null ? 0L : afterId, limit);
+    }
+
+    @Override
+    public void forEach(Consumer<? super User> action) {
+        jdbc.query(SELECT_USERS + GROUP_BY_USER + "ORDER BY u.id",
+                (RowCallbackHandler) rs -> action.accept(mapUser(rs, rs.getRow())));
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        return findOne("WHERE u.id = ? ", id);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        return findOne("WHERE u.email_normalized = ? ", normalizeEmail(email));
+    }
+
+    @Override
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        Set<Long> requested = new HashSet<>(ids);
+        requested.remove(null);
+        if (requested.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(jdbc.queryForList("SELECT id FROM users WHERE id = ANY(?)",
+                Long.class, SqlArrays.param(requested)));
+    }
+
+    @Override
+    public User create(User user) {
+        try {
+            Number id = insertUser.executeAndReturnKey(new MapSqlParameterSource()
+                    .addValue("email", user.getEmail())
+                    .addValue("email_normalized", normalizeEmail(user.getEmail()))
+                    .addValue("login", user.getLogin())
+                    .addValue("name", user.getName())
+                    .addValue("birthday", user.getBirthday()));
+            user.setId(id.longValue());
+        } catch (DuplicateKeyException e) {
+            throw new ValidationException("Пользователь с email " + user.getEmail() + " уже существует");
+        }
+        user.setFriends(new HashSet<>());
+        versions.touch(user.getId());
+        log.info("Создан пользователь с id: {}", user.getId());
+        return user;
+    }
+
+    @Override
+    public User update(User user) {
+        int updated;
+        try {
+            updated = jdbc.update("""
+                            UPDATE users
+                            SET email = ?, email_normalized = ?, login = ?, name = ?, birthday = ?
+                            WHERE id = ?
+                            """,
+                    user.getEmail(), normalizeEmail(user.getEmail()), user.getLogin(), user.getName(),
+                    user.getBirthday(), user.getId());
+        } catch (DuplicateKeyException e) {
+            throw new ValidationException("Email " + user.getEmail() + " уже используется другим пользователем");
+        }
+        if (updated == 0) {
+            throw new NotFoundException("Пользователь с id=" + user.getId() + " не найден");
+        }
+        versions.touch(user.getId());
+        user.setFriends(new HashSet<>(friendIds(user.getId())));
+        log.info("Обновлен пользователь с id: {}", user.getId());
+        return user;
+    }
+
+    /**
+     * Каскад убирает пользователя из чужих списков друзей, поэтому версии бывших друзей тоже меняются.
+     */
+    @Override
+    public void delete(Long id) {
+        List<Long> formerFriends = friendIds(id);
+        if (jdbc.update("DELETE FROM users WHERE id = ?", id) == 0) {
+            throw new NotFoundException("Пользователь с id=" + id + " не найден");
+        }
+        versions.touch(id);
+        formerFriends.forEach(versions::touch);
+        log.info("Удален пользователь с id: {}", id);
+    }
+
+    /**
+     * Дружбы и лайки удаляются каскадом по внешним ключам; сами удаления идут одной пачкой.
+     */
+    @Override
+    public int deleteAll(Collection<Long> ids) {
+        Set<Long> unique = new LinkedHashSet<>(ids);
+        List<Object[]> rows = new ArrayList<>(unique.size());
+        for (Long id : unique) {
+            rows.add(new Object[]{id});
+        }
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        List<Long> formerFriends = jdbc.queryForList(
+                "SELECT DISTINCT friend_id FROM friendships WHERE user_id = ANY(?)",
+                Long.class, SqlArrays.param(unique));
+        int deleted = 0;
+        for (int count : jdbc.batchUpdate("DELETE FROM users WHERE id = ?", rows)) {
+            deleted += Math.max(count, 0);
+        }
+        unique.forEach(versions::touch);
+        formerFriends.forEach(versions::touch);
+        log.info("Удалено пользователей: {} из {} запрошенных", deleted, rows.size());
+        return deleted;
+    }
+
+    @Override
+    public void addFriend(Long userId, Long friendId) {
+        validateUsersExist(userId, friendId);
+        if (userId.equals(friendId)) {
+            throw new ValidationException("Нельзя добавить самого себя в друзья");
+        }
+
+        batch.inTransaction(() -> jdbc.batchUpdate(MERGE_FRIENDSHIP, List.of(
+                new Object[]{userId, friendId},
+                new Object[]{friendId, userId})));
+        versions.touch(userId);
+        versions.touch(friendId);
+        log.info("Пользователь {} добавил в друзья пользователя {}", userId, friendId);
+    }
+
+    @Override
+    public void removeFriend(Long userId, Long friendId) {
+        batch.inTransaction(() -> jdbc.batchUpdate(DELETE_FRIENDSHIP, List.of(
+                new Object[]{userId, friendId},
+                new Object[]{friendId, userId})));
+        versions.touch(userId);
+        versions.touch(friendId);
+        log.info("Пользователь {} удалил из друзей пользователя {}", userId, friendId);
+    }
+
+    /**
+     * Существование всех пользователей пакета проверяется одним запросом, а изменения пишутся
+     * в одной транзакции: подряд идущие операции одного вида уходят одним {@code executeBatch}.
+     * Если пользователя удалили уже после проверки, внешний ключ отклоняет только его операцию
+     * ({@link SavepointBatch}), остальные записываются.
+     */
+    @Override
+    public List<BatchItemResult> applyFriendships(List<FriendOperation> operations) {
+        Set<Long> ids = new HashSet<>();
+        for (FriendOperation operation : operations) {
+            ids.add(operation.getUserId());
+            ids.add(operation.getFriendId());
+        }
+        Set<Long> existing = findExistingIds(ids);
+
+        BatchItemResult[] results = new BatchItemResult[operations.size()];
+        List<Integer> accepted = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            FriendOperation operation = operations.get(i);
+            Long userId = operation.getUserId();
+            Long friendId = operation.getFriendId();
+            if (!existing.contains(userId) || !existing.contains(friendId)) {
+                Long missing = existing.contains(userId) ? friendId : userId;
+                results[i] = BatchItemResult.notFound(i, "Пользователь с id=" + missing + " не найден");
+            } else if (operation.getAction() == BatchAction.ADD && userId.equals(friendId)) {
+                results[i] = BatchItemResult.invalid(i, "Нельзя добавить самого себя в друзья");
+            } else {
+                accepted.add(i);
+            }
+        }
+
+        batch.inTransaction(() -> {
+            List<Integer> run = new ArrayList<>();
+            BatchAction current = null;
+            for (int index : accepted) {
+                if (operations.get(index).getAction() != current) {
+                    writeFriendships(operations, run, results);
+                    run.clear();
+                    current = operations.get(index).getAction();
+                }
+                run.add(index);
+            }
+            writeFriendships(operations, run, results);
+        });
+        for (int i = 0; i < operations.size(); i++) {
+            if (results[i].getStatus() == BatchItemResult.Status.OK) {
+                versions.touch(operations.get(i).getUserId());
+                versions.touch(operations.get(i).getFriendId());
+            }
+        }
+        log.info("Применён пакет из {} операций с друзьями", operations.size());
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public Set<Long> getFriends(Long userId) {
+        validateUsersExist(userId);
+        return new LinkedHashSet<>(friendIds(userId));
+    }
+
+    @Override
+    public List<Long> getFriends(Long userId, Long afterId, int limit) {
+        validateUsersExist(userId);
+        return jdbc.queryForList("SELECT friend_id FROM friendships WHERE user_id = ? AND friend_id > ? "
+                        + "ORDER BY friend_id LIMIT ?",
+                Long.class, userId, afterId == null ? Long.MIN_VALUE : afterId, limit);
+    }
+
+    /**
+     * Пересечение считается в базе одним соединением таблицы дружб с самой собой.
+     */
+    @Override
+    public Collection<User> getCommonFriends(Long userId, Long otherId) {
+        validateUsersExist(userId, otherId);
+        return jdbc.query(SELECT_USERS + "WHERE u.id IN (" + COMMON_FRIEND_IDS + ") " + GROUP_BY_USER
+                + "ORDER BY u.id", UserDbStorage::mapUser, userId, otherId);
+    }
+
+    @Override
+    public int getCommonFriendsCount(Long userId, Long otherId) {
+        validateUsersExist(userId, otherId);
+        return jdbc.queryForObject("SELECT COUNT(*) FROM (" + COMMON_FRIEND_IDS + ") common",
+                Integer.class, userId, otherId);
+    }
+
+    /**
+     * Друзья друзей считаются и ранжируются в базе; вторым запросом загружаются сами пользователи.
+     */
+    @Override
+    public List<FriendSuggestion> getFriendSuggestions(Long userId, int limit) {
+        validateUsersExist(userId);
+        List<Map.Entry<Long, Integer>> mutual = jdbc.query(SUGGESTED_FRIEND_IDS,
+                (rs, rowNum) -> Map.entry(rs.getLong(1), rs.getInt(2)), userId, userId, userId, limit);
+        if (mutual.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, User> suggested = new HashMap<>();
+        for (User user : jdbc.query(SELECT_USERS + "WHERE u.id = ANY(?) " + GROUP_BY_USER, UserDbStorage::mapUser,
+                SqlArrays.param(mutual.stream().map(Map.Entry::getKey).toList()))) {
+            suggested.put(user.getId(), user);
+        }
+        List<FriendSuggestion> suggestions = new ArrayList<>(mutual.size());
+        for (Map.Entry<Long, Integer> entry : mutual) {
+            User user = suggested.get(entry.getKey());
+            if (user != null) {
+                suggestions.add(new FriendSuggestion(user, entry.getValue()));
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Версии ведутся в памяти приложения, поэтому верны, пока база меняется только через него.
+     */
+    @Override
+    public Optional<String> getVersion(Long id) {
+        return id != null && !findExistingIds(List.of(id)).isEmpty()
+                ? Optional.of(versions.version(id))
+                : Optional.empty();
+    }
+
+    /**
+     * Наибольшая из версий пользователя и его друзей: список содержит друзей вместе с их списками.
+     */
+    @Override
+    public Optional<String> getFriendsVersion(Long id) {
+        if (id == null || findExistingIds(List.of(id)).isEmpty()) {
+            return Optional.empty();
+        }
+        long[] friendIds = friendIds(id).stream().mapToLong(Long::longValue).toArray();
+        return Optional.of(versions.version(id, friendIds));
+    }
+
+    /**
+     * Дружба хранится двумя строками, поэтому число строк делится пополам.
+     */
+    @Override
+    public StorageStats stats() {
+        return jdbc.queryForObject("""
+                        SELECT (SELECT COUNT(*) FROM users) AS users,
+                               (SELECT COUNT(*) FROM friendships) AS friendships,
+                               (SELECT COALESCE(MAX(c), 0)
+                                FROM (SELECT COUNT(*) AS c FROM friendships GROUP BY user_id) per_user) AS largest
+                        """,
+                (rs, rowNum) -> new StorageStats(rs.getLong("users"), rs.getLong("friendships") / 2,
+                        rs.getInt("largest")));
+    }
+
+    private Optional<User> findOne(String where, Object... params) {
+        return jdbc.query(SELECT_USERS + where + GROUP_BY_USER, UserDbStorage::mapUser, params).stream().findFirst();
+    }
+
+    private List<Long> friendIds(Long userId) {
+        return jdbc.queryForList("SELECT friend_id FROM friendships WHERE user_id = ? ORDER BY friend_id",
+                Long.class, userId);
+    }
+
+    private void writeFriendships(List<FriendOperation> operations, List<Integer> run, BatchItemResult[] results) {
+        if (run.isEmpty()) {
+            return;
+        }
+        boolean remove = operations.get(run.get(0)).getAction() == BatchAction.REMOVE;
+        List<List<Object[]>> rows = new ArrayList<>(run.size());
+        for (int index : run) {
+            FriendOperation operation = operations.get(index);
+            rows.add(List.of(
+                    new Object[]{operation.getUserId(), operation.getFriendId()},
+                    new Object[]{operation.getFriendId(), operation.getUserId()}));
+        }
+        int[] updated = batch.write(remove ? DELETE_FRIENDSHIP : MERGE_FRIENDSHIP, rows);
+        for (int i = 0; i < run.size(); i++) {
+            int index = run.get(i);
+            FriendOperation operation = operations.get(index);
+            results[index] = updated[i] == SavepointBatch.VIOLATED
+                    ? BatchItemResult.notFound(index, "Пользователь с id=" + operation.getUserId()
+                            + " или id=" + operation.getFriendId() + " не найден")
+                    : BatchItemResult.ok(index);
+        }
+    }
+
+    private void validateUsersExist(Long... ids) {
+        Set<Long> requested = new LinkedHashSet<>(Arrays.asList(ids));
+        Set<Long> found = findExistingIds(requested);
+        for (Long id : requested) {
+            if (!found.contains(id)) {
+                throw new NotFoundException("Пользователь с id=" + id + " не найден");
+            }
+        }
+    }
+
+    private static User mapUser(ResultSet rs, int rowNum) throws SQLException {
+        User user = new User();
+        user.setId(rs.getLong("id"));
+        user.setEmail(rs.getString("email"));
+        user.setLogin(rs.getString("login"));
+        user.setName(rs.getString("name"));
+        user.setBirthday(rs.getObject("birthday", LocalDate.class));
+        user.setFriends(new LinkedHashSet<>(SqlArrays.longs(rs, "friends")));
+        return user;
+    }
+
+    private static String normalizeEmail(String email) {
+        if (email == null) {
+            throw new ValidationException("Некорректный email");
+        }
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,27 +1,74 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.FriendOperation;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     Collection<User> findAll();
 
+    List<User> findAll(Long afterId, int limit);
+
+    void forEach(Consumer<? super User> action);
+
     Optional<User> findById(Long id);
 
+    Optional<User> findByEmail(String email);
+
+    /**
+     * Какие из переданных id принадлежат существующим пользователям — одним обращением на пакет.
+     */
+    Set<Long> findExistingIds(Collection<Long> ids);
+
     User create(User user);
 
     User update(User user);
 
     void delete(Long id);
 
+    int deleteAll(Collection<Long> ids);
+
     void addFriend(Long userId, Long friendId);
 
     void removeFriend(Long userId, Long friendId);
 
+    /**
+     * Применяет пакет изменений дружбы по порядку и возвращает результат для каждой операции;
+     * ошибка одной операции не отменяет остальные.
+     */
+    List<BatchItemResult> applyFriendships(List<FriendOperation> operations);
+
     Set<Long> getFriends(Long userId);
 
+    List<Long> getFriends(Long userId, Long afterId, int limit);
+
     Collection<User> getCommonFriends(Long userId, Long otherId);
+
+    int getCommonFriendsCount(Long userId, Long otherId);
+
+    /**
+     * До {@code limit} друзей друзей, ещё не ставших друзьями, по убыванию числа общих друзей,
+     * при равенстве — по id.
+     */
+    List<FriendSuggestion> getFriendSuggestions(Long userId, int limit);
+
+    /**
+     * Версия пользователя для ETag; пусто, если пользователя нет.
+     */
+    Optional<String> getVersion(Long id);
+
+    /**
+     * Версия списка друзей для ETag: меняется при изменении состава друзей и данных любого из них;
+     * пусто, если пользователя нет.
+     */
+    Optional<String> getFriendsVersion(Long id);
+
+    StorageStats stats();
 }
\ No newline at end of file
@@ -0,0 +1,500 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exception.StorageException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал изменений in-memory хранилища: каждая операция дописывается в конец файла
+ * двоичной записью {@code [длина][crc32][тип][данные]} и проигрывается при старте.
+ * Журнал состоит из сегментов {@code <имя>-<номер>.wal}; снимок хранилища начинает новый сегмент,
+ * и после записи снимка более старые сегменты удаляются.
+ * <p>
+ * Запись в файл (в кеш страниц) идёт под короткой блокировкой, а сброс на диск — групповой:
+ * один поток вызывает {@code force}, остальные ждут его результата, и одна синхронизация
+ * покрывает все записи, сделанные к её началу. Оборванная запись в хвосте (падение посреди записи)
+ * при проигрывании отбрасывается.
+ */
+@Slf4j
+class WriteAheadLog implements Closeable {
+    private static final int MAGIC = 0x46574C32;
+
+    private static final int FILE_HEADER_SIZE = Integer.BYTES;
+
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES + Integer.BYTES + Byte.BYTES;
+
+    private static final WriteAheadLog DISABLED = new WriteAheadLog(null, null, FsyncPolicy.NEVER, 0);
+
+    enum FsyncPolicy {
+        /** Ответ уходит только после сброса записи на диск. */
+        ALWAYS,
+        /** Сброс в фоне раз в заданный интервал; при падении теряется не больше интервала. */
+        INTERVAL,
+        /** Сброс оставлен операционной системе. */
+        NEVER
+    }
+
+    @FunctionalInterface
+    interface RecordBody {
+        void write(DataOutput out) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface RecordHandler {
+        void apply(byte type, DataInput in) throws IOException;
+    }
+
+    private final Path directory;
+
+    private final String name;
+
+    private final FsyncPolicy policy;
+
+    private final ScheduledExecutorService flusher;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Condition flushed = flushLock.newCondition();
+
+    private volatile FileChannel channel;
+
+    private long segment;
+
+    private volatile long appended;
+
+    private volatile long durable;
+
+    private boolean flushing;
+
+    private volatile boolean failed;
+
+    private volatile boolean closed;
+
+    private WriteAheadLog(Path directory, String name, FsyncPolicy policy, long fsyncIntervalMs) {
+        this.directory = directory;
+        this.name = name;
+        this.policy = policy;
+        if (directory != null && policy == FsyncPolicy.INTERVAL) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wal-flusher-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, fsyncIntervalMs, fsyncIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    static WriteAheadLog disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Открывает журнал для дописывания в последний сегмент; до первой записи нужно вызвать
+     * {@link #replay(long, RecordHandler)}.
+     */
+    static WriteAheadLog open(Path directory, String name, FsyncPolicy policy, long fsyncIntervalMs) {
+        WriteAheadLog wal = new WriteAheadLog(directory, name, policy, fsyncIntervalMs);
+        try {
+            Files.createDirectories(directory);
+            List<Long> segments = wal.segments();
+            wal.segment = segments.isEmpty() ? 1L : segments.get(segments.size() - 1);
+            wal.channel = wal.openSegment(wal.segment);
+        } catch (IOException e) {
+            wal.close();
+            throw new StorageException("Не удалось открыть журнал " + directory.resolve(name), e);
+        }
+        return wal;
+    }
+
+    /**
+     * Проигрывает сегменты начиная с {@code fromSegment} и ставит позицию записи сразу
+     * за последней целой записью. Вызывается один раз, до первой записи.
+     */
+    void replay(long fromSegment, RecordHandler handler) {
+        if (directory == null) {
+            return;
+        }
+        long records = 0;
+        try {
+            for (long number : segments()) {
+                if (number < fromSegment) {
+                    continue;
+                }
+                if (number == segment) {
+                    records += replaySegment(channel, segmentPath(number), handler);
+                } else {
+                    try (FileChannel previous = FileChannel.open(segmentPath(number),
+                            StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                        records += replaySegment(previous, segmentPath(number), handler);
+                    }
+                }
+            }
+            if (segment < fromSegment) {
+                // Сегменты, на которые опирается снимок, пропали: пишем дальше в сегмент снимка,
+                // иначе новые записи оказались бы раньше него и не проигрывались бы.
+                channel.close();
+                segment = fromSegment;
+                channel = openSegment(segment);
+            }
+        } catch (IOException e) {
+            throw new StorageException("Не удалось прочитать журнал " + directory.resolve(name), e);
+        }
+        log.info("Журнал {}: проиграно записей: {}", name, records);
+    }
+
+    /**
+     * Начинает новый сегмент и возвращает его номер. Всё, что записано до вызова,
+     * к этому моменту уже сброшено на диск и лежит в предыдущих сегментах.
+     */
+    long rotate() {
+        if (directory == null) {
+            return 0L;
+        }
+        flushLock.lock();
+        try {
+            while (flushing) {
+                flushed.awaitUninterruptibly();
+            }
+            flushing = true;
+        } finally {
+            flushLock.unlock();
+        }
+
+        long target = 0L;
+        boolean forced = false;
+        appendLock.lock();
+        try {
+            target = appended;
+            FileChannel previous = channel;
+            previous.force(false);
+            forced = true;
+            channel = openSegment(segment + 1);
+            segment++;
+            previous.close();
+            return segment;
+        } catch (IOException e) {
+            failed = true;
+            throw new StorageException("Не удалось начать новый сегмент журнала " + name, e);
+        } finally {
+            appendLock.unlock();
+            finishFlush(forced, target);
+        }
+    }
+
+    /**
+     * Удаляет сегменты, целиком покрытые снимком.
+     */
+    void deleteSegmentsBefore(long fromSegment) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            for (long number : segments()) {
+                if (number < fromSegment) {
+                    Files.deleteIfExists(segmentPath(number));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Не удалось удалить старые сегменты журнала {}", name, e);
+        }
+    }
+
+    /**
+     * Дописывает запись и возвращает её номер для {@link #awaitDurable(long)}.
+     * Порядок записей в файле совпадает с порядком вызовов, поэтому вызывающий пишет в журнал,
+     * удерживая блокировку изменяемой сущности.
+     */
+    long append(byte type, RecordBody body) {
+        if (directory == null) {
+            return 0L;
+        }
+        ByteBuffer record = encode(type, body);
+
+        appendLock.lock();
+        try {
+            if (failed) {
+                throw new StorageException("Журнал " + name + " недоступен после ошибки записи", null);
+            }
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            return ++appended;
+        } catch (IOException e) {
+            failed = true;
+            throw new StorageException("Не удалось записать в журнал " + name, e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * В режиме {@link FsyncPolicy#ALWAYS} ждёт, пока запись с данным номером окажется на диске.
+     * Вызывается после освобождения блокировок сущностей.
+     */
+    void awaitDurable(long sequence) {
+        if (policy == FsyncPolicy.ALWAYS) {
+            flushTo(sequence);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (directory == null || closed) {
+            return;
+        }
+        closed = true;
+        if (flusher != null) {
+            // Без прерывания: прерванный в force() поток закрывает FileChannel для всех.
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        FileChannel current = channel;
+        if (current == null) {
+            return;
+        }
+        try {
+            if (!failed) {
+                flushTo(appended);
+            }
+        } finally {
+            try {
+                current.close();
+            } catch (IOException e) {
+                log.warn("Не удалось закрыть журнал {}", name, e);
+            }
+        }
+    }
+
+    /**
+     * Групповой сброс: первый пришедший поток становится ведущим и делает {@code force}
+     * для всего, что записано к этому моменту; остальные ждут на условии и, если их запись
+     * уже покрыта, выходят без собственной синхронизации.
+     */
+    private void flushTo(long sequence) {
+        while (durable < sequence) {
+            flushLock.lock();
+            try {
+                if (durable >= sequence) {
+                    return;
+                }
+                if (flushing) {
+                    flushed.awaitUninterruptibly();
+                    continue;
+                }
+                flushing = true;
+            } finally {
+                flushLock.unlock();
+            }
+
+            long target = appended;
+            boolean forced = false;
+            try {
+                channel.force(false);
+                forced = true;
+            } catch (IOException e) {
+                failed = true;
+                throw new StorageException("Не удалось сбросить журнал " + name + " на диск", e);
+            } finally {
+                finishFlush(forced, target);
+            }
+        }
+    }
+
+    private void finishFlush(boolean forced, long target) {
+        flushLock.lock();
+        try {
+            if (forced && target > durable) {
+                durable = target;
+            }
+            flushing = false;
+            flushed.signalAll();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flushTo(appended);
+        } catch (RuntimeException e) {
+            log.error("Фоновый сброс журнала {} не удался", name, e);
+        }
+    }
+
+    private long replaySegment(FileChannel segmentChannel, Path path, RecordHandler handler) throws IOException {
+        long validEnd = FILE_HEADER_SIZE;
+        long records = 0;
+        long size = segmentChannel.size();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(segmentChannel.position(0)), 1 << 16));
+        if (size < FILE_HEADER_SIZE || in.readInt() != MAGIC) {
+            throw new StorageException("Файл " + path + " не является журналом", null);
+        }
+
+        byte[] payload = new byte[256];
+        CRC32 crc = new CRC32();
+        while (true) {
+            int length;
+            int checksum;
+            byte type;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+                type = in.readByte();
+                if (length < 0 || length > size - validEnd - RECORD_HEADER_SIZE) {
+                    break;
+                }
+                if (payload.length < length) {
+                    payload = new byte[Math.max(length, payload.length * 2)];
+                }
+                in.readFully(payload, 0, length);
+            } catch (EOFException e) {
+                break;
+            }
+            crc.reset();
+            crc.update(type);
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            handler.apply(type, new DataInputStream(new ByteArrayInputStream(payload, 0, length)));
+            validEnd += RECORD_HEADER_SIZE + length;
+            records++;
+        }
+
+        if (size > validEnd) {
+            log.warn("Журнал {}: отброшен повреждённый хвост, {} байт", path, size - validEnd);
+            segmentChannel.truncate(validEnd);
+            segmentChannel.force(true);
+        }
+        segmentChannel.position(validEnd);
+        return records;
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        FileChannel segmentChannel = FileChannel.open(segmentPath(number),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (segmentChannel.size() < FILE_HEADER_SIZE) {
+            segmentChannel.truncate(0);
+            segmentChannel.write(ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(0, MAGIC), 0);
+            segmentChannel.force(true);
+        }
+        segmentChannel.position(segmentChannel.size());
+        return segmentChannel;
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s-%08d.wal", name, number));
+    }
+
+    private List<Long> segments() throws IOException {
+        Pattern pattern = Pattern.compile(Pattern.quote(name) + "-(\\d+)\\.wal");
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, name + "-*.wal")) {
+            for (Path file : files) {
+                Matcher matcher = pattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    numbers.add(Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private static ByteBuffer encode(byte type, RecordBody body) {
+        RecordBuffer buffer = new RecordBuffer();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(type);
+            body.write(out);
+        } catch (IOException e) {
+            throw new StorageException("Не удалось сформировать запись журнала", e);
+        }
+
+        byte[] bytes = buffer.array();
+        int length = buffer.size() - RECORD_HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        crc.update(bytes, RECORD_HEADER_SIZE - Byte.BYTES, length + Byte.BYTES);
+        return ByteBuffer.wrap(bytes, 0, buffer.size())
+                .putInt(0, length)
+                .putInt(Integer.BYTES, (int) crc.getValue());
+    }
+
+    /**
+     * Строка пишется как {@code [длина][байты UTF-8]}, длина {@code -1} — {@code null}, как в снимке.
+     * {@link DataOutput#writeUTF} не подходит: он ограничен 64 КБ.
+     */
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeDate(DataOutput out, LocalDate value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochDay());
+        }
+    }
+
+    static LocalDate readDate(DataInput in) throws IOException {
+        return in.readBoolean() ? LocalDate.ofEpochDay(in.readLong()) : null;
+    }
+
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+        RecordBuffer() {
+            super(64);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Открывает журналы in-memory хранилищ по настройкам {@code filmorate.wal.*}.
+ * При выключенном журнале хранилища работают как раньше. Закрывает журнал хранилище-владелец.
+ */
+@Component
+class WriteAheadLogFactory {
+    private final boolean enabled;
+
+    private final Path directory;
+
+    private final WriteAheadLog.FsyncPolicy fsyncPolicy;
+
+    private final long fsyncIntervalMs;
+
+    WriteAheadLogFactory(@Value("${filmorate.wal.enabled:false}") boolean enabled,
+                         @Value("${filmorate.wal.dir:./data/wal}") Path directory,
+                         @Value("${filmorate.wal.fsync:interval}") String fsyncPolicy,
+                         @Value("${filmorate.wal.fsync-interval-ms:50}") long fsyncIntervalMs) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.fsyncPolicy = WriteAheadLog.FsyncPolicy.valueOf(fsyncPolicy.toUpperCase(Locale.ROOT));
+        this.fsyncIntervalMs = fsyncIntervalMs;
+    }
+
+    WriteAheadLog open(String name) {
+        if (!enabled) {
+            return WriteAheadLog.disabled();
+        }
+        return WriteAheadLog.open(directory, name, fsyncPolicy, fsyncIntervalMs);
+    }
+}
@@ -0,0 +1,39 @@
+-- Схема для FilmDbStorage/UserDbStorage (filmorate.storage=db)
+
+CREATE TABLE IF NOT EXISTS users (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email            VARCHAR(255) NOT NULL,
+    email_normalized VARCHAR(255) NOT NULL,
+    login            VARCHAR(255) NOT NULL,
+    name             VARCHAR(255),
+    birthday         DATE,
+    CONSTRAINT users_email_uq UNIQUE (email_normalized)
+);
+
+CREATE TABLE IF NOT EXISTS films (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name            VARCHAR(255) NOT NULL,
+    name_normalized VARCHAR(255) NOT NULL,
+    description     VARCHAR(200),
+    release_date    DATE         NOT NULL,
+    duration        INT          NOT NULL,
+    CONSTRAINT films_name_uq UNIQUE (name_normalized)
+);
+
+-- Первичный ключ (film_id, user_id) служит индексом по film_id
+CREATE TABLE IF NOT EXISTS likes (
+    film_id BIGINT NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    user_id BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (film_id, user_id)
+);
+
+CREATE INDEX IF NOT EXISTS likes_user_id_idx ON likes (user_id);
+
+-- Дружба симметрична и хранится двумя строками; первичный ключ служит индексом по user_id
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id   BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    friend_id BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, friend_id)
+);
+
+CREATE INDEX IF NOT EXISTS friendships_friend_id_idx ON friendships (friend_id);
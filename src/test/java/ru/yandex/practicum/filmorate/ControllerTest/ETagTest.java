@@ -0,0 +1,176 @@
+package ru.yandex.practicum.filmorate.ControllerTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ETagTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void filmNotModifiedUntilLiked() throws Exception {
+        long filmId = createFilm();
+        long userId = createUser("Зритель");
+
+        String etag = etag("/films/" + filmId);
+        assertNotModified("/films/" + filmId, etag);
+
+        mockMvc.perform(put("/films/{id}/like/{userId}", filmId, userId))
+                .andExpect(status().isOk());
+
+        assertNotEquals(etag, assertModified("/films/" + filmId, etag));
+    }
+
+    /**
+     * {@code count} больше {@code filmorate.popular.cache.max-count}, поэтому ответ не кешируется
+     * и ETag — версия всего хранилища, которая меняется с каждым лайком. Закешированный топ
+     * меняет ETag только вместе с составом, это проверяет {@code PopularFilmsCacheTest}.
+     */
+    @Test
+    void popularFilmsNotModifiedUntilLiked() throws Exception {
+        long filmId = createFilm();
+        long userId = createUser("Зритель");
+        String popular = "/films/popular?count=101";
+
+        String etag = etag(popular);
+        assertNotModified(popular, etag);
+
+        mockMvc.perform(put("/films/{id}/like/{userId}", filmId, userId))
+                .andExpect(status().isOk());
+        String liked = assertModified(popular, etag);
+        assertNotModified(popular, liked);
+
+        mockMvc.perform(delete("/films/{id}/like/{userId}", filmId, userId))
+                .andExpect(status().isOk());
+        assertModified(popular, liked);
+    }
+
+    @Test
+    void userNotModifiedUntilChanged() throws Exception {
+        long userId = createUser("Пользователь");
+
+        String etag = etag("/users/" + userId);
+        assertNotModified("/users/" + userId, etag);
+
+        User changed = user("Переименован");
+        changed.setId(userId);
+        mockMvc.perform(put("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(changed)))
+                .andExpect(status().isOk());
+
+        assertNotEquals(etag, assertModified("/users/" + userId, etag));
+    }
+
+    @Test
+    void friendsNotModifiedUntilFriendsChange() throws Exception {
+        long userId = createUser("Пользователь");
+        long friendId = createUser("Друг");
+        String friends = "/users/" + userId + "/friends";
+
+        String empty = etag(friends);
+        assertNotModified(friends, empty);
+
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", userId, friendId))
+                .andExpect(status().isOk());
+        String withFriend = assertModified(friends, empty);
+        assertNotModified(friends, withFriend);
+
+        // Список друзей показывает их данные, поэтому переименование друга тоже меняет ETag.
+        User renamed = user("Друг с новым именем");
+        renamed.setId(friendId);
+        mockMvc.perform(put("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(renamed)))
+                .andExpect(status().isOk());
+        String afterRename = assertModified(friends, withFriend);
+
+        mockMvc.perform(delete("/users/{id}/friends/{friendId}", userId, friendId))
+                .andExpect(status().isOk());
+        assertModified(friends, afterRename);
+    }
+
+    private String etag(String url) throws Exception {
+        String etag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+
+    private void assertNotModified(String url, String etag) throws Exception {
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    /**
+     * Запрос со старым ETag получает полный ответ; возвращает новый ETag.
+     */
+    private String assertModified(String url, String etag) throws Exception {
+        String current = mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(current);
+        assertNotEquals(etag, current);
+        return current;
+    }
+
+    private long createFilm() throws Exception {
+        Film film = new Film();
+        film.setName("Фильм " + UUID.randomUUID());
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        String body = mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(film)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(body, Film.class).getId();
+    }
+
+    private long createUser(String name) throws Exception {
+        String body = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user(name))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(body, User.class).getId();
+    }
+
+    private static User user(String name) {
+        String login = "u" + UUID.randomUUID().toString().replace("-", "");
+        User user = new User();
+        user.setEmail(login + "@example.com");
+        user.setLogin(login);
+        user.setName(name);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.ControllerTest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.controller.NdjsonResponseWriter;
+import ru.yandex.practicum.filmorate.controller.UserController;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest({FilmController.class, UserController.class})
+@Import(NdjsonResponseWriter.class)
+class NdjsonStreamingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private FilmService filmService;
+
+    @MockBean
+    private UserService userService;
+
+    @Test
+    void streamFilmsOneObjectPerLine() throws Exception {
+        List<Film> films = List.of(film(1, "Первый"), film(2, "Second\nline"), film(3, "Третий"));
+        doAnswer(invocation -> {
+            Consumer<Film> action = invocation.getArgument(0);
+            films.forEach(action);
+            return null;
+        }).when(filmService).forEach(any());
+
+        String[] lines = stream("/films").split("\n", -1);
+
+        assertEquals(films.size() + 1, lines.length);
+        assertEquals("", lines[films.size()]);
+        for (int i = 0; i < films.size(); i++) {
+            JsonNode node = objectMapper.readTree(lines[i]);
+            assertEquals(films.get(i).getId(), node.get("id").asLong());
+            assertEquals(films.get(i).getName(), node.get("name").asText());
+        }
+    }
+
+    @Test
+    void streamUsersOneObjectPerLine() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<User> action = invocation.getArgument(0);
+            action.accept(user(7, "first"));
+            action.accept(user(9, "second"));
+            return null;
+        }).when(userService).forEach(any());
+
+        String[] lines = stream("/users").split("\n", -1);
+
+        assertEquals(3, lines.length);
+        assertEquals(7, objectMapper.readTree(lines[0]).get("id").asLong());
+        assertEquals("second", objectMapper.readTree(lines[1]).get("login").asText());
+        assertEquals("", lines[2]);
+    }
+
+    @Test
+    void streamEmptyCollection() throws Exception {
+        assertEquals("", stream("/films"));
+        assertEquals("", stream("/users"));
+    }
+
+    @Test
+    void plainJsonWithoutNdjsonAccept() throws Exception {
+        mockMvc.perform(get("/films").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(content().json("[]"));
+    }
+
+    private String stream(String path) throws Exception {
+        MvcResult started = mockMvc.perform(get(path).accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    private static Film film(long id, String name) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName(name);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        return film;
+    }
+
+    private static User user(long id, String login) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(login + "@example.com");
+        user.setLogin(login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
@@ -0,0 +1,450 @@
+package ru.yandex.practicum.filmorate.DbStorageTest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchAction;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.StorageStats;
+import ru.yandex.practicum.filmorate.storage.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("db")
+class FilmDbStorageTest {
+
+    private EmbeddedDatabase database;
+    private FilmDbStorage filmStorage;
+    private UserDbStorage userStorage;
+    private Film validFilm;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .addScript("schema.sql")
+                .build();
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(database);
+        filmStorage = new FilmDbStorage(new JdbcTemplate(database), transactionManager);
+        userStorage = new UserDbStorage(new JdbcTemplate(database), transactionManager);
+        validFilm = new Film();
+        validFilm.setName("Test Film");
+        validFilm.setDescription("Test Description");
+        validFilm.setReleaseDate(LocalDate.of(2014, 9, 20));
+        validFilm.setDuration(123);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void createFilmSuccess() {
+        Film createdFilm = filmStorage.create(validFilm);
+
+        assertNotNull(createdFilm.getId());
+        Film found = filmStorage.findById(createdFilm.getId()).orElseThrow();
+        assertEquals("Test Film", found.getName());
+        assertEquals("Test Description", found.getDescription());
+        assertEquals(LocalDate.of(2014, 9, 20), found.getReleaseDate());
+        assertEquals(123, found.getDuration());
+        assertTrue(found.getLikes().isEmpty());
+    }
+
+    @Test
+    void createFilmWithoutDescription() {
+        validFilm.setDescription(null);
+
+        Film createdFilm = filmStorage.create(validFilm);
+
+        assertNull(filmStorage.findById(createdFilm.getId()).orElseThrow().getDescription());
+    }
+
+    @Test
+    void createFilmWithDuplicateNameIgnoringCase() {
+        filmStorage.create(validFilm);
+
+        Film duplicateFilm = film("TEST film");
+
+        assertThrows(ValidationException.class, () -> filmStorage.create(duplicateFilm));
+        assertEquals(1, filmStorage.findAll().size());
+    }
+
+    @Test
+    void findFilmByNameFollowsUpdateAndDelete() {
+        Film createdFilm = filmStorage.create(validFilm);
+        assertEquals(createdFilm.getId(), filmStorage.findByName("test FILM").get().getId());
+
+        Film renamed = film("Renamed Film");
+        renamed.setId(createdFilm.getId());
+        filmStorage.update(renamed);
+
+        assertFalse(filmStorage.findByName("Test Film").isPresent());
+        assertEquals(createdFilm.getId(), filmStorage.findByName("Renamed Film").get().getId());
+        assertNotNull(filmStorage.create(film("Test Film")).getId());
+
+        filmStorage.delete(createdFilm.getId());
+        assertFalse(filmStorage.findByName("Renamed Film").isPresent());
+    }
+
+    @Test
+    void findFilmByNameAfterRenamingStoredInstance() {
+        Film createdFilm = filmStorage.create(validFilm);
+
+        Film stored = filmStorage.findById(createdFilm.getId()).get();
+        stored.setName("Renamed Film");
+        filmStorage.update(stored);
+        Film createdSameName = filmStorage.create(film("Test Film"));
+
+        assertEquals(createdSameName.getId(), filmStorage.findByName("Test Film").get().getId());
+        assertEquals(createdFilm.getId(), filmStorage.findByName("Renamed Film").get().getId());
+    }
+
+    @Test
+    void updateFilmWithDuplicateName() {
+        filmStorage.create(validFilm);
+        Film createdAnother = filmStorage.create(film("Another Film"));
+
+        Film renamed = film("test film");
+        renamed.setId(createdAnother.getId());
+
+        assertThrows(ValidationException.class, () -> filmStorage.update(renamed));
+        assertEquals("Another Film", filmStorage.findById(createdAnother.getId()).get().getName());
+    }
+
+    @Test
+    void findAllFilmsByPages() {
+        for (int i = 0; i < 5; i++) {
+            filmStorage.create(film("Film " + i));
+        }
+        filmStorage.delete(2L);
+
+        List<Long> firstPage = filmStorage.findAll(null, 2).stream().map(Film::getId).toList();
+        List<Long> secondPage = filmStorage.findAll(firstPage.get(1), 2).stream().map(Film::getId).toList();
+        List<Long> lastPage = filmStorage.findAll(secondPage.get(1), 2).stream().map(Film::getId).toList();
+
+        assertEquals(List.of(1L, 3L), firstPage);
+        assertEquals(List.of(4L, 5L), secondPage);
+        assertTrue(lastPage.isEmpty());
+        assertEquals(4, filmStorage.findAll().size());
+    }
+
+    @Test
+    void forEachStreamsFilmsWithLikes() {
+        Film film1 = filmStorage.create(validFilm);
+        Film film2 = filmStorage.create(film("Film 2"));
+        long userId = user("u1");
+        filmStorage.addLike(film2.getId(), userId);
+
+        List<Film> streamed = new ArrayList<>();
+        filmStorage.forEach(streamed::add);
+
+        assertEquals(List.of(film1.getId(), film2.getId()), streamed.stream().map(Film::getId).toList());
+        assertTrue(streamed.get(0).getLikes().isEmpty());
+        assertEquals(List.of(userId), List.copyOf(streamed.get(1).getLikes()));
+    }
+
+    @Test
+    void findFilmByIdNotFound() {
+        Optional<Film> foundFilm = filmStorage.findById(999L);
+
+        assertFalse(foundFilm.isPresent());
+    }
+
+    @Test
+    void updateFilmKeepsLikes() {
+        Film createdFilm = filmStorage.create(validFilm);
+        long userId = user("u1");
+        filmStorage.addLike(createdFilm.getId(), userId);
+        createdFilm.setName("Updated Film");
+        createdFilm.setDescription("Updated Description");
+
+        Film updatedFilm = filmStorage.update(createdFilm);
+
+        assertEquals("Updated Film", filmStorage.findById(createdFilm.getId()).get().getName());
+        assertEquals("Updated Description", updatedFilm.getDescription());
+        assertTrue(updatedFilm.getLikes().contains(userId));
+    }
+
+    @Test
+    void updateNonExistentFilm() {
+        validFilm.setId(999L);
+
+        assertThrows(NotFoundException.class, () -> filmStorage.update(validFilm));
+    }
+
+    @Test
+    void deleteFilmSuccess() {
+        Film createdFilm = filmStorage.create(validFilm);
+        filmStorage.addLike(createdFilm.getId(), user("u1"));
+
+        filmStorage.delete(createdFilm.getId());
+
+        assertFalse(filmStorage.findById(createdFilm.getId()).isPresent());
+        assertEquals(0, filmStorage.stats().links());
+        assertThrows(NotFoundException.class, () -> filmStorage.delete(createdFilm.getId()));
+    }
+
+    @Test
+    void addAndRemoveLike() {
+        Film createdFilm = filmStorage.create(validFilm);
+        long user1 = user("u1");
+        long user2 = user("u2");
+
+        filmStorage.addLike(createdFilm.getId(), user1);
+        filmStorage.addLike(createdFilm.getId(), user2);
+        assertTrue(filmStorage.removeLike(createdFilm.getId(), user1));
+        assertFalse(filmStorage.removeLike(createdFilm.getId(), user1));
+
+        Film film = filmStorage.findById(createdFilm.getId()).get();
+        assertEquals(List.of(user2), List.copyOf(film.getLikes()));
+        assertEquals(1, filmStorage.getLikesCount(createdFilm.getId()));
+        assertEquals(0, filmStorage.getLikesCount(999L));
+    }
+
+    @Test
+    void addLikeRejectsDuplicateAndUnknownIds() {
+        Film createdFilm = filmStorage.create(validFilm);
+        long userId = user("u1");
+        filmStorage.addLike(createdFilm.getId(), userId);
+
+        assertThrows(ValidationException.class, () -> filmStorage.addLike(createdFilm.getId(), userId));
+        assertThrows(NotFoundException.class, () -> filmStorage.addLike(createdFilm.getId(), 999L));
+        assertThrows(NotFoundException.class, () -> filmStorage.addLike(999L, userId));
+        assertThrows(NotFoundException.class, () -> filmStorage.removeLike(999L, userId));
+        assertEquals(1, filmStorage.getLikesCount(createdFilm.getId()));
+    }
+
+    @Test
+    void applyLikesReportsEachOperation() {
+        Film film1 = filmStorage.create(validFilm);
+        Film film2 = filmStorage.create(film("Film 2"));
+        long user1 = user("u1");
+        long user2 = user("u2");
+        filmStorage.addLike(film2.getId(), user1);
+
+        List<BatchItemResult> results = filmStorage.applyLikes(List.of(
+                like(film1.getId(), user1, BatchAction.ADD),
+                like(999L, user1, BatchAction.ADD),
+                like(film1.getId(), 999L, BatchAction.ADD),
+                like(film2.getId(), user1, BatchAction.ADD),
+                like(film1.getId(), user2, BatchAction.ADD),
+                like(film2.getId(), user1, BatchAction.REMOVE),
+                like(film2.getId(), user2, BatchAction.ADD),
+                like(film1.getId(), user1, BatchAction.REMOVE),
+                like(film2.getId(), user1, BatchAction.REMOVE)));
+
+        assertEquals(List.of(BatchItemResult.Status.OK, BatchItemResult.Status.NOT_FOUND,
+                        BatchItemResult.Status.NOT_FOUND, BatchItemResult.Status.INVALID, BatchItemResult.Status.OK,
+                        BatchItemResult.Status.OK, BatchItemResult.Status.OK, BatchItemResult.Status.OK,
+                        BatchItemResult.Status.OK),
+                results.stream().map(BatchItemResult::getStatus).toList());
+        assertEquals(List.of(true, false, false, false, true, true, true, true, false),
+                results.stream().map(BatchItemResult::isChanged).toList());
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8), results.stream().map(BatchItemResult::getIndex).toList());
+        assertEquals(1, filmStorage.getLikesCount(film1.getId()));
+        assertEquals(List.of(user2), List.copyOf(filmStorage.findById(film2.getId()).get().getLikes()));
+    }
+
+    @Test
+    void versionChangesOnlyWithFilm() {
+        Film createdFilm = filmStorage.create(validFilm);
+        long userId = user("u1");
+        String version = filmStorage.getVersion(createdFilm.getId()).orElseThrow();
+        String collectionVersion = filmStorage.getVersion();
+
+        filmStorage.findById(createdFilm.getId());
+        filmStorage.removeLike(createdFilm.getId(), userId);
+        assertEquals(version, filmStorage.getVersion(createdFilm.getId()).orElseThrow());
+
+        filmStorage.addLike(createdFilm.getId(), userId);
+        assertNotEquals(version, filmStorage.getVersion(createdFilm.getId()).orElseThrow());
+        assertNotEquals(collectionVersion, filmStorage.getVersion());
+
+        filmStorage.delete(createdFilm.getId());
+        assertTrue(filmStorage.getVersion(createdFilm.getId()).isEmpty());
+    }
+
+    @Test
+    void getPopularFilmsAfterRemoveLikeAndDelete() {
+        Film film1 = filmStorage.create(validFilm);
+        Film film2 = filmStorage.create(film("Film 2"));
+        Film film3 = filmStorage.create(film("Film 3"));
+        long user1 = user("u1");
+        long user2 = user("u2");
+        long user3 = user("u3");
+
+        filmStorage.addLike(film1.getId(), user1);
+        filmStorage.addLike(film1.getId(), user2);
+        filmStorage.addLike(film2.getId(), user1);
+        filmStorage.addLike(film3.getId(), user1);
+        filmStorage.addLike(film3.getId(), user2);
+        filmStorage.addLike(film3.getId(), user3);
+        assertEquals(List.of(film3.getId(), film1.getId()), popularIds(2));
+
+        filmStorage.removeLike(film3.getId(), user1);
+        filmStorage.removeLike(film3.getId(), user2);
+        assertEquals(List.of(film1.getId(), film2.getId(), film3.getId()), popularIds(10));
+
+        filmStorage.delete(film1.getId());
+        assertEquals(List.of(film2.getId(), film3.getId()), popularIds(3));
+    }
+
+    @Test
+    void recommendationsFollowUsersWithSimilarLikes() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(filmStorage.create(film("Film " + i)).getId());
+        }
+        long user1 = user("u1");
+        long user2 = user("u2");
+        long user3 = user("u3");
+        long user4 = user("u4");
+        // Пользователь 2 совпадает с первым по двум фильмам, пользователь 3 — по одному, 4 — ни по одному.
+        filmStorage.addLike(ids.get(0), user1);
+        filmStorage.addLike(ids.get(1), user1);
+        filmStorage.addLike(ids.get(0), user2);
+        filmStorage.addLike(ids.get(1), user2);
+        filmStorage.addLike(ids.get(2), user2);
+        filmStorage.addLike(ids.get(0), user3);
+        filmStorage.addLike(ids.get(3), user3);
+        filmStorage.addLike(ids.get(4), user4);
+
+        assertEquals(List.of(ids.get(2), ids.get(3)), recommendedIds(user1));
+        assertEquals(Set.of(ids.get(0), ids.get(1)), filmStorage.getLikedFilmIds(user1));
+        assertTrue(filmStorage.getLikedFilmIds(99L).isEmpty());
+
+        filmStorage.delete(ids.get(2));
+        assertEquals(List.of(ids.get(3)), recommendedIds(user1));
+
+        filmStorage.removeLike(ids.get(0), user3);
+        assertEquals(Set.of(ids.get(3)), filmStorage.getLikedFilmIds(user3));
+        assertTrue(recommendedIds(user1).isEmpty());
+        assertTrue(recommendedIds(99L).isEmpty());
+    }
+
+    @Test
+    void searchFollowsCreateUpdateAndDelete() {
+        Film film = filmStorage.create(validFilm);
+        Film other = filmStorage.create(film("Другой фильм"));
+        assertEquals(List.of(film.getId()), searchedIds("test desc"));
+        assertEquals(List.of(other.getId()), searchedIds("ДРУГОЙ"));
+
+        Film updated = film("Renamed Film");
+        updated.setId(film.getId());
+        updated.setDescription("Other");
+        filmStorage.update(updated);
+        assertTrue(searchedIds("test").isEmpty());
+        assertEquals(List.of(film.getId()), searchedIds("renamed"));
+
+        filmStorage.delete(film.getId());
+        assertTrue(searchedIds("renamed").isEmpty());
+    }
+
+    @Test
+    void statsCountFilmsAndLikes() {
+        Film film1 = filmStorage.create(validFilm);
+        Film film2 = filmStorage.create(film("Film 2"));
+        long user1 = user("u1");
+        long user2 = user("u2");
+        filmStorage.addLike(film1.getId(), user1);
+        filmStorage.addLike(film1.getId(), user2);
+        filmStorage.addLike(film2.getId(), user1);
+
+        StorageStats stats = filmStorage.stats();
+
+        assertEquals(2, stats.entities());
+        assertEquals(3, stats.links());
+        assertEquals(2, stats.largestLinkSet());
+    }
+
+    @Test
+    void addLikeConcurrently() throws InterruptedException {
+        Film createdFilm = filmStorage.create(validFilm);
+        int threads = 8;
+        int likesPerThread = 25;
+        List<Long> users = new ArrayList<>();
+        for (int i = 0; i < threads * likesPerThread; i++) {
+            users.add(user("user" + i));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int t = 0; t < threads; t++) {
+            List<Long> slice = users.subList(t * likesPerThread, (t + 1) * likesPerThread);
+            executor.submit(() -> {
+                start.await();
+                for (Long userId : slice) {
+                    filmStorage.addLike(createdFilm.getId(), userId);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(threads * likesPerThread, filmStorage.findById(createdFilm.getId()).get().getLikes().size());
+    }
+
+    private long user(String login) {
+        User user = new User();
+        user.setEmail(login + "@example.com");
+        user.setLogin(login);
+        return userStorage.create(user).getId();
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setReleaseDate(LocalDate.of(2001, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private static LikeOperation like(Long filmId, Long userId, BatchAction action) {
+        LikeOperation operation = new LikeOperation();
+        operation.setFilmId(filmId);
+        operation.setUserId(userId);
+        operation.setAction(action);
+        return operation;
+    }
+
+    private List<Long> popularIds(int count) {
+        Collection<Film> popular = filmStorage.getPopularFilms(count);
+        return popular.stream().map(Film::getId).toList();
+    }
+
+    private List<Long> searchedIds(String query) {
+        return filmStorage.search(query, 10).stream().map(Film::getId).toList();
+    }
+
+    private List<Long> recommendedIds(Long userId) {
+        return filmStorage.getRecommendations(userId, 10).stream().map(Film::getId).toList();
+    }
+}
@@ -0,0 +1,381 @@
+package ru.yandex.practicum.filmorate.DbStorageTest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchAction;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.FriendOperation;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.StorageStats;
+import ru.yandex.practicum.filmorate.storage.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Tag("db")
+class UserDbStorageTest {
+
+    private EmbeddedDatabase database;
+    private UserDbStorage userStorage;
+    private User validUser;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .addScript("schema.sql")
+                .build();
+        userStorage = new UserDbStorage(new JdbcTemplate(database), new DataSourceTransactionManager(database));
+
+        validUser = new User();
+        validUser.setEmail("test@example.com");
+        validUser.setLogin("testLogin");
+        validUser.setName("Test User");
+        validUser.setBirthday(LocalDate.of(1993, 7, 17));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void createUserSuccess() {
+        User createdUser = userStorage.create(validUser);
+
+        User found = userStorage.findById(createdUser.getId()).orElseThrow();
+        assertEquals("test@example.com", found.getEmail());
+        assertEquals("testLogin", found.getLogin());
+        assertEquals("Test User", found.getName());
+        assertEquals(LocalDate.of(1993, 7, 17), found.getBirthday());
+        assertTrue(found.getFriends().isEmpty());
+    }
+
+    @Test
+    void createUserWithDuplicateEmailIgnoringCase() {
+        userStorage.create(validUser);
+
+        User duplicateUser = user("anotherLogin");
+        duplicateUser.setEmail("TEST@Example.com");
+
+        assertThrows(ValidationException.class, () -> userStorage.create(duplicateUser));
+        assertEquals(1, userStorage.findAll().size());
+    }
+
+    @Test
+    void findUserByEmailFollowsUpdateAndDelete() {
+        User createdUser = userStorage.create(validUser);
+        assertEquals(createdUser.getId(), userStorage.findByEmail("Test@Example.com").get().getId());
+
+        User changed = user("testLogin");
+        changed.setId(createdUser.getId());
+        changed.setEmail("changed@example.com");
+        userStorage.update(changed);
+
+        assertFalse(userStorage.findByEmail("test@example.com").isPresent());
+        assertEquals(createdUser.getId(), userStorage.findByEmail("changed@example.com").get().getId());
+
+        User sameEmailUser = user("newLogin");
+        sameEmailUser.setEmail("test@example.com");
+        assertNotNull(userStorage.create(sameEmailUser).getId());
+
+        userStorage.delete(createdUser.getId());
+        assertFalse(userStorage.findByEmail("changed@example.com").isPresent());
+    }
+
+    @Test
+    void findAllUsersAndFriendsByPages() {
+        User hub = userStorage.create(validUser);
+        for (int i = 0; i < 30; i++) {
+            User created = userStorage.create(user("user" + i));
+            userStorage.addFriend(hub.getId(), created.getId());
+        }
+
+        List<User> usersPage = userStorage.findAll(hub.getId(), 3);
+        assertEquals(List.of(2L, 3L, 4L), usersPage.stream().map(User::getId).toList());
+
+        List<Long> friendsPage = userStorage.getFriends(hub.getId(), 20L, 5);
+        assertEquals(List.of(21L, 22L, 23L, 24L, 25L), friendsPage);
+        assertEquals(List.of(31L), userStorage.getFriends(hub.getId(), 30L, 5));
+        assertEquals(31, userStorage.findAll().size());
+    }
+
+    @Test
+    void forEachStreamsUsersWithFriends() {
+        User user1 = userStorage.create(validUser);
+        User user2 = userStorage.create(user("user2"));
+        userStorage.addFriend(user1.getId(), user2.getId());
+
+        List<User> streamed = new ArrayList<>();
+        userStorage.forEach(streamed::add);
+
+        assertEquals(List.of(user1.getId(), user2.getId()), streamed.stream().map(User::getId).toList());
+        assertEquals(Set.of(user2.getId()), streamed.get(0).getFriends());
+        assertEquals(Set.of(user1.getId()), streamed.get(1).getFriends());
+    }
+
+    @Test
+    void findExistingIds() {
+        User user1 = userStorage.create(validUser);
+        User user2 = userStorage.create(user("user2"));
+        List<Long> requested = new ArrayList<>(List.of(user1.getId(), 999L, user2.getId(), user1.getId()));
+        requested.add(null);
+
+        assertEquals(Set.of(user1.getId(), user2.getId()), userStorage.findExistingIds(requested));
+        assertTrue(userStorage.findExistingIds(List.of()).isEmpty());
+    }
+
+    @Test
+    void updateUserWithDuplicateEmail() {
+        userStorage.create(validUser);
+        User createdUser2 = userStorage.create(user("user2"));
+
+        createdUser2.setEmail("test@example.com");
+
+        assertThrows(ValidationException.class, () -> userStorage.update(createdUser2));
+    }
+
+    @Test
+    void updateNonExistentUser() {
+        validUser.setId(999L);
+
+        assertThrows(NotFoundException.class, () -> userStorage.update(validUser));
+    }
+
+    @Test
+    void deleteUserRemovesFromFriendLists() {
+        User user1 = userStorage.create(validUser);
+        User createdUser2 = userStorage.create(user("user2"));
+
+        userStorage.addFriend(user1.getId(), createdUser2.getId());
+        userStorage.delete(user1.getId());
+
+        assertFalse(userStorage.findById(user1.getId()).isPresent());
+        assertTrue(userStorage.getFriends(createdUser2.getId()).isEmpty());
+        assertThrows(NotFoundException.class, () -> userStorage.delete(user1.getId()));
+    }
+
+    @Test
+    void deleteAllUsers() {
+        User user1 = userStorage.create(validUser);
+        User createdUser2 = userStorage.create(user("user2"));
+        User createdUser3 = userStorage.create(user("user3"));
+
+        userStorage.addFriend(user1.getId(), createdUser2.getId());
+        userStorage.addFriend(user1.getId(), createdUser3.getId());
+        userStorage.addFriend(createdUser2.getId(), createdUser3.getId());
+
+        int deleted = userStorage.deleteAll(List.of(user1.getId(), createdUser2.getId(), 999L));
+
+        assertEquals(2, deleted);
+        assertEquals(1, userStorage.findAll().size());
+        assertTrue(userStorage.getFriends(createdUser3.getId()).isEmpty());
+        assertFalse(userStorage.findByEmail("test@example.com").isPresent());
+        assertEquals(0, userStorage.deleteAll(List.of()));
+    }
+
+    @Test
+    void addAndRemoveFriend() {
+        User user1 = userStorage.create(validUser);
+        User createdUser2 = userStorage.create(user("user2"));
+
+        userStorage.addFriend(user1.getId(), createdUser2.getId());
+        userStorage.addFriend(createdUser2.getId(), user1.getId());
+
+        assertEquals(Set.of(createdUser2.getId()), userStorage.getFriends(user1.getId()));
+        assertEquals(Set.of(user1.getId()), userStorage.getFriends(createdUser2.getId()));
+
+        userStorage.removeFriend(user1.getId(), createdUser2.getId());
+
+        assertTrue(userStorage.getFriends(user1.getId()).isEmpty());
+        assertTrue(userStorage.getFriends(createdUser2.getId()).isEmpty());
+    }
+
+    @Test
+    void addFriendRejectsUnknownUserAndSelf() {
+        User createdUser = userStorage.create(validUser);
+
+        assertThrows(NotFoundException.class, () -> userStorage.addFriend(createdUser.getId(), 999L));
+        assertThrows(ValidationException.class, () -> userStorage.addFriend(createdUser.getId(), createdUser.getId()));
+        assertThrows(NotFoundException.class, () -> userStorage.getFriends(999L));
+    }
+
+    @Test
+    void applyFriendshipsReportsEachOperation() {
+        User user1 = userStorage.create(validUser);
+        User user2 = userStorage.create(user("user2"));
+        User user3 = userStorage.create(user("user3"));
+
+        List<BatchItemResult> results = userStorage.applyFriendships(List.of(
+                friendship(user1.getId(), user2.getId(), BatchAction.ADD),
+                friendship(user1.getId(), 999L, BatchAction.ADD),
+                friendship(user1.getId(), user1.getId(), BatchAction.ADD),
+                friendship(user1.getId(), user3.getId(), BatchAction.ADD),
+                friendship(user1.getId(), user2.getId(), BatchAction.ADD),
+                friendship(user2.getId(), user1.getId(), BatchAction.REMOVE),
+                friendship(user2.getId(), user3.getId(), BatchAction.ADD)));
+
+        assertEquals(List.of(BatchItemResult.Status.OK, BatchItemResult.Status.NOT_FOUND,
+                        BatchItemResult.Status.INVALID, BatchItemResult.Status.OK, BatchItemResult.Status.OK,
+                        BatchItemResult.Status.OK, BatchItemResult.Status.OK),
+                results.stream().map(BatchItemResult::getStatus).toList());
+        assertEquals(Set.of(user3.getId()), userStorage.getFriends(user1.getId()));
+        assertEquals(Set.of(user3.getId()), userStorage.getFriends(user2.getId()));
+        assertEquals(Set.of(user1.getId(), user2.getId()), userStorage.getFriends(user3.getId()));
+    }
+
+    @Test
+    void friendsVersionFollowsFriendsAndTheirData() {
+        User user1 = userStorage.create(validUser);
+        User createdUser2 = userStorage.create(user("user2"));
+
+        String empty = userStorage.getFriendsVersion(user1.getId()).orElseThrow();
+        userStorage.addFriend(user1.getId(), createdUser2.getId());
+        String withFriend = userStorage.getFriendsVersion(user1.getId()).orElseThrow();
+        assertNotEquals(empty, withFriend);
+        assertEquals(withFriend, userStorage.getFriendsVersion(user1.getId()).orElseThrow());
+
+        createdUser2.setName("Renamed");
+        userStorage.update(createdUser2);
+        assertNotEquals(withFriend, userStorage.getFriendsVersion(user1.getId()).orElseThrow());
+        assertTrue(userStorage.getFriendsVersion(999L).isEmpty());
+        assertTrue(userStorage.getVersion(999L).isEmpty());
+    }
+
+    @Test
+    void getCommonFriendsAndCount() {
+        User user1 = userStorage.create(validUser);
+        User createdUser2 = userStorage.create(user("user2"));
+
+        for (int i = 0; i < 40; i++) {
+            User createdFriend = userStorage.create(user("friend" + i));
+            userStorage.addFriend(user1.getId(), createdFriend.getId());
+            if (i % 4 == 0) {
+                userStorage.addFriend(createdUser2.getId(), createdFriend.getId());
+            }
+        }
+
+        assertEquals(10, userStorage.getCommonFriendsCount(user1.getId(), createdUser2.getId()));
+        assertEquals(10, userStorage.getCommonFriendsCount(createdUser2.getId(), user1.getId()));
+        assertEquals(10, userStorage.getCommonFriends(user1.getId(), createdUser2.getId()).size());
+        assertThrows(NotFoundException.class, () -> userStorage.getCommonFriends(user1.getId(), 999L));
+    }
+
+    @Test
+    void getCommonFriendsNoCommon() {
+        User user1 = userStorage.create(validUser);
+        User createdUser2 = userStorage.create(user("user2"));
+        User createdFriend1 = userStorage.create(user("friend1"));
+        User createdFriend2 = userStorage.create(user("friend2"));
+
+        userStorage.addFriend(user1.getId(), createdFriend1.getId());
+        userStorage.addFriend(createdUser2.getId(), createdFriend2.getId());
+
+        assertTrue(userStorage.getCommonFriends(user1.getId(), createdUser2.getId()).isEmpty());
+        assertEquals(0, userStorage.getCommonFriendsCount(user1.getId(), createdUser2.getId()));
+    }
+
+    @Test
+    void friendSuggestionsRankedByMutualFriends() {
+        User user = userStorage.create(validUser);
+        List<Long> friends = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            friends.add(userStorage.create(user("friend" + i)).getId());
+            userStorage.addFriend(user.getId(), friends.get(i));
+        }
+        Long mostMutual = userStorage.create(user("most")).getId();
+        Long lessMutual = userStorage.create(user("less")).getId();
+        for (int i = 0; i < 15; i++) {
+            userStorage.addFriend(friends.get(i), mostMutual);
+        }
+        for (int i = 0; i < 3; i++) {
+            userStorage.addFriend(friends.get(i), lessMutual);
+        }
+        // Друзья пользователя знакомы между собой, но рекомендовать их не нужно.
+        userStorage.addFriend(friends.get(0), friends.get(1));
+
+        List<FriendSuggestion> suggestions = userStorage.getFriendSuggestions(user.getId(), 10);
+
+        assertEquals(List.of(mostMutual, lessMutual), suggestions.stream().map(s -> s.getUser().getId()).toList());
+        assertEquals(15, suggestions.get(0).getMutualFriends());
+        assertEquals(3, suggestions.get(1).getMutualFriends());
+        assertEquals(1, userStorage.getFriendSuggestions(user.getId(), 1).size());
+        assertThrows(NotFoundException.class, () -> userStorage.getFriendSuggestions(999L, 10));
+    }
+
+    @Test
+    void statsCountUsersAndFriendships() {
+        User user1 = userStorage.create(validUser);
+        User user2 = userStorage.create(user("user2"));
+        User user3 = userStorage.create(user("user3"));
+        userStorage.addFriend(user1.getId(), user2.getId());
+        userStorage.addFriend(user1.getId(), user3.getId());
+
+        StorageStats stats = userStorage.stats();
+
+        assertEquals(3, stats.entities());
+        assertEquals(2, stats.links());
+        assertEquals(2, stats.largestLinkSet());
+    }
+
+    @Test
+    void createAndAddFriendConcurrently() throws InterruptedException {
+        User hub = userStorage.create(validUser);
+        int threads = 8;
+        int usersPerThread = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < usersPerThread; i++) {
+                    User created = userStorage.create(user("user" + thread + "_" + i));
+                    userStorage.addFriend(created.getId(), hub.getId());
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(threads * usersPerThread + 1, userStorage.findAll().size());
+        assertEquals(threads * usersPerThread, userStorage.getFriends(hub.getId()).size());
+    }
+
+    private static User user(String login) {
+        User user = new User();
+        user.setEmail(login + "@example.com");
+        user.setLogin(login);
+        return user;
+    }
+
+    private static FriendOperation friendship(Long userId, Long friendId, BatchAction action) {
+        FriendOperation operation = new FriendOperation();
+        operation.setUserId(userId);
+        operation.setFriendId(friendId);
+        operation.setAction(action);
+        return operation;
+    }
+}
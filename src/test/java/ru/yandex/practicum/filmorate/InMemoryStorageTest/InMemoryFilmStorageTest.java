@@ -9,8 +9,15 @@ import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -53,6 +60,103 @@ class InMemoryFilmStorageTest {
         assertThrows(ValidationException.class, () -> filmStorage.create(duplicateFilm));
     }
 
+    @Test
+    void createFilmWithDuplicateNameIgnoringCase() {
+        filmStorage.create(validFilm);
+
+        Film duplicateFilm = new Film();
+        duplicateFilm.setName("TEST film");
+        duplicateFilm.setDescription("Another Description");
+        duplicateFilm.setReleaseDate(LocalDate.of(2001, 1, 1));
+        duplicateFilm.setDuration(130);
+
+        assertThrows(ValidationException.class, () -> filmStorage.create(duplicateFilm));
+        assertEquals(1, filmStorage.findAll().size());
+    }
+
+    @Test
+    void findFilmByNameFollowsUpdateAndDelete() {
+        Film createdFilm = filmStorage.create(validFilm);
+        assertEquals(createdFilm.getId(), filmStorage.findByName("test FILM").get().getId());
+
+        Film renamed = new Film();
+        renamed.setId(createdFilm.getId());
+        renamed.setName("Renamed Film");
+        renamed.setDescription("Test Description");
+        renamed.setReleaseDate(LocalDate.of(2014, 9, 20));
+        renamed.setDuration(123);
+        filmStorage.update(renamed);
+
+        assertFalse(filmStorage.findByName("Test Film").isPresent());
+        assertEquals(createdFilm.getId(), filmStorage.findByName("Renamed Film").get().getId());
+
+        Film sameNameFilm = new Film();
+        sameNameFilm.setName("Test Film");
+        sameNameFilm.setReleaseDate(LocalDate.of(2014, 9, 20));
+        sameNameFilm.setDuration(123);
+        assertNotNull(filmStorage.create(sameNameFilm).getId());
+
+        filmStorage.delete(createdFilm.getId());
+        assertFalse(filmStorage.findByName("Renamed Film").isPresent());
+    }
+
+    @Test
+    void findFilmByNameAfterRenamingStoredInstance() {
+        Film createdFilm = filmStorage.create(validFilm);
+
+        Film stored = filmStorage.findById(createdFilm.getId()).get();
+        stored.setName("Renamed Film");
+        filmStorage.update(stored);
+
+        Film sameNameFilm = new Film();
+        sameNameFilm.setName("Test Film");
+        sameNameFilm.setReleaseDate(LocalDate.of(2014, 9, 20));
+        sameNameFilm.setDuration(123);
+        Film createdSameName = filmStorage.create(sameNameFilm);
+
+        assertEquals(createdSameName.getId(), filmStorage.findByName("Test Film").get().getId());
+        assertEquals(createdFilm.getId(), filmStorage.findByName("Renamed Film").get().getId());
+    }
+
+    @Test
+    void searchFindsNewWordsAfterRenamingStoredInstance() {
+        Film createdFilm = filmStorage.create(validFilm);
+
+        Film stored = filmStorage.findById(createdFilm.getId()).get();
+        stored.setName("Alpha");
+        stored.setDescription("First words");
+        filmStorage.update(stored);
+        stored.setName("Omega");
+        stored.setDescription("Last words");
+        filmStorage.update(stored);
+
+        assertEquals(List.of(createdFilm.getId()), searchedIds("omega "));
+        assertEquals(List.of(createdFilm.getId()), searchedIds("last words"));
+        assertTrue(searchedIds("alpha ").isEmpty());
+        assertTrue(searchedIds("first").isEmpty());
+    }
+
+    @Test
+    void updateFilmWithDuplicateName() {
+        filmStorage.create(validFilm);
+
+        Film anotherFilm = new Film();
+        anotherFilm.setName("Another Film");
+        anotherFilm.setDescription("Another Description");
+        anotherFilm.setReleaseDate(LocalDate.of(2001, 1, 1));
+        anotherFilm.setDuration(130);
+        Film createdAnother = filmStorage.create(anotherFilm);
+
+        Film renamed = new Film();
+        renamed.setId(createdAnother.getId());
+        renamed.setName("test film");
+        renamed.setReleaseDate(LocalDate.of(2001, 1, 1));
+        renamed.setDuration(130);
+
+        assertThrows(ValidationException.class, () -> filmStorage.update(renamed));
+        assertEquals("Another Film", filmStorage.findById(createdAnother.getId()).get().getName());
+    }
+
     @Test
     void findAllFilms() {
         filmStorage.create(validFilm);
@@ -69,6 +173,26 @@ class InMemoryFilmStorageTest {
         assertEquals(2, allFilms.size());
     }
 
+    @Test
+    void findAllFilmsByPages() {
+        for (int i = 0; i < 5; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setReleaseDate(LocalDate.of(2001, 1, 1));
+            film.setDuration(100);
+            filmStorage.create(film);
+        }
+        filmStorage.delete(2L);
+
+        List<Long> firstPage = filmStorage.findAll(null, 2).stream().map(Film::getId).toList();
+        List<Long> secondPage = filmStorage.findAll(firstPage.get(1), 2).stream().map(Film::getId).toList();
+        List<Long> lastPage = filmStorage.findAll(secondPage.get(1), 2).stream().map(Film::getId).toList();
+
+        assertEquals(List.of(1L, 3L), firstPage);
+        assertEquals(List.of(4L, 5L), secondPage);
+        assertTrue(lastPage.isEmpty());
+    }
+
     @Test
     void findFilmByIdSuccess() {
         Film createdFilm = filmStorage.create(validFilm);
@@ -134,7 +258,8 @@ class InMemoryFilmStorageTest {
         filmStorage.addLike(createdFilm.getId(), 1L);
         filmStorage.addLike(createdFilm.getId(), 2L);
 
-        filmStorage.removeLike(createdFilm.getId(), 1L);
+        assertTrue(filmStorage.removeLike(createdFilm.getId(), 1L));
+        assertFalse(filmStorage.removeLike(createdFilm.getId(), 1L));
 
         Film film = filmStorage.findById(createdFilm.getId()).get();
         assertEquals(1, film.getLikes().size());
@@ -142,6 +267,25 @@ class InMemoryFilmStorageTest {
         assertTrue(film.getLikes().contains(2L));
     }
 
+    @Test
+    void versionChangesOnlyWithFilm() {
+        Film createdFilm = filmStorage.create(validFilm);
+        String version = filmStorage.getVersion(createdFilm.getId()).orElseThrow();
+        String collectionVersion = filmStorage.getVersion();
+
+        filmStorage.findById(createdFilm.getId());
+        filmStorage.removeLike(createdFilm.getId(), 1L);
+        assertEquals(version, filmStorage.getVersion(createdFilm.getId()).orElseThrow());
+
+        filmStorage.addLike(createdFilm.getId(), 1L);
+        String liked = filmStorage.getVersion(createdFilm.getId()).orElseThrow();
+        assertNotEquals(version, liked);
+        assertNotEquals(collectionVersion, filmStorage.getVersion());
+
+        filmStorage.delete(createdFilm.getId());
+        assertTrue(filmStorage.getVersion(createdFilm.getId()).isEmpty());
+    }
+
     @Test
     void getPopularFilms() {
         Film film1 = filmStorage.create(validFilm);
@@ -170,6 +314,58 @@ class InMemoryFilmStorageTest {
         assertEquals(film1.getId(), popularFilms.iterator().next().getId());
     }
 
+    @Test
+    void recommendationsFollowUsersWithSimilarLikes() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100);
+            ids.add(filmStorage.create(film).getId());
+        }
+        // Пользователь 2 совпадает с первым по двум фильмам, пользователь 3 — по одному, 4 — ни по одному.
+        filmStorage.addLike(ids.get(0), 1L);
+        filmStorage.addLike(ids.get(1), 1L);
+        filmStorage.addLike(ids.get(0), 2L);
+        filmStorage.addLike(ids.get(1), 2L);
+        filmStorage.addLike(ids.get(2), 2L);
+        filmStorage.addLike(ids.get(0), 3L);
+        filmStorage.addLike(ids.get(3), 3L);
+        filmStorage.addLike(ids.get(4), 4L);
+
+        assertEquals(List.of(ids.get(2), ids.get(3)), recommendedIds(1L));
+        assertEquals(Set.of(ids.get(0), ids.get(1)), filmStorage.getLikedFilmIds(1L));
+        assertTrue(filmStorage.getLikedFilmIds(99L).isEmpty());
+
+        filmStorage.delete(ids.get(2));
+        assertEquals(List.of(ids.get(3)), recommendedIds(1L));
+
+        filmStorage.removeLike(ids.get(0), 3L);
+        assertEquals(Set.of(ids.get(3)), filmStorage.getLikedFilmIds(3L));
+        assertTrue(recommendedIds(1L).isEmpty());
+        assertTrue(recommendedIds(99L).isEmpty());
+    }
+
+    @Test
+    void searchFollowsCreateUpdateAndDelete() {
+        Film film = filmStorage.create(validFilm);
+        assertEquals(List.of(film.getId()), searchedIds("test desc"));
+
+        Film updated = new Film();
+        updated.setId(film.getId());
+        updated.setName("Renamed Film");
+        updated.setDescription("Other");
+        updated.setReleaseDate(LocalDate.of(2014, 9, 20));
+        updated.setDuration(123);
+        filmStorage.update(updated);
+        assertTrue(searchedIds("test").isEmpty());
+        assertEquals(List.of(film.getId()), searchedIds("renamed"));
+
+        filmStorage.delete(film.getId());
+        assertTrue(searchedIds("renamed").isEmpty());
+    }
+
     @Test
     void getPopularFilmsWithCountGreaterThanTotal() {
         filmStorage.create(validFilm);
@@ -185,4 +381,75 @@ class InMemoryFilmStorageTest {
 
         assertEquals(2, popularFilms.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getPopularFilmsAfterRemoveLikeAndDelete() {
+        Film film1 = filmStorage.create(validFilm);
+
+        Film film2 = new Film();
+        film2.setName("Film 2");
+        film2.setDescription("Description 2");
+        film2.setReleaseDate(LocalDate.of(2001, 1, 1));
+        film2.setDuration(130);
+        filmStorage.create(film2);
+
+        Film film3 = new Film();
+        film3.setName("Film 3");
+        film3.setDescription("Description 3");
+        film3.setReleaseDate(LocalDate.of(2002, 1, 1));
+        film3.setDuration(140);
+        filmStorage.create(film3);
+
+        filmStorage.addLike(film1.getId(), 1L);
+        filmStorage.addLike(film1.getId(), 2L);
+        filmStorage.addLike(film2.getId(), 1L);
+        filmStorage.addLike(film3.getId(), 1L);
+        filmStorage.addLike(film3.getId(), 2L);
+        filmStorage.addLike(film3.getId(), 3L);
+
+        filmStorage.removeLike(film3.getId(), 1L);
+        filmStorage.removeLike(film3.getId(), 2L);
+
+        List<Long> popularIds = filmStorage.getPopularFilms(3).stream().map(Film::getId).toList();
+        assertEquals(List.of(film1.getId(), film2.getId(), film3.getId()), popularIds);
+
+        filmStorage.delete(film1.getId());
+
+        popularIds = filmStorage.getPopularFilms(3).stream().map(Film::getId).toList();
+        assertEquals(List.of(film2.getId(), film3.getId()), popularIds);
+    }
+
+    @Test
+    void addLikeConcurrently() throws InterruptedException {
+        Film createdFilm = filmStorage.create(validFilm);
+        int threads = 8;
+        int likesPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int t = 0; t < threads; t++) {
+            long firstUserId = (long) t * likesPerThread;
+            executor.submit(() -> {
+                start.await();
+                for (long userId = firstUserId; userId < firstUserId + likesPerThread; userId++) {
+                    filmStorage.addLike(createdFilm.getId(), userId);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        Film film = filmStorage.findById(createdFilm.getId()).get();
+        assertEquals(threads * likesPerThread, film.getLikes().size());
+    }
+
+    private List<Long> searchedIds(String query) {
+        return filmStorage.search(query, 10).stream().map(Film::getId).toList();
+    }
+
+    private List<Long> recommendedIds(Long userId) {
+        return filmStorage.getRecommendations(userId, 10).stream().map(Film::getId).toList();
+    }
+}
@@ -4,13 +4,20 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.FriendSuggestion;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -54,6 +61,41 @@ public class InMemoryUserStorageTest {
         assertThrows(ValidationException.class, () -> userStorage.create(duplicateUser));
     }
 
+    @Test
+    void createUserWithDuplicateEmailIgnoringCase() {
+        userStorage.create(validUser);
+
+        User duplicateUser = new User();
+        duplicateUser.setEmail("TEST@Example.com");
+        duplicateUser.setLogin("anotherLogin");
+
+        assertThrows(ValidationException.class, () -> userStorage.create(duplicateUser));
+        assertEquals(1, userStorage.findAll().size());
+    }
+
+    @Test
+    void findUserByEmailFollowsUpdateAndDelete() {
+        User createdUser = userStorage.create(validUser);
+        assertEquals(createdUser.getId(), userStorage.findByEmail("Test@Example.com").get().getId());
+
+        User changed = new User();
+        changed.setId(createdUser.getId());
+        changed.setEmail("changed@example.com");
+        changed.setLogin("testLogin");
+        userStorage.update(changed);
+
+        assertFalse(userStorage.findByEmail("test@example.com").isPresent());
+        assertEquals(createdUser.getId(), userStorage.findByEmail("changed@example.com").get().getId());
+
+        User sameEmailUser = new User();
+        sameEmailUser.setEmail("test@example.com");
+        sameEmailUser.setLogin("newLogin");
+        assertNotNull(userStorage.create(sameEmailUser).getId());
+
+        userStorage.delete(createdUser.getId());
+        assertFalse(userStorage.findByEmail("changed@example.com").isPresent());
+    }
+
     @Test
     void findAllUsers() {
         userStorage.create(validUser);
@@ -70,6 +112,25 @@ public class InMemoryUserStorageTest {
         assertEquals(2, allUsers.size());
     }
 
+    @Test
+    void findAllUsersAndFriendsByPages() {
+        User hub = userStorage.create(validUser);
+        for (int i = 0; i < 30; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@example.com");
+            user.setLogin("user" + i);
+            User created = userStorage.create(user);
+            userStorage.addFriend(hub.getId(), created.getId());
+        }
+
+        List<User> usersPage = userStorage.findAll(hub.getId(), 3);
+        assertEquals(List.of(2L, 3L, 4L), usersPage.stream().map(User::getId).toList());
+
+        List<Long> friendsPage = userStorage.getFriends(hub.getId(), 20L, 5);
+        assertEquals(List.of(21L, 22L, 23L, 24L, 25L), friendsPage);
+        assertEquals(List.of(31L), userStorage.getFriends(hub.getId(), 30L, 5));
+    }
+
     @Test
     void findUserByIdSuccess() {
         User createdUser = userStorage.create(validUser);
@@ -132,6 +193,48 @@ public class InMemoryUserStorageTest {
         assertFalse(foundUser.isPresent());
     }
 
+    @Test
+    void deleteUserRemovesFromFriendLists() {
+        User user1 = userStorage.create(validUser);
+
+        User user2 = new User();
+        user2.setEmail("user2@example.com");
+        user2.setLogin("user2");
+        User createdUser2 = userStorage.create(user2);
+
+        userStorage.addFriend(user1.getId(), createdUser2.getId());
+        userStorage.delete(user1.getId());
+
+        assertTrue(userStorage.getFriends(createdUser2.getId()).isEmpty());
+        assertThrows(NotFoundException.class, () -> userStorage.delete(user1.getId()));
+    }
+
+    @Test
+    void deleteAllUsers() {
+        User user1 = userStorage.create(validUser);
+
+        User user2 = new User();
+        user2.setEmail("user2@example.com");
+        user2.setLogin("user2");
+        User createdUser2 = userStorage.create(user2);
+
+        User user3 = new User();
+        user3.setEmail("user3@example.com");
+        user3.setLogin("user3");
+        User createdUser3 = userStorage.create(user3);
+
+        userStorage.addFriend(user1.getId(), createdUser2.getId());
+        userStorage.addFriend(user1.getId(), createdUser3.getId());
+        userStorage.addFriend(createdUser2.getId(), createdUser3.getId());
+
+        int deleted = userStorage.deleteAll(List.of(user1.getId(), createdUser2.getId(), 999L));
+
+        assertEquals(2, deleted);
+        assertEquals(1, userStorage.findAll().size());
+        assertTrue(userStorage.getFriends(createdUser3.getId()).isEmpty());
+        assertFalse(userStorage.findByEmail("test@example.com").isPresent());
+    }
+
     @Test
     void addFriendSuccess() {
         User user1 = userStorage.create(validUser);
@@ -154,6 +257,27 @@ public class InMemoryUserStorageTest {
         assertTrue(user2Friends.contains(user1.getId()));
     }
 
+    @Test
+    void friendsVersionFollowsFriendsAndTheirData() {
+        User user1 = userStorage.create(validUser);
+
+        User user2 = new User();
+        user2.setEmail("user2@example.com");
+        user2.setLogin("user2");
+        User createdUser2 = userStorage.create(user2);
+
+        String empty = userStorage.getFriendsVersion(user1.getId()).orElseThrow();
+        userStorage.addFriend(user1.getId(), createdUser2.getId());
+        String withFriend = userStorage.getFriendsVersion(user1.getId()).orElseThrow();
+        assertNotEquals(empty, withFriend);
+        assertEquals(withFriend, userStorage.getFriendsVersion(user1.getId()).orElseThrow());
+
+        createdUser2.setName("Renamed");
+        userStorage.update(createdUser2);
+        assertNotEquals(withFriend, userStorage.getFriendsVersion(user1.getId()).orElseThrow());
+        assertTrue(userStorage.getFriendsVersion(999L).isEmpty());
+    }
+
     @Test
     void addFriendWithNonExistentUser() {
         User createdUser = userStorage.create(validUser);
@@ -212,6 +336,31 @@ public class InMemoryUserStorageTest {
                 commonFriends.iterator().next().getId());
     }
 
+    @Test
+    void getCommonFriendsCount() {
+        User user1 = userStorage.create(validUser);
+
+        User user2 = new User();
+        user2.setEmail("user2@example.com");
+        user2.setLogin("user2");
+        User createdUser2 = userStorage.create(user2);
+
+        for (int i = 0; i < 40; i++) {
+            User friend = new User();
+            friend.setEmail("friend" + i + "@example.com");
+            friend.setLogin("friend" + i);
+            User createdFriend = userStorage.create(friend);
+            userStorage.addFriend(user1.getId(), createdFriend.getId());
+            if (i % 4 == 0) {
+                userStorage.addFriend(createdUser2.getId(), createdFriend.getId());
+            }
+        }
+
+        assertEquals(10, userStorage.getCommonFriendsCount(user1.getId(), createdUser2.getId()));
+        assertEquals(10, userStorage.getCommonFriendsCount(createdUser2.getId(), user1.getId()));
+        assertEquals(10, userStorage.getCommonFriends(user1.getId(), createdUser2.getId()).size());
+    }
+
     @Test
     void getCommonFriendsNoCommon() {
         User user1 = userStorage.create(validUser);
@@ -245,4 +394,69 @@ public class InMemoryUserStorageTest {
 
         assertTrue(commonFriends.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void createAndAddFriendConcurrently() throws InterruptedException {
+        User hub = userStorage.create(validUser);
+        int threads = 8;
+        int usersPerThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < usersPerThread; i++) {
+                    User user = new User();
+                    user.setEmail("user" + thread + "_" + i + "@example.com");
+                    user.setLogin("user" + thread + "_" + i);
+                    User created = userStorage.create(user);
+                    userStorage.addFriend(created.getId(), hub.getId());
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(threads * usersPerThread + 1, userStorage.findAll().size());
+        assertEquals(threads * usersPerThread, userStorage.getFriends(hub.getId()).size());
+    }
+
+    @Test
+    void friendSuggestionsRankedByMutualFriends() {
+        User user = userStorage.create(validUser);
+        List<Long> friends = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            friends.add(userStorage.create(user("friend" + i)).getId());
+            userStorage.addFriend(user.getId(), friends.get(i));
+        }
+        Long mostMutual = userStorage.create(user("most")).getId();
+        Long lessMutual = userStorage.create(user("less")).getId();
+        for (int i = 0; i < 150; i++) {
+            userStorage.addFriend(friends.get(i), mostMutual);
+        }
+        for (int i = 0; i < 3; i++) {
+            userStorage.addFriend(friends.get(i), lessMutual);
+        }
+        // Друзья пользователя знакомы между собой, но рекомендовать их не нужно.
+        userStorage.addFriend(friends.get(0), friends.get(1));
+
+        List<FriendSuggestion> suggestions = userStorage.getFriendSuggestions(user.getId(), 10);
+
+        assertEquals(List.of(mostMutual, lessMutual), suggestions.stream().map(s -> s.getUser().getId()).toList());
+        assertEquals(150, suggestions.get(0).getMutualFriends());
+        assertEquals(3, suggestions.get(1).getMutualFriends());
+        assertEquals(1, userStorage.getFriendSuggestions(user.getId(), 1).size());
+        assertThrows(NotFoundException.class, () -> userStorage.getFriendSuggestions(999L, 10));
+    }
+
+    private static User user(String login) {
+        User user = new User();
+        user.setEmail(login + "@example.com");
+        user.setLogin(login);
+        return user;
+    }
+}
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.ServiceTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmRecommendations;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilmRecommendationsTest {
+
+    private FilmRecommendations recommendations;
+    private FilmService filmService;
+    private List<Long> filmIds;
+    private List<Long> userIds;
+
+    @BeforeEach
+    void setUp() {
+        // Как FilmDbStorage, отдаёт копии фильмов с лайками на момент загрузки.
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage() {
+            @Override
+            public List<Film> getRecommendations(Long userId, int limit) {
+                return super.getRecommendations(userId, limit).stream().map(FilmRecommendationsTest::snapshot).toList();
+            }
+        };
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        // Фоновый пересчёт не успеет сработать — тест вызывает его сам.
+        recommendations = new FilmRecommendations(filmStorage, 3600, 3600, 100, 50);
+        filmService = new FilmServiceBuilder(filmStorage, userStorage)
+                .recommendations(recommendations)
+                .build();
+
+        filmIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            filmIds.add(filmService.create(film("Film " + i)).getId());
+        }
+        userIds = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            userIds.add(userStorage.create(user(i)).getId());
+        }
+        filmService.addLike(filmIds.get(0), userIds.get(0));
+        filmService.addLike(filmIds.get(0), userIds.get(1));
+        filmService.addLike(filmIds.get(1), userIds.get(1));
+    }
+
+    @Test
+    void requestsAreServedFromPrecomputedRecommendations() {
+        assertEquals(List.of(filmIds.get(1)), recommendedIds());
+
+        filmService.addLike(filmIds.get(2), userIds.get(1));
+        assertEquals(List.of(filmIds.get(1)), recommendedIds());
+
+        recommendations.refresh();
+        assertEquals(List.of(filmIds.get(1), filmIds.get(2)), recommendedIds());
+
+        // Лайкнутый после пересчёта фильм не рекомендуется, не дожидаясь следующего пересчёта.
+        filmService.addLike(filmIds.get(1), userIds.get(0));
+        assertEquals(List.of(filmIds.get(2)), recommendedIds());
+    }
+
+    @Test
+    void rejectsUnknownUserAndBadLimit() {
+        assertThrows(NotFoundException.class, () -> filmService.getRecommendations(999L, 10));
+        assertThrows(ValidationException.class, () -> filmService.getRecommendations(userIds.get(0), 0));
+        assertThrows(ValidationException.class, () -> filmService.getRecommendations(userIds.get(0), 51));
+    }
+
+    private List<Long> recommendedIds() {
+        return filmService.getRecommendations(userIds.get(0), 10).stream().map(Film::getId).toList();
+    }
+
+    private static Film snapshot(Film film) {
+        Film copy = film(film.getName());
+        copy.setId(film.getId());
+        copy.setLikes(new HashSet<>(film.getLikes()));
+        return copy;
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private static User user(int n) {
+        User user = new User();
+        user.setEmail("user" + n + "@mail.ru");
+        user.setLogin("user" + n);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.ServiceTest;
+
+import ru.yandex.practicum.filmorate.service.FilmRecommendations;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeIngestionQueue;
+import ru.yandex.practicum.filmorate.service.PopularFilmsCache;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+/**
+ * Сервис фильмов для тестов: всё, что тест не задал явно, отключено или создано с настройками по умолчанию.
+ */
+final class FilmServiceBuilder {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private LikeIngestionQueue likeQueue = LikeIngestionQueue.disabled();
+    private PopularFilmsCache popularCache;
+    private FilmRecommendations recommendations;
+    private TrendingFilms trending;
+
+    FilmServiceBuilder(FilmStorage filmStorage, UserStorage userStorage) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+    }
+
+    FilmServiceBuilder likeQueue(LikeIngestionQueue likeQueue) {
+        this.likeQueue = likeQueue;
+        return this;
+    }
+
+    FilmServiceBuilder popularCache(PopularFilmsCache popularCache) {
+        this.popularCache = popularCache;
+        return this;
+    }
+
+    FilmServiceBuilder recommendations(FilmRecommendations recommendations) {
+        this.recommendations = recommendations;
+        return this;
+    }
+
+    FilmServiceBuilder trending(TrendingFilms trending) {
+        this.trending = trending;
+        return this;
+    }
+
+    FilmService build() {
+        return new FilmService(filmStorage, userStorage, likeQueue,
+                popularCache != null ? popularCache : PopularFilmsCache.disabled(filmStorage),
+                recommendations != null ? recommendations : FilmRecommendations.disabled(filmStorage),
+                trending != null ? trending : new TrendingFilms(filmStorage, 60, 72));
+    }
+}
@@ -4,15 +4,20 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchAction;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionsCache;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
 
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -27,8 +32,8 @@ public class FilmServiceTest {
     void setUp() {
         InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
         InMemoryUserStorage userStorage = new InMemoryUserStorage();
-        userService = new UserService(userStorage);
-        filmService = new FilmService(filmStorage, userStorage);
+        userService = new UserService(userStorage, FriendSuggestionsCache.disabled(userStorage));
+        filmService = new FilmServiceBuilder(filmStorage, userStorage).build();
 
         validFilm = new Film();
         validFilm.setName("Test Film");
@@ -236,4 +241,46 @@ public class FilmServiceTest {
 
         assertEquals(2, popularFilms.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void applyLikesReportsEachOperation() {
+        Film film = filmService.create(validFilm);
+        User user = userService.create(validUser);
+
+        List<BatchItemResult> results = filmService.applyLikes(List.of(
+                like(film.getId(), user.getId(), BatchAction.ADD),
+                like(film.getId(), user.getId(), BatchAction.ADD),
+                like(film.getId(), 999L, BatchAction.ADD),
+                like(999L, user.getId(), BatchAction.ADD),
+                like(film.getId(), null, BatchAction.ADD)));
+
+        assertEquals(List.of(BatchItemResult.Status.OK, BatchItemResult.Status.INVALID,
+                        BatchItemResult.Status.NOT_FOUND, BatchItemResult.Status.NOT_FOUND,
+                        BatchItemResult.Status.INVALID),
+                results.stream().map(BatchItemResult::getStatus).toList());
+        assertEquals(List.of(0, 1, 2, 3, 4), results.stream().map(BatchItemResult::getIndex).toList());
+        assertEquals(1, filmService.findById(film.getId()).getLikes().size());
+    }
+
+    @Test
+    void applyLikesKeepsOrderWithinFilm() {
+        Film film = filmService.create(validFilm);
+        User user = userService.create(validUser);
+
+        filmService.applyLikes(List.of(
+                like(film.getId(), user.getId(), BatchAction.ADD),
+                like(film.getId(), user.getId(), BatchAction.REMOVE),
+                like(film.getId(), user.getId(), BatchAction.ADD)));
+
+        assertTrue(filmService.findById(film.getId()).getLikes().contains(user.getId()));
+        assertEquals(film.getId(), filmService.getPopularFilms(1).iterator().next().getId());
+    }
+
+    private static LikeOperation like(Long filmId, Long userId, BatchAction action) {
+        LikeOperation operation = new LikeOperation();
+        operation.setFilmId(filmId);
+        operation.setUserId(userId);
+        operation.setAction(action);
+        return operation;
+    }
+}
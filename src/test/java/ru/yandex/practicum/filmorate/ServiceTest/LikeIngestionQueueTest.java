@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.ServiceTest;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.OverloadedException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchAction;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.LikeIngestionQueue;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LikeIngestionQueueTest {
+
+    @Test
+    void concurrentLikesAreAppliedThroughQueue() throws InterruptedException {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        LikeIngestionQueue queue = new LikeIngestionQueue(filmStorage, true, 2, 1000, 64, 1000);
+        FilmService filmService = new FilmServiceBuilder(filmStorage, userStorage).likeQueue(queue).build();
+        Film premiere = filmStorage.create(film("Premiere"));
+        Film other = filmStorage.create(film("Other"));
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            userIds.add(userStorage.create(user(i)).getId());
+        }
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (Long userId : userIds) {
+                executor.submit(() -> filmService.addLike(premiere.getId(), userId));
+            }
+        }
+        filmService.addLike(other.getId(), userIds.get(0));
+
+        assertEquals(200, filmService.findById(premiere.getId()).getLikes().size());
+        assertThrows(ValidationException.class, () -> filmService.addLike(premiere.getId(), userIds.get(0)));
+        filmService.removeLike(premiere.getId(), userIds.get(0));
+        assertEquals(199, filmService.findById(premiere.getId()).getLikes().size());
+        assertEquals(List.of(premiere.getId(), other.getId()),
+                filmService.getPopularFilms(2).stream().map(Film::getId).toList());
+        queue.stop();
+    }
+
+    @Test
+    void acceptedLikesAreAppliedBeforeStop() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        LikeIngestionQueue queue = new LikeIngestionQueue(filmStorage, true, 1, 100, 16, 1000);
+        FilmService filmService = new FilmServiceBuilder(filmStorage, userStorage).likeQueue(queue).build();
+        Film film = filmStorage.create(film("Film"));
+        User user = userStorage.create(user(1));
+
+        assertTrue(filmService.enqueueLike(film.getId(), user.getId(), BatchAction.ADD));
+        queue.stop();
+
+        assertTrue(filmService.findById(film.getId()).getLikes().contains(user.getId()));
+    }
+
+    @Test
+    void fullQueueRejectsNewLikes() throws InterruptedException {
+        CountDownLatch writerBusy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage() {
+            @Override
+            public List<BatchItemResult> applyLikes(List<LikeOperation> operations) {
+                writerBusy.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.applyLikes(operations);
+            }
+        };
+        LikeIngestionQueue queue = new LikeIngestionQueue(filmStorage, true, 1, 1, 16, 10);
+        Film film = filmStorage.create(film("Film"));
+
+        queue.submit(like(film.getId(), 1L));
+        writerBusy.await();
+        queue.submit(like(film.getId(), 2L));
+        assertThrows(OverloadedException.class, () -> queue.submit(like(film.getId(), 3L)));
+
+        release.countDown();
+        queue.stop();
+        assertEquals(2, filmStorage.findById(film.getId()).orElseThrow().getLikes().size());
+    }
+
+    private static LikeOperation like(Long filmId, Long userId) {
+        LikeOperation operation = new LikeOperation();
+        operation.setFilmId(filmId);
+        operation.setUserId(userId);
+        return operation;
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+        return film;
+    }
+
+    private static User user(int n) {
+        User user = new User();
+        user.setEmail("user" + n + "@mail.ru");
+        user.setLogin("user" + n);
+        user.setName("Пользователь " + n);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
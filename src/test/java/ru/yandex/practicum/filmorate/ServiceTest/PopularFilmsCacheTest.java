@@ -0,0 +1,152 @@
+package ru.yandex.practicum.filmorate.ServiceTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.PopularFilmsCache;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PopularFilmsCacheTest {
+
+    private final AtomicInteger computations = new AtomicInteger();
+    private CountDownLatch release = new CountDownLatch(0);
+    private InMemoryFilmStorage filmStorage;
+    private FilmService filmService;
+    private List<Long> filmIds;
+    private List<Long> userIds;
+
+    @BeforeEach
+    void setUp() {
+        filmStorage = new InMemoryFilmStorage() {
+            @Override
+            public Collection<Film> getPopularFilms(int count) {
+                computations.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getPopularFilms(count);
+            }
+        };
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        filmService = new FilmServiceBuilder(filmStorage, userStorage)
+                .popularCache(new PopularFilmsCache(filmStorage, 60_000, 100))
+                .build();
+
+        filmIds = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            filmIds.add(filmService.create(film("Film " + i)).getId());
+        }
+        userIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            userIds.add(userStorage.create(user(i)).getId());
+        }
+        // Лайки: 3, 2, 1, 0 — топ-2 из первых двух фильмов, за границей третий с одним лайком.
+        for (int film = 0; film < 3; film++) {
+            for (int like = 0; like < 3 - film; like++) {
+                filmService.addLike(filmIds.get(film), userIds.get(like));
+            }
+        }
+    }
+
+    @Test
+    void likesInsideOrBelowTopKeepCachedResult() {
+        assertEquals(filmIds.subList(0, 2), popularIds(2));
+        int computed = computations.get();
+
+        filmService.addLike(filmIds.get(0), userIds.get(3));
+        filmService.addLike(filmIds.get(3), userIds.get(0));
+        filmService.removeLike(filmIds.get(2), userIds.get(0));
+
+        assertEquals(filmIds.subList(0, 2), popularIds(2));
+        assertEquals(computed, computations.get());
+    }
+
+    @Test
+    void likeThatChangesTopInvalidatesCache() {
+        assertEquals(filmIds.subList(0, 2), popularIds(2));
+
+        for (int like = 1; like < 4; like++) {
+            filmService.addLike(filmIds.get(2), userIds.get(like));
+        }
+        assertEquals(List.of(filmIds.get(2), filmIds.get(0)), popularIds(2));
+
+        for (int like = 0; like < 4; like++) {
+            filmService.removeLike(filmIds.get(2), userIds.get(like));
+        }
+        assertEquals(filmIds.subList(0, 2), popularIds(2));
+    }
+
+    @Test
+    void versionFollowsCachedResult() {
+        String version = filmService.getPopularFilmsVersion(2);
+        assertEquals(filmIds.subList(0, 2), popularIds(2));
+
+        filmService.addLike(filmIds.get(1), userIds.get(3));
+        assertEquals(version, filmService.getPopularFilmsVersion(2));
+
+        for (int like = 1; like < 4; like++) {
+            filmService.addLike(filmIds.get(2), userIds.get(like));
+        }
+        String changed = filmService.getPopularFilmsVersion(2);
+        assertNotEquals(version, changed);
+        assertEquals(List.of(filmIds.get(2), filmIds.get(0)), popularIds(2));
+        assertEquals(changed, filmService.getPopularFilmsVersion(2));
+    }
+
+    @Test
+    void concurrentMissesShareOneComputation() throws Exception {
+        release = new CountDownLatch(1);
+        int computed = computations.get();
+        List<Future<List<Long>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> popularIds(3)));
+            }
+            Thread.sleep(100);
+            release.countDown();
+        }
+
+        for (Future<List<Long>> result : results) {
+            assertEquals(filmIds.subList(0, 3), result.get());
+        }
+        assertEquals(computed + 1, computations.get());
+    }
+
+    private List<Long> popularIds(int count) {
+        return filmService.getPopularFilms(count).stream().map(Film::getId).toList();
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private static User user(int n) {
+        User user = new User();
+        user.setEmail("user" + n + "@mail.ru");
+        user.setLogin("user" + n);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate.ServiceTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchAction;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrendingFilmsTest {
+
+    private final AtomicLong now = new AtomicLong(Duration.ofDays(20_000).toMillis());
+    private FilmService filmService;
+    private List<Long> filmIds;
+    private List<Long> userIds;
+
+    @BeforeEach
+    void setUp() {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        TrendingFilms trending = new TrendingFilms(filmStorage, Duration.ofHours(1), 24, now::get);
+        filmService = new FilmServiceBuilder(filmStorage, userStorage)
+                .trending(trending)
+                .build();
+
+        filmIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            filmIds.add(filmService.create(film("Film " + i)).getId());
+        }
+        userIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            userIds.add(userStorage.create(user(i)).getId());
+        }
+    }
+
+    @Test
+    void oldLikesLeaveTheWindow() {
+        // Старый хит: три лайка 20 часов назад.
+        for (Long userId : userIds) {
+            filmService.addLike(filmIds.get(0), userId);
+        }
+        advance(Duration.ofHours(20));
+        filmService.addLike(filmIds.get(1), userIds.get(0));
+        filmService.addLike(filmIds.get(1), userIds.get(1));
+        filmService.addLike(filmIds.get(2), userIds.get(0));
+
+        assertEquals(List.of(filmIds.get(0), filmIds.get(1), filmIds.get(2)), trendingIds("24h"));
+        assertEquals(List.of(filmIds.get(1), filmIds.get(2)), trendingIds("2h"));
+
+        advance(Duration.ofHours(5));
+        assertEquals(List.of(filmIds.get(1), filmIds.get(2)), trendingIds("24h"));
+
+        filmService.removeLike(filmIds.get(1), userIds.get(0));
+        filmService.removeLike(filmIds.get(1), userIds.get(1));
+        assertEquals(List.of(filmIds.get(2)), trendingIds("24h"));
+
+        // Кольцо прокручивается целиком — ничего не остаётся.
+        advance(Duration.ofDays(2));
+        filmService.addLike(filmIds.get(2), userIds.get(1));
+        assertEquals(List.of(filmIds.get(2)), trendingIds("24h"));
+    }
+
+    @Test
+    void unlikeWithoutLikeLeavesTrendingUnchanged() {
+        for (int film = 0; film < 2; film++) {
+            filmService.addLike(filmIds.get(film), userIds.get(0));
+            filmService.addLike(filmIds.get(film), userIds.get(1));
+        }
+        assertEquals(List.of(filmIds.get(0), filmIds.get(1)), trendingIds("24h"));
+
+        filmService.removeLike(filmIds.get(0), userIds.get(2));
+        filmService.applyLikes(List.of(like(filmIds.get(0), userIds.get(2), BatchAction.REMOVE)));
+
+        assertEquals(List.of(filmIds.get(0), filmIds.get(1)), trendingIds("24h"));
+    }
+
+    @Test
+    void unlikeIsSubtractedFromCurrentBucket() {
+        filmService.addLike(filmIds.get(0), userIds.get(2));
+        filmService.addLike(filmIds.get(1), userIds.get(2));
+        advance(Duration.ofHours(2));
+        filmService.addLike(filmIds.get(1), userIds.get(0));
+
+        // Лайк из прошлой корзины вычитается из текущей: короткое окно теряет свежий лайк,
+        // длинное — ровно один из двух.
+        filmService.removeLike(filmIds.get(1), userIds.get(2));
+        assertEquals(List.of(), trendingIds("1h"));
+        assertEquals(List.of(filmIds.get(0), filmIds.get(1)), trendingIds("24h"));
+
+        filmService.removeLike(filmIds.get(0), userIds.get(2));
+        assertEquals(List.of(filmIds.get(1)), trendingIds("24h"));
+
+        // Фильм без лайков в кольце выброшен, снятие его старого лайка ничего не вычитает.
+        advance(Duration.ofDays(2));
+        filmService.addLike(filmIds.get(2), userIds.get(0));
+        filmService.removeLike(filmIds.get(1), userIds.get(0));
+        filmService.addLike(filmIds.get(1), userIds.get(1));
+        assertEquals(List.of(filmIds.get(1), filmIds.get(2)), trendingIds("24h"));
+    }
+
+    @Test
+    void rejectsBadWindow() {
+        assertThrows(ValidationException.class, () -> filmService.getTrendingFilms("24", 10));
+        assertThrows(ValidationException.class, () -> filmService.getTrendingFilms("0h", 10));
+        assertThrows(ValidationException.class, () -> filmService.getTrendingFilms("2d", 10));
+        assertEquals(List.of(), filmService.getTrendingFilms("90m", 10));
+    }
+
+    private void advance(Duration duration) {
+        now.addAndGet(duration.toMillis());
+    }
+
+    private List<Long> trendingIds(String window) {
+        return filmService.getTrendingFilms(window, 10).stream().map(Film::getId).toList();
+    }
+
+    private static LikeOperation like(Long filmId, Long userId, BatchAction action) {
+        LikeOperation operation = new LikeOperation();
+        operation.setFilmId(filmId);
+        operation.setUserId(userId);
+        operation.setAction(action);
+        return operation;
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    private static User user(int n) {
+        User user = new User();
+        user.setEmail("user" + n + "@mail.ru");
+        user.setLogin("user" + n);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
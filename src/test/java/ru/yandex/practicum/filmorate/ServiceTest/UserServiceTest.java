@@ -4,12 +4,17 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchAction;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.FriendOperation;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionsCache;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
 
 import java.time.LocalDate;
 import java.util.Collection;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -21,7 +26,7 @@ public class UserServiceTest {
     @BeforeEach
     void setUp() {
         InMemoryUserStorage userStorage = new InMemoryUserStorage();
-        userService = new UserService(userStorage);
+        userService = new UserService(userStorage, FriendSuggestionsCache.disabled(userStorage));
 
         validUser = new User();
         validUser.setEmail("test@example.com");
@@ -291,4 +296,36 @@ public class UserServiceTest {
 
         assertTrue(commonFriends.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void applyFriendshipsReportsEachOperation() {
+        User user1 = userService.create(validUser);
+        User user2 = new User();
+        user2.setEmail("user2@example.com");
+        user2.setLogin("user2");
+        user2.setBirthday(LocalDate.of(1991, 1, 1));
+        userService.create(user2);
+
+        List<BatchItemResult> results = userService.applyFriendships(List.of(
+                friendship(user1.getId(), user2.getId(), BatchAction.ADD),
+                friendship(user1.getId(), user1.getId(), BatchAction.ADD),
+                friendship(user1.getId(), 999L, BatchAction.ADD),
+                friendship(user2.getId(), null, BatchAction.REMOVE)));
+
+        assertEquals(List.of(BatchItemResult.Status.OK, BatchItemResult.Status.INVALID,
+                        BatchItemResult.Status.NOT_FOUND, BatchItemResult.Status.INVALID),
+                results.stream().map(BatchItemResult::getStatus).toList());
+        assertEquals(1, userService.getFriends(user2.getId()).size());
+
+        userService.applyFriendships(List.of(friendship(user2.getId(), user1.getId(), BatchAction.REMOVE)));
+        assertTrue(userService.getFriends(user1.getId()).isEmpty());
+    }
+
+    private static FriendOperation friendship(Long userId, Long friendId, BatchAction action) {
+        FriendOperation operation = new FriendOperation();
+        operation.setUserId(userId);
+        operation.setFriendId(friendId);
+        operation.setAction(action);
+        return operation;
+    }
+}
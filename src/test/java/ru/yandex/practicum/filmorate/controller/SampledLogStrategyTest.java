@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampledLogStrategyTest {
+    private static final Duration SLOW = Duration.ofMillis(500);
+    private static final Duration FAST = Duration.ofMillis(5);
+
+    @Test
+    void errorStatusIsAlwaysLogged() {
+        SampledLogStrategy strategy = new SampledLogStrategy(0, 400, SLOW);
+
+        assertTrue(strategy.shouldLog(400, FAST));
+        assertTrue(strategy.shouldLog(503, FAST));
+        assertFalse(strategy.shouldLog(399, FAST));
+    }
+
+    @Test
+    void slowRequestIsAlwaysLogged() {
+        SampledLogStrategy strategy = new SampledLogStrategy(0, 400, SLOW);
+
+        assertTrue(strategy.shouldLog(200, SLOW));
+        assertTrue(strategy.shouldLog(200, Duration.ofSeconds(3)));
+        assertFalse(strategy.shouldLog(200, SLOW.minusMillis(1)));
+    }
+
+    @Test
+    void zeroRateNeverSamples() {
+        SampledLogStrategy strategy = new SampledLogStrategy(0, 400, SLOW);
+
+        for (int i = 0; i < 10_000; i++) {
+            assertFalse(strategy.shouldLog(200, FAST));
+        }
+    }
+
+    @Test
+    void fullRateAlwaysSamples() {
+        SampledLogStrategy strategy = new SampledLogStrategy(1, 400, SLOW);
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(strategy.shouldLog(200, FAST));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MetricsConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Test
+    void storagesAreWrappedWithTimers() {
+        assertInstanceOf(TimedFilmStorage.class, filmStorage);
+        assertInstanceOf(TimedUserStorage.class, userStorage);
+        assertNotNull(registry.find("filmorate.storage").tags("storage", "films", "method", "findAll(Long,int)").timer());
+        assertNotNull(registry.find("filmorate.storage").tags("storage", "users", "method", "getFriends(Long)").timer());
+    }
+
+    @Test
+    void storageCallsAreTimed() throws Exception {
+        Timer create = registry.get("filmorate.storage").tags("storage", "films", "method", "create").timer();
+        long before = create.count();
+
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name": "Метрики", "description": "Описание",
+                                 "releaseDate": "2000-01-01", "duration": 90}
+                                """))
+                .andExpect(status().isOk());
+
+        assertEquals(before + 1, create.count());
+    }
+
+    @Test
+    void storageSizesAreGauges() {
+        long films = filmStorage.stats().entities();
+
+        assertEquals(films, registry.get("filmorate.films").gauge().value());
+        assertNotNull(registry.find("filmorate.likes").gauge());
+        assertNotNull(registry.find("filmorate.likes.largest").gauge());
+        assertNotNull(registry.find("filmorate.users").gauge());
+        assertNotNull(registry.find("filmorate.friendships").gauge());
+        assertNotNull(registry.find("filmorate.friends.largest").gauge());
+    }
+
+    @Test
+    void notFoundIsCountedByPathTemplate() throws Exception {
+        double before = notFoundErrors();
+
+        mockMvc.perform(get("/films/999999"))
+                .andExpect(status().isNotFound());
+
+        assertEquals(before + 1, notFoundErrors());
+    }
+
+    private double notFoundErrors() {
+        Counter counter = registry.find("filmorate.errors")
+                .tags("exception", "NotFoundException", "method", "GET", "uri", "/films/{filmId}")
+                .counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.BatchAction;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrendingFilmsStateTest {
+    private static final int BUCKETS = 24;
+
+    private final TrendingFilms trending = new TrendingFilms(new InMemoryFilmStorage(), Duration.ofHours(1),
+            BUCKETS, () -> Duration.ofDays(20_000).toMillis());
+
+    @Test
+    void stateDoesNotGrowWithLikers() {
+        assertEquals(0, trending.cellsOf(1L));
+
+        trending.likeChanged(1L, BatchAction.ADD);
+        assertEquals(BUCKETS, trending.cellsOf(1L));
+
+        for (int i = 0; i < 10_000; i++) {
+            trending.likeChanged(1L, BatchAction.ADD);
+        }
+        for (int i = 0; i < 5_000; i++) {
+            trending.likeChanged(1L, BatchAction.REMOVE);
+        }
+        assertEquals(BUCKETS, trending.cellsOf(1L));
+    }
+
+    @Test
+    void unlikeOfFilmWithoutLikesInRingKeepsNoState() {
+        trending.likeChanged(2L, BatchAction.REMOVE);
+
+        assertEquals(0, trending.cellsOf(2L));
+    }
+}
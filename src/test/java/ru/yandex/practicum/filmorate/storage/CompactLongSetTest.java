@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactLongSetTest {
+
+    @Test
+    void addContainsRemoveInArrayMode() {
+        CompactLongSet set = new CompactLongSet();
+
+        assertTrue(set.add(5L));
+        assertTrue(set.add(1L));
+        assertFalse(set.add(5L));
+
+        assertEquals(2, set.size());
+        assertTrue(set.contains(1L));
+        assertFalse(set.contains(2L));
+        assertArrayEquals(new long[]{1L, 5L}, set.toArray());
+
+        assertTrue(set.remove(1L));
+        assertFalse(set.remove(1L));
+        assertArrayEquals(new long[]{5L}, set.toArray());
+    }
+
+    @Test
+    void switchesToHashTableAndBack() {
+        CompactLongSet set = new CompactLongSet();
+        int count = CompactLongSet.ARRAY_LIMIT * 10;
+
+        for (long i = 0; i < count; i++) {
+            assertTrue(set.add(i));
+        }
+        assertEquals(count, set.size());
+        assertTrue(set.contains(0L));
+
+        for (long i = 0; i < count - 3; i++) {
+            assertTrue(set.remove(i));
+        }
+
+        long[] remaining = set.toArray();
+        assertArrayEquals(new long[]{count - 3, count - 2, count - 1}, remaining);
+    }
+
+    @Test
+    void matchesHashSetOnRandomOperations() {
+        Random random = new Random(42);
+        CompactLongSet set = new CompactLongSet();
+        Set<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            long value = random.nextInt(2_000) - 100;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+
+        long[] actual = set.toArray();
+        Arrays.sort(actual);
+        long[] sortedExpected = expected.stream().mapToLong(Long::longValue).sorted().toArray();
+        assertArrayEquals(sortedExpected, actual);
+        for (long value = -100; value < 1_900; value++) {
+            assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FilmSearchIndexTest {
+
+    private final FilmSearchIndex index = new FilmSearchIndex();
+
+    @Test
+    void tokenizesLettersAndDigits() {
+        assertEquals(List.of("звездные", "войны", "4", "star", "wars"),
+                FilmSearchIndex.tokenize("Звёздные войны-4: Star  WARS, войны"));
+        assertTrue(FilmSearchIndex.tokenize(" ,.- ").isEmpty());
+    }
+
+    @Test
+    void ranksNameOverDescriptionThenPopularity() {
+        index.put(1, film("Космос", "Путешествие к звёздам"));
+        index.put(2, film("Звёзды", "Документальный фильм о космосе"));
+        index.put(3, film("Звёздная пыль", "Сказка"));
+        Map<Long, Integer> likes = Map.of(1L, 5, 2L, 1, 3L, 9);
+
+        assertArrayEquals(new long[]{3, 2, 1}, index.search("звёзд", 10, id -> likes.get(id)));
+        assertArrayEquals(new long[]{2}, index.search("звезды ", 10, id -> likes.get(id)));
+        assertArrayEquals(new long[]{2}, index.search("фильм косм", 10, id -> likes.get(id)));
+        assertArrayEquals(new long[]{3}, index.search("звезд", 1, id -> likes.get(id)));
+        assertEquals(0, index.search("пыль космос", 10, id -> likes.get(id)).length);
+    }
+
+    @Test
+    void followsUpdateAndRemove() {
+        index.put(1, film("Матрица", "Нео и агенты"));
+        index.put(1, film("Матрица: перезагрузка", "Нео и агенты"));
+
+        assertArrayEquals(new long[]{1}, index.search("перезагрузка", 10, id -> 0));
+        assertArrayEquals(new long[]{1}, index.search("нео", 10, id -> 0));
+
+        index.remove(1);
+        assertEquals(0, index.search("матр", 10, id -> 0).length);
+    }
+
+    @Test
+    void followsInPlaceChangeOfIndexedInstance() {
+        Film film = film("Альфа", "Первый");
+        index.put(1, film);
+        film.setName("Омега");
+        index.put(1, film);
+
+        assertArrayEquals(new long[]{1}, index.search("омега ", 10, id -> 0));
+        assertEquals(0, index.search("альфа ", 10, id -> 0).length);
+    }
+
+    private static Film film(String name, String description) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription(description);
+        return film;
+    }
+}
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongCounterTest {
+
+    @Test
+    void countsAndMergesLikeMap() {
+        Random random = new Random(7);
+        LongCounter left = new LongCounter(4);
+        LongCounter right = new LongCounter(4);
+        Map<Long, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            long key = 1 + random.nextInt(3_000);
+            (i % 2 == 0 ? left : right).increment(key);
+            expected.merge(key, 1, Integer::sum);
+        }
+        left.addAll(right);
+
+        assertEquals(expected.size(), left.size());
+        expected.forEach((key, count) -> assertEquals(count, left.get(key)));
+        assertEquals(0, left.get(3_001));
+    }
+
+    @Test
+    void topOrdersByCountThenIdAndSkips() {
+        Random random = new Random(11);
+        LongCounter counter = new LongCounter(16);
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            long key = 1 + random.nextInt(500);
+            counter.increment(key);
+            expected.merge(key, 1, Integer::sum);
+        }
+
+        long[] reference = expected.entrySet().stream()
+                .filter(entry -> entry.getKey() % 3 != 0)
+                .sorted(Map.Entry.<Long, Integer>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(25)
+                .mapToLong(Map.Entry::getKey)
+                .toArray();
+
+        assertArrayEquals(reference, counter.top(25, key -> key % 3 == 0));
+        assertEquals(0, counter.top(0, key -> false).length);
+        assertEquals(expected.size(), counter.top(10_000, key -> false).length);
+    }
+}
@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void filmsAreRestoredFromSnapshotAndLogTail() throws IOException {
+        SnapshotStore snapshots = new SnapshotStore(true, dir.resolve("snapshot"), 0);
+        WriteAheadLog wal = WriteAheadLog.open(dir.resolve("wal"), "films", WriteAheadLog.FsyncPolicy.NEVER, 0);
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(wal, snapshots);
+        Film first = storage.create(film("First"));
+        Film second = storage.create(film("Second"));
+        for (long userId = 1; userId <= 40; userId++) {
+            storage.addLike(first.getId(), userId);
+        }
+        storage.addLike(second.getId(), 1L);
+
+        storage.snapshot();
+        storage.removeLike(first.getId(), 40L);
+        Film third = storage.create(film("Third"));
+        storage.addLike(third.getId(), 5L);
+        second.setName("Renamed");
+        storage.update(second);
+        wal.close();
+
+        try (Stream<Path> segments = Files.list(dir.resolve("wal"))) {
+            assertEquals(List.of("films-00000002.wal"),
+                    segments.map(path -> path.getFileName().toString()).toList());
+        }
+
+        InMemoryFilmStorage restored = new InMemoryFilmStorage(
+                WriteAheadLog.open(dir.resolve("wal"), "films", WriteAheadLog.FsyncPolicy.NEVER, 0), snapshots);
+        assertEquals(3, restored.findAll().size());
+        assertEquals(39, restored.findById(first.getId()).orElseThrow().getLikes().size());
+        assertEquals(Set.of(5L), restored.findById(third.getId()).orElseThrow().getLikes());
+        assertEquals(second.getId(), restored.findByName("Renamed").orElseThrow().getId());
+        assertEquals(List.of(first.getId(), second.getId(), third.getId()),
+                restored.getPopularFilms(3).stream().map(Film::getId).toList());
+        assertEquals(third.getId() + 1, restored.create(film("Fourth")).getId());
+    }
+
+    @Test
+    void usersAreRestoredFromSnapshotWithoutLog() {
+        SnapshotStore snapshots = new SnapshotStore(true, dir, 0);
+        InMemoryUserStorage storage = new InMemoryUserStorage(WriteAheadLog.disabled(), snapshots);
+        User hub = storage.create(user("hub@mail.ru", null));
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 30; i++) {
+            User friend = storage.create(user("friend" + i + "@mail.ru", LocalDate.of(1990, 1, 1)));
+            storage.addFriend(hub.getId(), friend.getId());
+            expected.add(friend.getId());
+        }
+        storage.close();
+
+        InMemoryUserStorage restored = new InMemoryUserStorage(WriteAheadLog.disabled(), snapshots);
+        assertEquals(31, restored.findAll().size());
+        assertEquals(expected, new HashSet<>(restored.getFriends(hub.getId())));
+        long friendId = expected.iterator().next();
+        assertEquals(Set.of(hub.getId()), restored.getFriends(friendId));
+        User restoredHub = restored.findByEmail("HUB@mail.ru").orElseThrow();
+        assertNull(restoredHub.getBirthday());
+        assertEquals("Имя", restoredHub.getName());
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+        return film;
+    }
+
+    private static User user(String email, LocalDate birthday) {
+        User user = new User();
+        user.setEmail(email);
+        user.setLogin(email.substring(0, email.indexOf('@')));
+        user.setName("Имя");
+        user.setBirthday(birthday);
+        return user;
+    }
+}
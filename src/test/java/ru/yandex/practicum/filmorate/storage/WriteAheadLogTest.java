@@ -0,0 +1,171 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void filmStorageIsRestoredFromLog() {
+        WriteAheadLog wal = WriteAheadLog.open(dir, "films", WriteAheadLog.FsyncPolicy.ALWAYS, 0);
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(wal, SnapshotStore.disabled());
+        Film first = storage.create(film("First"));
+        Film second = storage.create(film("Second"));
+        Film third = storage.create(film("Third"));
+        storage.addLike(first.getId(), 1L);
+        storage.addLike(first.getId(), 2L);
+        storage.addLike(second.getId(), 1L);
+        storage.removeLike(first.getId(), 2L);
+        second.setName("Renamed");
+        storage.update(second);
+        storage.delete(third.getId());
+        wal.close();
+
+        InMemoryFilmStorage restored = new InMemoryFilmStorage(
+                WriteAheadLog.open(dir, "films", WriteAheadLog.FsyncPolicy.NEVER, 0), SnapshotStore.disabled());
+
+        assertEquals(2, restored.findAll().size());
+        assertEquals(Set.of(1L), restored.findById(first.getId()).orElseThrow().getLikes());
+        assertEquals(second.getId(), restored.findByName("renamed").orElseThrow().getId());
+        assertTrue(restored.findByName("Second").isEmpty());
+        assertTrue(restored.findById(third.getId()).isEmpty());
+        assertEquals(List.of(first.getId(), second.getId()),
+                restored.getPopularFilms(10).stream().map(Film::getId).toList());
+        assertEquals(third.getId() + 1, restored.create(film("Fourth")).getId());
+    }
+
+    @Test
+    void userStorageIsRestoredFromLog() {
+        WriteAheadLog wal = WriteAheadLog.open(dir, "users", WriteAheadLog.FsyncPolicy.INTERVAL, 5);
+        InMemoryUserStorage storage = new InMemoryUserStorage(wal, SnapshotStore.disabled());
+        User first = storage.create(user("first@mail.ru"));
+        User second = storage.create(user("second@mail.ru"));
+        User third = storage.create(user("third@mail.ru"));
+        storage.addFriend(first.getId(), second.getId());
+        storage.addFriend(first.getId(), third.getId());
+        storage.addFriend(second.getId(), third.getId());
+        storage.removeFriend(second.getId(), third.getId());
+        storage.delete(third.getId());
+        first.setEmail("changed@mail.ru");
+        storage.update(first);
+        wal.close();
+
+        InMemoryUserStorage restored = new InMemoryUserStorage(
+                WriteAheadLog.open(dir, "users", WriteAheadLog.FsyncPolicy.NEVER, 0), SnapshotStore.disabled());
+
+        assertEquals(2, restored.findAll().size());
+        assertEquals(Set.of(second.getId()), restored.getFriends(first.getId()));
+        assertEquals(Set.of(first.getId()), restored.getFriends(second.getId()));
+        assertEquals(first.getId(), restored.findByEmail("CHANGED@mail.ru").orElseThrow().getId());
+        assertTrue(restored.findById(third.getId()).isEmpty());
+    }
+
+    @Test
+    void stringsLongerThan64KbAreRestored() {
+        WriteAheadLog wal = WriteAheadLog.open(dir, "films", WriteAheadLog.FsyncPolicy.ALWAYS, 0);
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(wal, SnapshotStore.disabled());
+        Film film = film("Длинный фильм");
+        film.setDescription("Описание ".repeat(10_000));
+        Film noDescription = film("Без описания");
+        noDescription.setDescription(null);
+        Long id = storage.create(film).getId();
+        Long noDescriptionId = storage.create(noDescription).getId();
+        wal.close();
+
+        InMemoryFilmStorage restored = new InMemoryFilmStorage(
+                WriteAheadLog.open(dir, "films", WriteAheadLog.FsyncPolicy.NEVER, 0), SnapshotStore.disabled());
+
+        assertEquals(film.getDescription(), restored.findById(id).orElseThrow().getDescription());
+        assertEquals("Длинный фильм", restored.findById(id).orElseThrow().getName());
+        assertNull(restored.findById(noDescriptionId).orElseThrow().getDescription());
+    }
+
+    @Test
+    void tornTailIsDiscardedAndLogStaysWritable() throws IOException {
+        WriteAheadLog wal = WriteAheadLog.open(dir, "films", WriteAheadLog.FsyncPolicy.ALWAYS, 0);
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(wal, SnapshotStore.disabled());
+        Film film = storage.create(film("Film"));
+        storage.addLike(film.getId(), 7L);
+        wal.close();
+        Files.write(dir.resolve("films-00000001.wal"), new byte[]{0, 0, 0, 16, 1, 2}, StandardOpenOption.APPEND);
+
+        wal = WriteAheadLog.open(dir, "films", WriteAheadLog.FsyncPolicy.ALWAYS, 0);
+        storage = new InMemoryFilmStorage(wal, SnapshotStore.disabled());
+        assertEquals(Set.of(7L), storage.findById(film.getId()).orElseThrow().getLikes());
+        storage.addLike(film.getId(), 8L);
+        wal.close();
+
+        InMemoryFilmStorage restored = new InMemoryFilmStorage(
+                WriteAheadLog.open(dir, "films", WriteAheadLog.FsyncPolicy.NEVER, 0), SnapshotStore.disabled());
+        assertEquals(Set.of(7L, 8L), restored.findById(film.getId()).orElseThrow().getLikes());
+    }
+
+    @Test
+    void concurrentWritersShareFlushes() throws Exception {
+        WriteAheadLog wal = WriteAheadLog.open(dir, "films", WriteAheadLog.FsyncPolicy.ALWAYS, 0);
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(wal, SnapshotStore.disabled());
+        long filmId = storage.create(film("Film")).getId();
+
+        int threads = 8;
+        int likesPerThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long base = (long) t * likesPerThread;
+                futures.add(executor.submit(() -> {
+                    for (long u = 1; u <= likesPerThread; u++) {
+                        storage.addLike(filmId, base + u);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        wal.close();
+
+        InMemoryFilmStorage restored = new InMemoryFilmStorage(
+                WriteAheadLog.open(dir, "films", WriteAheadLog.FsyncPolicy.NEVER, 0), SnapshotStore.disabled());
+        assertEquals(threads * likesPerThread, restored.findById(filmId).orElseThrow().getLikes().size());
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+        return film;
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setLogin(email.substring(0, email.indexOf('@')));
+        user.setName("Name");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}